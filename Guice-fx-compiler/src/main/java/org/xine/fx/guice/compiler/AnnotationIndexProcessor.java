@@ -0,0 +1,183 @@
+package org.xine.fx.guice.compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that indexes the classes that Guice-fx type listeners have to inspect.
+ * <p>
+ * For each of {@code FXMLController}, {@code FXMLComponent} and {@code PersistentProperty}, a
+ * resource {@code META-INF/guice-fx/index/<annotation>} lists the binary names of all classes that
+ * carry the annotation or declare a field that carries it. At runtime the listeners skip all other
+ * classes of the same classpath root without reflection. The index is written for every
+ * compilation, even if it is empty, so that roots without annotated classes are skipped entirely.
+ * </p>
+ * <p>
+ * The processor claims no annotations. Entries of an existing index are kept for classes that are
+ * not recompiled, to support incremental builds.
+ * </p>
+ */
+@SupportedAnnotationTypes("*")
+public final class AnnotationIndexProcessor extends AbstractProcessor {
+
+    /** The location of the index resources. */
+    static final String INDEX_DIRECTORY = "META-INF/guice-fx/index/";
+
+    /** The names of the indexed annotations. */
+    private static final String[] ANNOTATIONS = {"org.xine.fx.guice.FXMLController",
+            "org.xine.fx.guice.FXMLComponent", "org.xine.fx.guice.PersistentProperty" };
+
+    /** The indexed classes, by annotation. */
+    private final Map<String, Set<String>> index = new LinkedHashMap<>();
+
+    /** The binary names of the top-level classes that have been compiled. */
+    private final Set<String> compiled = new HashSet<>();
+
+    /**
+     * Instantiates a new annotation index processor.
+     */
+    public AnnotationIndexProcessor() {
+        super();
+        for (final String annotation : ANNOTATIONS) {
+            this.index.put(annotation, new TreeSet<String>());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+     * javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+            final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (final Element element : roundEnv.getRootElements()) {
+            if (element instanceof TypeElement) {
+                this.compiled.add(getBinaryName((TypeElement) element));
+            }
+        }
+        for (final Map.Entry<String, Set<String>> entry : this.index.entrySet()) {
+            final TypeElement annotation = this.processingEnv.getElementUtils().getTypeElement(
+                    entry.getKey());
+            if (annotation == null) {
+                continue;
+            }
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                final Element type = element instanceof TypeElement ? element : element
+                        .getEnclosingElement();
+                if (type instanceof TypeElement) {
+                    entry.getValue().add(getBinaryName((TypeElement) type));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the index of each annotation, merged with the entries of classes that have not been
+     * recompiled.
+     */
+    private void writeIndex() {
+        for (final Map.Entry<String, Set<String>> entry : this.index.entrySet()) {
+            final String resource = INDEX_DIRECTORY + entry.getKey();
+            final Set<String> classNames = entry.getValue();
+            for (final String className : readIndex(resource)) {
+                if (!this.compiled.contains(getTopLevelName(className))) {
+                    classNames.add(className);
+                }
+            }
+            try (Writer writer = this.processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", resource).openWriter()) {
+                for (final String className : classNames) {
+                    writer.write(className);
+                    writer.write('\n');
+                }
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(Kind.ERROR,
+                        String.format("Cannot write '%s': %s", resource, e));
+            }
+        }
+    }
+
+    /**
+     * Reads the entries of an index that has been written by a previous compilation.
+     * @param resource
+     *            the location of the index
+     * @return the class names, empty if there is no index
+     */
+    private Set<String> readIndex(final String resource) {
+        final Set<String> classNames = new TreeSet<>();
+        final FileObject file;
+        try {
+            file = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    resource);
+        } catch (IOException | IllegalArgumentException e) {
+            return classNames;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                file.openInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    classNames.add(line.trim());
+                }
+            }
+        } catch (final IOException e) {
+            // There is no previous index.
+        }
+        return classNames;
+    }
+
+    /**
+     * Gets the binary name of a type.
+     * @param type
+     *            the type
+     * @return the name as returned by {@link Class#getName()}
+     */
+    private String getBinaryName(final TypeElement type) {
+        return this.processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    /**
+     * Gets the name of the top-level class of a class.
+     * @param className
+     *            the binary name of the class
+     * @return the binary name of its top-level class
+     */
+    private static String getTopLevelName(final String className) {
+        final int index = className.indexOf('$', className.lastIndexOf('.') + 1);
+        return index < 0 ? className : className.substring(0, index);
+    }
+
+}
@@ -0,0 +1,972 @@
+package org.xine.fx.guice.compiler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Translates a parsed FXML document into the source code of an
+ * {@code org.xine.fx.guice.fxml.FXMLViewFactory}.
+ * <p>
+ * Only the static subset of FXML is compiled: instance elements with a public no-arg constructor
+ * (or annotated with {@code @FXMLComponent}), property attributes and elements, static properties
+ * given as attributes, default properties, fx:id and fx:controller. Attribute values are converted
+ * at compile time following the rules of the JavaFX FXMLLoader. Everything else makes the compiler
+ * throw an {@link UnsupportedFXMLException}.
+ * </p>
+ */
+final class FXMLCompiler {
+
+    /** The prefix of the FXML namespace URIs. */
+    private static final String FXML_NAMESPACE = "http://javafx.com/fxml";
+
+    /** The XML namespace of namespace declarations. */
+    private static final String XMLNS_NAMESPACE = "http://www.w3.org/2000/xmlns/";
+
+    /** The name of the FXMLComponent annotation. */
+    private static final String FXML_COMPONENT = "org.xine.fx.guice.FXMLComponent";
+
+    /** The name of the JavaFX DefaultProperty annotation. */
+    private static final String DEFAULT_PROPERTY = "javafx.beans.DefaultProperty";
+
+    /** The name of the view factory interface. */
+    private static final String VIEW_FACTORY = "org.xine.fx.guice.fxml.FXMLViewFactory";
+
+    /** The name of the view context class. */
+    private static final String VIEW_CONTEXT = "org.xine.fx.guice.fxml.FXMLViewContext";
+
+    /** The element utilities. */
+    private final Elements elements;
+
+    /** The type utilities. */
+    private final Types types;
+
+    /** The imports of the document being compiled. */
+    private final List<String> imports = new ArrayList<>();
+
+    /** The body of the generated create method. */
+    private final StringBuilder body = new StringBuilder();
+
+    /** The number of variables declared so far. */
+    private int variableCount;
+
+    /**
+     * Instantiates a new FXML compiler.
+     * @param processingEnv
+     *            the processing environment
+     */
+    FXMLCompiler(final ProcessingEnvironment processingEnv) {
+        super();
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    /**
+     * Compiles the given document.
+     * @param document
+     *            the parsed FXML document
+     * @param packageName
+     *            the package of the generated class, empty for the unnamed package
+     * @param className
+     *            the simple name of the generated class
+     * @param location
+     *            the classpath location of the document
+     * @return the source code of the generated class
+     * @throws UnsupportedFXMLException
+     *             if the document cannot be compiled
+     */
+    String compile(final Document document, final String packageName, final String className,
+            final String location) throws UnsupportedFXMLException {
+
+        this.imports.clear();
+        this.imports.add("java.lang.*");
+        this.body.setLength(0);
+        this.variableCount = 0;
+
+        for (Node node = document.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof ProcessingInstruction
+                    && "import".equals(((ProcessingInstruction) node).getTarget())) {
+                this.imports.add(((ProcessingInstruction) node).getData().trim());
+            }
+        }
+
+        final Instance root = compileInstance(document.getDocumentElement(), true);
+
+        final StringBuilder source = new StringBuilder();
+        source.append("// Generated by guice-fx-compiler from ").append(location)
+                .append(". Do not edit.\n");
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n");
+        }
+        source.append("\n");
+        source.append("/**\n");
+        source.append(" * View factory compiled from {@code ").append(location).append("}.\n");
+        source.append(" */\n");
+        source.append("public final class ").append(className).append(" implements ")
+                .append(VIEW_FACTORY).append(" {\n\n");
+        source.append("    @Override\n");
+        source.append("    public String getLocation() {\n");
+        source.append("        return ").append(literal(location)).append(";\n");
+        source.append("    }\n\n");
+        source.append("    @Override\n");
+        source.append("    @SuppressWarnings({\"rawtypes\", \"unchecked\" })\n");
+        source.append("    public Object create(final ").append(VIEW_CONTEXT)
+                .append(" context) {\n");
+        source.append(this.body);
+        source.append("        return ").append(root.variable).append(";\n");
+        source.append("    }\n\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Compiles an instance element.
+     * @param element
+     *            the element
+     * @param root
+     *            whether the element is the root of the document
+     * @return the compiled instance
+     * @throws UnsupportedFXMLException
+     *             if the element cannot be compiled
+     */
+    private Instance compileInstance(final Element element, final boolean root)
+            throws UnsupportedFXMLException {
+
+        if (isFxmlNamespace(element.getNamespaceURI())) {
+            throw new UnsupportedFXMLException(String.format("<fx:%s> is not supported",
+                    element.getLocalName()));
+        }
+        final TypeElement type = resolveType(element.getLocalName());
+
+        // fx:controller
+        final Attr controllerAttribute = getFxmlAttribute(element, "controller");
+        if (controllerAttribute != null) {
+            if (!root) {
+                throw new UnsupportedFXMLException("fx:controller is only allowed on the root");
+            }
+            final TypeElement controllerType = resolveType(controllerAttribute.getValue());
+            if (!isAccessible(controllerType)) {
+                throw new UnsupportedFXMLException(String.format(
+                        "controller class '%s' is not public", controllerType.getQualifiedName()));
+            }
+            statement("context.createController(%s.class);", controllerType.getQualifiedName());
+        }
+
+        // Instantiation
+        if (!isAccessible(type) || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new UnsupportedFXMLException(String.format("class '%s' cannot be instantiated",
+                    type.getQualifiedName()));
+        }
+        final Instance instance = new Instance("node" + this.variableCount++, type);
+        if (hasAnnotation(type, FXML_COMPONENT)) {
+            statement("final %1$s %2$s = context.getInstance(%1$s.class);",
+                    type.getQualifiedName(), instance.variable);
+        } else if (hasPublicNoArgConstructor(type)) {
+            statement("final %1$s %2$s = new %1$s();", type.getQualifiedName(), instance.variable);
+        } else {
+            throw new UnsupportedFXMLException(String.format(
+                    "class '%s' has no public no-arg constructor", type.getQualifiedName()));
+        }
+
+        // Attributes
+        String fxId = null;
+        boolean idSet = false;
+        final NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (XMLNS_NAMESPACE.equals(attribute.getNamespaceURI())) {
+                continue;
+            }
+            if (isFxmlNamespace(attribute.getNamespaceURI())) {
+                if ("id".equals(attribute.getLocalName())) {
+                    fxId = attribute.getValue();
+                } else if (!"controller".equals(attribute.getLocalName())) {
+                    throw new UnsupportedFXMLException(String.format("fx:%s is not supported",
+                            attribute.getLocalName()));
+                }
+                continue;
+            }
+            final String name = attribute.getName();
+            if (name.indexOf('.') >= 0) {
+                compileStaticProperty(instance, name, attribute.getValue());
+            } else {
+                idSet |= "id".equals(name);
+                compileProperty(instance, name, attribute.getValue());
+            }
+        }
+        if (fxId != null) {
+            if (!idSet && !findSetters(type, "id").isEmpty()) {
+                statement("%s.setId(%s);", instance.variable, literal(fxId));
+            }
+            statement("context.register(%s, %s);", literal(fxId), instance.variable);
+        }
+
+        // Child elements
+        String defaultProperty = null;
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.TEXT_NODE
+                    || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                if (!node.getNodeValue().trim().isEmpty()) {
+                    throw new UnsupportedFXMLException("text content of instance elements");
+                }
+            } else if (node.getNodeType() == Node.ELEMENT_NODE) {
+                final Element child = (Element) node;
+                if (isFxmlNamespace(child.getNamespaceURI())) {
+                    throw new UnsupportedFXMLException(String.format(
+                            "<fx:%s> is not supported", child.getLocalName()));
+                }
+                final String name = child.getLocalName();
+                final String simpleName = name.substring(name.lastIndexOf('.') + 1);
+                if (Character.isUpperCase(simpleName.charAt(0))) {
+                    if (defaultProperty == null) {
+                        defaultProperty = getDefaultProperty(type);
+                    }
+                    addToProperty(instance, defaultProperty, compileInstance(child, false));
+                } else if (name.indexOf('.') >= 0) {
+                    throw new UnsupportedFXMLException(String.format(
+                            "static property element <%s>", name));
+                } else {
+                    compilePropertyElement(instance, child);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Compiles a property element.
+     * @param instance
+     *            the instance the property belongs to
+     * @param element
+     *            the property element
+     * @throws UnsupportedFXMLException
+     *             if the element cannot be compiled
+     */
+    private void compilePropertyElement(final Instance instance, final Element element)
+            throws UnsupportedFXMLException {
+        if (element.getAttributes().getLength() > 0) {
+            throw new UnsupportedFXMLException(String.format("attributes on property element <%s>",
+                    element.getLocalName()));
+        }
+        final String property = element.getLocalName();
+        final StringBuilder text = new StringBuilder();
+        boolean hasElements = false;
+        for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.TEXT_NODE
+                    || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                text.append(node.getNodeValue());
+            } else if (node.getNodeType() == Node.ELEMENT_NODE) {
+                final Element child = (Element) node;
+                final String name = child.getLocalName();
+                if (isFxmlNamespace(child.getNamespaceURI())
+                        || !Character.isUpperCase(name.charAt(name.lastIndexOf('.') + 1))) {
+                    throw new UnsupportedFXMLException(String.format(
+                            "<%s> inside property element <%s>", child.getTagName(), property));
+                }
+                hasElements = true;
+                addToProperty(instance, property, compileInstance(child, false));
+            }
+        }
+        final String value = text.toString().replaceAll("\\s+", " ").trim();
+        if (!value.isEmpty()) {
+            if (hasElements) {
+                throw new UnsupportedFXMLException(String.format(
+                        "mixed content in property element <%s>", property));
+            }
+            compileProperty(instance, property, value);
+        }
+    }
+
+    /**
+     * Compiles a property given as string value.
+     * @param instance
+     *            the instance the property belongs to
+     * @param property
+     *            the property name
+     * @param value
+     *            the string value
+     * @throws UnsupportedFXMLException
+     *             if the property cannot be compiled
+     */
+    private void compileProperty(final Instance instance, final String property,
+            final String value) throws UnsupportedFXMLException {
+
+        final String resourceKey = getResourceKey(value);
+        final String string = unescape(value);
+
+        for (final ExecutableElement setter : findSetters(instance.type, property)) {
+            final TypeMirror parameterType = setter.getParameters().get(0).asType();
+            final String expression = resourceKey == null ? convert(parameterType, string)
+                    : resource(parameterType, resourceKey);
+            if (expression != null) {
+                statement("%s.%s(%s);", instance.variable, setter.getSimpleName(), expression);
+                return;
+            }
+        }
+
+        // Read-only list properties take comma separated values.
+        final ExecutableElement getter = findGetter(instance.type, property);
+        if (getter != null && resourceKey == null) {
+            final TypeMirror elementType = getCollectionElementType(instance, getter);
+            if (elementType != null) {
+                final StringBuilder expressions = new StringBuilder();
+                for (final String item : string.split(",")) {
+                    final String expression = convert(elementType, item.trim());
+                    if (expression == null) {
+                        break;
+                    }
+                    expressions.append(expressions.length() == 0 ? "" : ", ").append(expression);
+                }
+                if (expressions.length() > 0) {
+                    statement("%s.%s().addAll(%s);", instance.variable, getter.getSimpleName(),
+                            expressions);
+                    return;
+                }
+            }
+        }
+
+        throw new UnsupportedFXMLException(String.format(
+                "cannot assign '%s' to property '%s' of class '%s'", value, property,
+                instance.type.getQualifiedName()));
+    }
+
+    /**
+     * Compiles a static property given as attribute, e.g. {@code GridPane.rowIndex="1"}.
+     * @param instance
+     *            the instance the property is set on
+     * @param name
+     *            the qualified property name
+     * @param value
+     *            the string value
+     * @throws UnsupportedFXMLException
+     *             if the property cannot be compiled
+     */
+    private void compileStaticProperty(final Instance instance, final String name,
+            final String value) throws UnsupportedFXMLException {
+        final int index = name.lastIndexOf('.');
+        final TypeElement type = resolveType(name.substring(0, index));
+        final String setterName = "set" + capitalize(name.substring(index + 1));
+        final String resourceKey = getResourceKey(value);
+        final String string = unescape(value);
+        for (final ExecutableElement method : ElementFilter.methodsIn(this.elements
+                .getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(setterName)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().size() == 2
+                    && isAssignable(instance.type, method.getParameters().get(0).asType())) {
+                final TypeMirror parameterType = method.getParameters().get(1).asType();
+                final String expression = resourceKey == null ? convert(parameterType, string)
+                        : resource(parameterType, resourceKey);
+                if (expression != null) {
+                    statement("%s.%s(%s, %s);", type.getQualifiedName(), setterName,
+                            instance.variable, expression);
+                    return;
+                }
+            }
+        }
+        throw new UnsupportedFXMLException(String.format("cannot assign '%s' to '%s'", value,
+                name));
+    }
+
+    /**
+     * Adds a compiled child instance to a property of its parent.
+     * @param parent
+     *            the parent instance
+     * @param property
+     *            the property name
+     * @param child
+     *            the child instance
+     * @throws UnsupportedFXMLException
+     *             if the child cannot be added
+     */
+    private void addToProperty(final Instance parent, final String property, final Instance child)
+            throws UnsupportedFXMLException {
+        for (final ExecutableElement setter : findSetters(parent.type, property)) {
+            if (isAssignable(child.type, setter.getParameters().get(0).asType())) {
+                statement("%s.%s(%s);", parent.variable, setter.getSimpleName(), child.variable);
+                return;
+            }
+        }
+        final ExecutableElement getter = findGetter(parent.type, property);
+        if (getter != null) {
+            final TypeMirror elementType = getCollectionElementType(parent, getter);
+            if (elementType != null && isAssignable(child.type, elementType)) {
+                statement("%s.%s().add(%s);", parent.variable, getter.getSimpleName(),
+                        child.variable);
+                return;
+            }
+        }
+        throw new UnsupportedFXMLException(String.format(
+                "cannot add '%s' to property '%s' of class '%s'", child.type.getQualifiedName(),
+                property, parent.type.getQualifiedName()));
+    }
+
+    /**
+     * Converts a string into a Java expression of the given type, following the coercion rules of
+     * the JavaFX FXMLLoader.
+     * @param type
+     *            the target type
+     * @param value
+     *            the string value
+     * @return the expression or {@code null} if the value cannot be converted
+     */
+    private String convert(final TypeMirror type, final String value) {
+        try {
+            switch (type.getKind()) {
+            case BOOLEAN:
+                return Boolean.toString(Boolean.parseBoolean(value));
+            case BYTE:
+                return "(byte) " + Byte.parseByte(value);
+            case SHORT:
+                return "(short) " + Short.parseShort(value);
+            case INT:
+                return Integer.toString(Integer.parseInt(value));
+            case LONG:
+                return Long.parseLong(value) + "L";
+            case FLOAT:
+                return floatLiteral(Float.parseFloat(value));
+            case DOUBLE:
+                return doubleLiteral(Double.parseDouble(value));
+            case CHAR:
+                return value.length() == 1 ? charLiteral(value.charAt(0)) : null;
+            case DECLARED:
+                return convertDeclared((DeclaredType) type, value);
+            default:
+                return null;
+            }
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts a string into a Java expression of the given declared type.
+     * @param type
+     *            the target type
+     * @param value
+     *            the string value
+     * @return the expression or {@code null} if the value cannot be converted
+     */
+    private String convertDeclared(final DeclaredType type, final String value) {
+        final TypeElement typeElement = (TypeElement) type.asElement();
+        final String name = typeElement.getQualifiedName().toString();
+        if (name.equals("java.lang.String") || name.equals("java.lang.Object")
+                || name.equals("java.lang.CharSequence")) {
+            return literal(value);
+        }
+        try {
+            final TypeMirror primitive = this.types.unboxedType(type);
+            return convert(primitive, value);
+        } catch (final IllegalArgumentException e) {
+            // Not a primitive wrapper.
+        }
+        if (typeElement.getKind() == ElementKind.ENUM) {
+            final String constant = getEnumConstant(typeElement, value);
+            return constant == null ? null : name + "." + constant;
+        }
+        if (isAccessible(typeElement)) {
+            for (final ExecutableElement method : ElementFilter.methodsIn(typeElement
+                    .getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals("valueOf")
+                        && method.getModifiers().contains(Modifier.PUBLIC)
+                        && method.getModifiers().contains(Modifier.STATIC)
+                        && method.getParameters().size() == 1
+                        && isType(method.getParameters().get(0).asType(), "java.lang.String")
+                        && this.types.isAssignable(method.getReturnType(), type)) {
+                    return name + ".valueOf(" + literal(value) + ")";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates an expression that looks up a localized string.
+     * @param type
+     *            the target type
+     * @param key
+     *            the resource key
+     * @return the expression or {@code null} if the target type does not accept strings
+     */
+    private String resource(final TypeMirror type, final String key) {
+        if (isType(type, "java.lang.String") || isType(type, "java.lang.Object")
+                || isType(type, "java.lang.CharSequence")) {
+            return "context.getString(" + literal(key) + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Gets the name of the enum constant matching the given value.
+     * @param type
+     *            the enum type
+     * @param value
+     *            the string value
+     * @return the constant name or {@code null}
+     */
+    private static String getEnumConstant(final TypeElement type, final String value) {
+        final Set<String> constants = new HashSet<>();
+        for (final javax.lang.model.element.Element e : type.getEnclosedElements()) {
+            if (e.getKind() == ElementKind.ENUM_CONSTANT) {
+                constants.add(e.getSimpleName().toString());
+            }
+        }
+        final String[] candidates = {value, value.toUpperCase(Locale.ROOT),
+                value.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT) };
+        for (final String candidate : candidates) {
+            if (constants.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a class name using the imports of the document.
+     * @param name
+     *            the simple or qualified class name
+     * @return the type
+     * @throws UnsupportedFXMLException
+     *             if the class cannot be found
+     */
+    private TypeElement resolveType(final String name) throws UnsupportedFXMLException {
+        TypeElement type = null;
+        if (name.indexOf('.') >= 0) {
+            type = this.elements.getTypeElement(name);
+        }
+        // Class imports take precedence over package imports.
+        for (int i = 0; type == null && i < this.imports.size(); i++) {
+            final String imported = this.imports.get(i);
+            if (imported.equals(name) || imported.endsWith("." + name)) {
+                type = this.elements.getTypeElement(imported);
+            }
+        }
+        for (int i = 0; type == null && i < this.imports.size(); i++) {
+            final String imported = this.imports.get(i);
+            if (imported.endsWith(".*")) {
+                type = this.elements.getTypeElement(imported.substring(0, imported.length() - 1)
+                        + name);
+            }
+        }
+        if (type == null) {
+            throw new UnsupportedFXMLException(String.format("cannot resolve class '%s'", name));
+        }
+        return type;
+    }
+
+    /**
+     * Gets the default property of the given type.
+     * @param type
+     *            the type
+     * @return the default property name
+     * @throws UnsupportedFXMLException
+     *             if the type has no default property
+     */
+    private String getDefaultProperty(final TypeElement type) throws UnsupportedFXMLException {
+        for (TypeElement t = type; t != null; t = getSuperclass(t)) {
+            for (final AnnotationMirror annotation : t.getAnnotationMirrors()) {
+                if (isType(annotation.getAnnotationType(), DEFAULT_PROPERTY)) {
+                    for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+                            .getElementValues().entrySet()) {
+                        if (entry.getKey().getSimpleName().contentEquals("value")) {
+                            return (String) entry.getValue().getValue();
+                        }
+                    }
+                }
+            }
+        }
+        throw new UnsupportedFXMLException(String.format("class '%s' has no default property",
+                type.getQualifiedName()));
+    }
+
+    /**
+     * Finds all public setters of the given property.
+     * @param type
+     *            the type
+     * @param property
+     *            the property name
+     * @return the setters
+     */
+    private List<ExecutableElement> findSetters(final TypeElement type, final String property) {
+        final String setterName = "set" + capitalize(property);
+        final List<ExecutableElement> setters = new ArrayList<>();
+        for (final ExecutableElement method : ElementFilter.methodsIn(this.elements
+                .getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(setterName)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().size() == 1) {
+                setters.add(method);
+            }
+        }
+        return setters;
+    }
+
+    /**
+     * Finds the public getter of the given property.
+     * @param type
+     *            the type
+     * @param property
+     *            the property name
+     * @return the getter or {@code null}
+     */
+    private ExecutableElement findGetter(final TypeElement type, final String property) {
+        final String getterName = "get" + capitalize(property);
+        for (final ExecutableElement method : ElementFilter.methodsIn(this.elements
+                .getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(getterName)
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().isEmpty()) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the element type of a collection returned by a getter.
+     * @param instance
+     *            the instance the getter is called on
+     * @param getter
+     *            the getter
+     * @return the element type, the erasure of {@code Object} for raw collections or {@code null}
+     *         if the getter does not return a collection.
+     */
+    private TypeMirror getCollectionElementType(final Instance instance,
+            final ExecutableElement getter) {
+        // Generic types are used raw by the generated code, hence their members are erased.
+        final DeclaredType declaredType = (DeclaredType) (instance.type.getTypeParameters()
+                .isEmpty() ? instance.type.asType() : this.types.erasure(instance.type.asType()));
+        final TypeMirror returnType = ((ExecutableType) this.types.asMemberOf(declaredType, getter))
+                .getReturnType();
+        final Deque<TypeMirror> queue = new ArrayDeque<>();
+        queue.add(returnType);
+        while (!queue.isEmpty()) {
+            final TypeMirror candidate = queue.poll();
+            if (candidate.getKind() != TypeKind.DECLARED) {
+                continue;
+            }
+            if (isType(candidate, "java.util.Collection")) {
+                final List<? extends TypeMirror> arguments = ((DeclaredType) candidate)
+                        .getTypeArguments();
+                return arguments.isEmpty() ? this.elements.getTypeElement("java.lang.Object")
+                        .asType() : arguments.get(0);
+            }
+            queue.addAll(this.types.directSupertypes(candidate));
+        }
+        return null;
+    }
+
+    /**
+     * Gets the super class of the given type.
+     * @param type
+     *            the type
+     * @return the super class or {@code null}
+     */
+    private static TypeElement getSuperclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass)
+                .asElement() : null;
+    }
+
+    /**
+     * Checks whether instances of the given type are assignable to the target type.
+     * @param type
+     *            the type
+     * @param target
+     *            the target type
+     * @return {@code true} if assignable
+     */
+    private boolean isAssignable(final TypeElement type, final TypeMirror target) {
+        return target.getKind() == TypeKind.DECLARED
+                && this.types.isAssignable(this.types.erasure(type.asType()),
+                        this.types.erasure(target));
+    }
+
+    /**
+     * Checks whether the given type is the type with the given name.
+     * @param type
+     *            the type
+     * @param name
+     *            the qualified name
+     * @return {@code true} if it is
+     */
+    private static boolean isType(final TypeMirror type, final String name) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName()
+                        .contentEquals(name);
+    }
+
+    /**
+     * Checks whether the given type is annotated with the annotation of the given name.
+     * @param type
+     *            the type
+     * @param annotationName
+     *            the qualified annotation name
+     * @return {@code true} if it is
+     */
+    private static boolean hasAnnotation(final TypeElement type, final String annotationName) {
+        for (final AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            if (isType(annotation.getAnnotationType(), annotationName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the given type can be referenced from generated code in any package.
+     * @param type
+     *            the type
+     * @return {@code true} if it can
+     */
+    private static boolean isAccessible(final TypeElement type) {
+        if (type.getNestingKind() == NestingKind.MEMBER
+                && !type.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (javax.lang.model.element.Element e = type; e instanceof TypeElement; e = e
+                .getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the given type has a public no-arg constructor.
+     * @param type
+     *            the type
+     * @return {@code true} if it has
+     */
+    private static boolean hasPublicNoArgConstructor(final TypeElement type) {
+        for (final ExecutableElement constructor : ElementFilter.constructorsIn(type
+                .getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)
+                    && constructor.getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets an attribute of the FXML namespace.
+     * @param element
+     *            the element
+     * @param localName
+     *            the local name of the attribute
+     * @return the attribute or {@code null}
+     */
+    private static Attr getFxmlAttribute(final Element element, final String localName) {
+        final NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            final Attr attribute = (Attr) attributes.item(i);
+            if (isFxmlNamespace(attribute.getNamespaceURI())
+                    && localName.equals(attribute.getLocalName())) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the given namespace URI is the FXML namespace.
+     * @param namespaceURI
+     *            the namespace URI
+     * @return {@code true} if it is
+     */
+    private static boolean isFxmlNamespace(final String namespaceURI) {
+        return namespaceURI != null && namespaceURI.startsWith(FXML_NAMESPACE);
+    }
+
+    /**
+     * Gets the resource key of a value that references a localized string.
+     * @param value
+     *            the attribute value
+     * @return the key or {@code null} if the value is no resource reference
+     * @throws UnsupportedFXMLException
+     *             if the value is a location, variable or event handler reference
+     */
+    private static String getResourceKey(final String value) throws UnsupportedFXMLException {
+        if (value.startsWith("\\")) {
+            return null;
+        }
+        if (value.startsWith("%")) {
+            return value.substring(1);
+        }
+        if (value.startsWith("@") || value.startsWith("$") || value.startsWith("#")) {
+            throw new UnsupportedFXMLException(String.format(
+                    "location, expression and handler references like '%s'", value));
+        }
+        return null;
+    }
+
+    /**
+     * Removes the escape character from an attribute value.
+     * @param value
+     *            the attribute value
+     * @return the unescaped value
+     */
+    private static String unescape(final String value) {
+        return value.startsWith("\\") ? value.substring(1) : value;
+    }
+
+    /**
+     * Appends a statement to the body of the create method.
+     * @param format
+     *            the format string
+     * @param args
+     *            the arguments
+     */
+    private void statement(final String format, final Object... args) {
+        this.body.append("        ").append(String.format(format, args)).append('\n');
+    }
+
+    /**
+     * Capitalizes a property name.
+     * @param property
+     *            the property name
+     * @return the capitalized name
+     */
+    private static String capitalize(final String property) {
+        return Character.toUpperCase(property.charAt(0)) + property.substring(1);
+    }
+
+    /**
+     * Creates a double literal.
+     * @param value
+     *            the value
+     * @return the literal
+     */
+    private static String doubleLiteral(final double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(value) + "d";
+    }
+
+    /**
+     * Creates a float literal.
+     * @param value
+     *            the value
+     * @return the literal
+     */
+    private static String floatLiteral(final float value) {
+        if (Float.isNaN(value)) {
+            return "Float.NaN";
+        } else if (Float.isInfinite(value)) {
+            return value > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY";
+        }
+        return Float.toString(value) + "f";
+    }
+
+    /**
+     * Creates a char literal.
+     * @param value
+     *            the value
+     * @return the literal
+     */
+    private static String charLiteral(final char value) {
+        return value == '\'' ? "'\\''" : "'" + literal(String.valueOf(value)).replaceAll(
+                "^\"|\"$", "") + "'";
+    }
+
+    /**
+     * Creates a string literal.
+     * @param value
+     *            the value
+     * @return the literal
+     */
+    static String literal(final String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                literal.append("\\\"");
+                break;
+            case '\\':
+                literal.append("\\\\");
+                break;
+            case '\n':
+                literal.append("\\n");
+                break;
+            case '\r':
+                literal.append("\\r");
+                break;
+            case '\t':
+                literal.append("\\t");
+                break;
+            default:
+                if (c < 0x20 || c > 0x7e) {
+                    literal.append(String.format("\\u%04x", (int) c));
+                } else {
+                    literal.append(c);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * An instance that has been compiled into a local variable.
+     */
+    private static final class Instance {
+
+        /** The variable name. */
+        private final String variable;
+
+        /** The type. */
+        private final TypeElement type;
+
+        /**
+         * Instantiates a new instance.
+         * @param variable
+         *            the variable name
+         * @param type
+         *            the type
+         */
+        private Instance(final String variable, final TypeElement type) {
+            super();
+            this.variable = variable;
+            this.type = type;
+        }
+
+    }
+
+}
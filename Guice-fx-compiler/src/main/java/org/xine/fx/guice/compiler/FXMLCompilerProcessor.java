@@ -0,0 +1,345 @@
+package org.xine.fx.guice.compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Annotation processor that compiles the FXML documents listed in
+ * {@code org.xine.fx.guice.CompiledFXML} annotations into
+ * {@code org.xine.fx.guice.fxml.FXMLViewFactory} implementations.
+ * <p>
+ * The generated factories are placed in the package of their FXML document and registered in
+ * {@code META-INF/services}, where {@code GuiceFXMLLoader} picks them up at runtime. Entries of an
+ * existing registration are kept as long as their classes still exist, to support incremental
+ * builds.
+ * </p>
+ */
+@SupportedAnnotationTypes(FXMLCompilerProcessor.COMPILED_FXML)
+public final class FXMLCompilerProcessor extends AbstractProcessor {
+
+    /** The name of the CompiledFXML annotation. */
+    static final String COMPILED_FXML = "org.xine.fx.guice.CompiledFXML";
+
+    /** The service registration of the generated factories. */
+    private static final String SERVICE_FILE = "META-INF/services/org.xine.fx.guice.fxml.FXMLViewFactory";
+
+    /** The suffix of generated class names. */
+    private static final String CLASS_NAME_SUFFIX = "FXMLFactory";
+
+    /** The locations of all documents that have been processed. */
+    private final Set<String> locations = new HashSet<>();
+
+    /** The names of all generated factories. */
+    private final Set<String> factories = new TreeSet<>();
+
+    /**
+     * Instantiates a new FXML compiler processor.
+     */
+    public FXMLCompilerProcessor() {
+        super();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+     * javax.annotation.processing.RoundEnvironment)
+     */
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+            final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+        final TypeElement annotation = this.processingEnv.getElementUtils().getTypeElement(
+                COMPILED_FXML);
+        if (annotation == null) {
+            return false;
+        }
+        for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            final PackageElement packageElement = this.processingEnv.getElementUtils()
+                    .getPackageOf(element);
+            final String packagePath = packageElement.isUnnamed() ? "" : packageElement
+                    .getQualifiedName().toString().replace('.', '/') + "/";
+            for (final String location : getLocations(element)) {
+                final String resourcePath = location.startsWith("/") ? location.substring(1)
+                        : packagePath + location;
+                if (this.locations.add(resourcePath)) {
+                    compile(element, resourcePath);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles a single FXML document.
+     * @param element
+     *            the annotated element
+     * @param resourcePath
+     *            the classpath location of the document
+     */
+    private void compile(final Element element, final String resourcePath) {
+        final int index = resourcePath.lastIndexOf('/');
+        final String packageName = index < 0 ? "" : resourcePath.substring(0, index).replace('/',
+                '.');
+        final String fileName = resourcePath.substring(index + 1);
+        if (!packageName.isEmpty() && !SourceVersion.isName(packageName)) {
+            note(element, resourcePath, "its directory is no valid package name");
+            return;
+        }
+        final String className = getClassName(fileName);
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + "."
+                + className;
+
+        final Document document;
+        try {
+            document = parse(packageName, fileName);
+        } catch (IOException | SAXException | ParserConfigurationException e) {
+            this.processingEnv.getMessager().printMessage(Kind.ERROR,
+                    String.format("Cannot read FXML document '%s': %s", resourcePath, e),
+                    element);
+            return;
+        }
+        if (document == null) {
+            this.processingEnv.getMessager().printMessage(Kind.ERROR,
+                    String.format("Cannot find FXML document '%s'.", resourcePath), element);
+            return;
+        }
+
+        try {
+            final String source = new FXMLCompiler(this.processingEnv).compile(document,
+                    packageName, className, resourcePath);
+            try (Writer writer = this.processingEnv.getFiler()
+                    .createSourceFile(qualifiedName, element).openWriter()) {
+                writer.write(source);
+            }
+            this.factories.add(qualifiedName);
+        } catch (final UnsupportedFXMLException e) {
+            note(element, resourcePath, e.getMessage());
+        } catch (final IOException e) {
+            this.processingEnv.getMessager().printMessage(Kind.ERROR,
+                    String.format("Cannot write view factory '%s': %s", qualifiedName, e),
+                    element);
+        }
+    }
+
+    /**
+     * Parses an FXML document.
+     * <p>
+     * The document is looked up in the class output first, where build tools usually copy resources
+     * to before compiling, followed by the source path and the class path.
+     * </p>
+     * @param packageName
+     *            the package of the document
+     * @param fileName
+     *            the file name of the document
+     * @return the parsed document or {@code null} if it cannot be found
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     * @throws SAXException
+     *             if the document is malformed
+     * @throws ParserConfigurationException
+     *             if no XML parser is available
+     */
+    private Document parse(final String packageName, final String fileName) throws IOException,
+            SAXException, ParserConfigurationException {
+        final StandardLocation[] searchPath = {StandardLocation.CLASS_OUTPUT,
+                StandardLocation.SOURCE_PATH, StandardLocation.CLASS_PATH };
+        for (final StandardLocation location : searchPath) {
+            final FileObject resource;
+            final InputStream in;
+            try {
+                resource = this.processingEnv.getFiler().getResource(location, packageName,
+                        fileName);
+                in = resource.openInputStream();
+            } catch (IOException | IllegalArgumentException e) {
+                continue;
+            }
+            try {
+                final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                factory.setCoalescing(true);
+                factory.setIgnoringComments(true);
+                return factory.newDocumentBuilder().parse(in, resource.toUri().toString());
+            } finally {
+                in.close();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the service registration of all generated factories, merged with the factories of a
+     * previous compilation that still exist.
+     */
+    private void writeServiceFile() {
+        for (final String factory : readServiceFile()) {
+            if (exists(factory)) {
+                this.factories.add(factory);
+            }
+        }
+        if (this.factories.isEmpty()) {
+            return;
+        }
+        try (Writer writer = this.processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter()) {
+            for (final String factory : this.factories) {
+                writer.write(factory);
+                writer.write('\n');
+            }
+        } catch (final IOException e) {
+            this.processingEnv.getMessager().printMessage(Kind.ERROR,
+                    String.format("Cannot write '%s': %s", SERVICE_FILE, e));
+        }
+    }
+
+    /**
+     * Reads the service registration that has been written by a previous compilation.
+     * @return the names of the factories, empty if there is no registration
+     */
+    private Set<String> readServiceFile() {
+        final Set<String> names = new TreeSet<>();
+        final FileObject file;
+        try {
+            file = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    SERVICE_FILE);
+        } catch (IOException | IllegalArgumentException e) {
+            return names;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                file.openInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                final String name = (comment < 0 ? line : line.substring(0, comment)).trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        } catch (final IOException e) {
+            // There is no previous registration.
+        }
+        return names;
+    }
+
+    /**
+     * Checks whether the class of a factory exists in the class output.
+     * @param factory
+     *            the qualified name of the factory
+     * @return {@code true} if its class file exists
+     */
+    private boolean exists(final String factory) {
+        final int index = factory.lastIndexOf('.');
+        final String packageName = index < 0 ? "" : factory.substring(0, index);
+        try {
+            final FileObject classFile = this.processingEnv.getFiler().getResource(
+                    StandardLocation.CLASS_OUTPUT, packageName,
+                    factory.substring(index + 1) + ".class");
+            classFile.openInputStream().close();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reports a document that cannot be compiled.
+     * @param element
+     *            the annotated element
+     * @param resourcePath
+     *            the location of the document
+     * @param reason
+     *            the reason
+     */
+    private void note(final Element element, final String resourcePath, final String reason) {
+        this.processingEnv.getMessager().printMessage(Kind.NOTE, String.format(
+                "FXML document '%s' is not compiled (%s), it will be loaded by the FXMLLoader.",
+                resourcePath, reason), element);
+    }
+
+    /**
+     * Gets the locations listed in the annotation of the given element.
+     * @param element
+     *            the annotated element
+     * @return the locations
+     */
+    private static Set<String> getLocations(final Element element) {
+        final Set<String> values = new TreeSet<>();
+        for (final AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(COMPILED_FXML)) {
+                for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+                        .getElementValues().entrySet()) {
+                    final Object value = entry.getValue().getValue();
+                    if (value instanceof List) {
+                        for (final Object item : (List<?>) value) {
+                            values.add((String) ((AnnotationValue) item).getValue());
+                        }
+                    } else {
+                        values.add((String) value);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Derives the name of the generated class from the file name of its FXML document.
+     * @param fileName
+     *            the file name
+     * @return the simple class name
+     */
+    private static String getClassName(final String fileName) {
+        final int index = fileName.lastIndexOf('.');
+        final String baseName = index < 0 ? fileName : fileName.substring(0, index);
+        final StringBuilder className = new StringBuilder();
+        for (int i = 0; i < baseName.length(); i++) {
+            final char c = baseName.charAt(i);
+            className.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (className.length() == 0 || !Character.isJavaIdentifierStart(className.charAt(0))) {
+            className.insert(0, '_');
+        }
+        return className.append(CLASS_NAME_SUFFIX).toString();
+    }
+
+}
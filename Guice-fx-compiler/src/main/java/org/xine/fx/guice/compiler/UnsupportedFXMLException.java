@@ -0,0 +1,23 @@
+package org.xine.fx.guice.compiler;
+
+/**
+ * Signals that an FXML document uses a construct that cannot be compiled into Java code.
+ * <p>
+ * Documents that cannot be compiled are left to the JavaFX FXMLLoader at runtime.
+ * </p>
+ */
+final class UnsupportedFXMLException extends Exception {
+
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new unsupported FXML exception.
+     * @param message
+     *            the message
+     */
+    UnsupportedFXMLException(final String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,195 @@
+package org.xine.fx.guice.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Tests the {@link FXMLCompilerProcessor}.
+ */
+public class FXMLCompilerProcessorTest {
+
+    /** The service registration of the generated factories. */
+    private static final String SERVICE_FILE = "META-INF/services/org.xine.fx.guice.fxml.FXMLViewFactory";
+
+    /** A document the compiler supports. */
+    private static final String DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<?import javafx.scene.layout.VBox?>\n"
+            + "<VBox xmlns:fx=\"http://javafx.com/fxml\"/>\n";
+
+    /** The temporary folder. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** The source directory. */
+    private File sources;
+
+    /** The class output. */
+    private File classes;
+
+    /**
+     * Sets up the source directory and the class output.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        this.sources = this.folder.newFolder("src");
+        this.classes = this.folder.newFolder("classes");
+    }
+
+    /**
+     * Tests that a document is compiled and registered.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testCompile() throws IOException {
+        write(this.classes, "demo/A.fxml", DOCUMENT);
+
+        assertTrue(compile(source("A", "A.fxml")));
+
+        assertTrue(new File(this.classes, "demo/AFXMLFactory.class").isFile());
+        assertEquals(Arrays.asList("demo.AFXMLFactory"), readServiceFile());
+    }
+
+    /**
+     * Tests that an incremental compilation keeps the factories of a previous one.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testIncrementalCompileMergesServiceFile() throws IOException {
+        write(this.classes, "demo/A.fxml", DOCUMENT);
+        write(this.classes, "demo/B.fxml", DOCUMENT);
+        assertTrue(compile(source("A", "A.fxml")));
+
+        assertTrue(compile(source("B", "B.fxml")));
+
+        assertEquals(Arrays.asList("demo.AFXMLFactory", "demo.BFXMLFactory"), readServiceFile());
+    }
+
+    /**
+     * Tests that factories whose classes have been deleted are dropped from the registration.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testDeletedFactoryIsDropped() throws IOException {
+        write(this.classes, "demo/A.fxml", DOCUMENT);
+        write(this.classes, "demo/B.fxml", DOCUMENT);
+        assertTrue(compile(source("A", "A.fxml")));
+        assertTrue(new File(this.classes, "demo/AFXMLFactory.class").delete());
+
+        assertTrue(compile(source("B", "B.fxml")));
+
+        assertEquals(Arrays.asList("demo.BFXMLFactory"), readServiceFile());
+    }
+
+    /**
+     * Tests that a missing document fails the compilation.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMissingDocument() throws IOException {
+        assertFalse(compile(source("A", "Missing.fxml")));
+    }
+
+    /**
+     * Writes a class of the {@code demo} package that is annotated with {@code CompiledFXML}.
+     * @param name
+     *            the simple name of the class
+     * @param location
+     *            the location of its document
+     * @return the source file
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private File source(final String name, final String location) throws IOException {
+        return write(this.sources, "demo/" + name + ".java", "package demo;\n"
+                + "@org.xine.fx.guice.CompiledFXML(\"" + location + "\")\n" + "public class "
+                + name + " {\n}\n");
+    }
+
+    /**
+     * Compiles sources into the class output with the processor.
+     * @param files
+     *            the source files
+     * @return {@code true} if the compilation succeeded
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private boolean compile(final File... files) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null,
+                StandardCharsets.UTF_8)) {
+            final Iterable<? extends JavaFileObject> units = fileManager
+                    .getJavaFileObjects(files);
+            final List<String> options = new ArrayList<>();
+            options.add("-classpath");
+            options.add(System.getProperty("java.class.path") + File.pathSeparator
+                    + this.classes.getPath());
+            options.add("-d");
+            options.add(this.classes.getPath());
+            options.add("-s");
+            options.add(this.classes.getPath());
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager,
+                    new DiagnosticCollector<JavaFileObject>(), options, null, units);
+            task.setProcessors(Collections.singletonList(new FXMLCompilerProcessor()));
+            return task.call().booleanValue();
+        }
+    }
+
+    /**
+     * Reads the service registration from the class output.
+     * @return the registered factories
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private List<String> readServiceFile() throws IOException {
+        return Files.readAllLines(new File(this.classes, SERVICE_FILE).toPath(),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a file.
+     * @param directory
+     *            the base directory
+     * @param path
+     *            the path of the file
+     * @param content
+     *            the content
+     * @return the file
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static File write(final File directory, final String path, final String content)
+            throws IOException {
+        final File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.xine.fx.guice;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation marks methods that must not be executed on the JavaFX application thread, e.g.
+ * because they call blocking services.
+ * <p>
+ * Calls of annotated methods return immediately; the methods are run by the
+ * {@link org.xine.fx.guice.thread.BackgroundExecutor}. Annotated methods either return
+ * {@code void} or a {@link java.util.concurrent.CompletableFuture} or
+ * {@link java.util.concurrent.CompletionStage}. In the latter case the caller receives a future
+ * that is completed on the JavaFX application thread, so that callbacks registered with its
+ * non-async methods can update the UI directly:
+ * </p>
+ * <pre>
+ * service.search(query).thenAccept(results -&gt; this.list.getItems().setAll(results));
+ * </pre>
+ * @see FxApplicationThread
+ * @see org.xine.fx.guice.thread.FxProgress
+ */
+
+@Documented
+@Retention(RUNTIME)
+@Target({METHOD })
+public @interface BackgroundThread {
+    // Intentionally left empty.
+}
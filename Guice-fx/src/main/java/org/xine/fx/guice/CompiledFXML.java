@@ -0,0 +1,42 @@
+package org.xine.fx.guice;
+
+import static java.lang.annotation.ElementType.PACKAGE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks FXML documents that shall be compiled into Java code at build time.
+ * <p>
+ * When the guice-fx-compiler annotation processor is on the compiler's processor path, every
+ * listed FXML document is translated into an {@link org.xine.fx.guice.fxml.FXMLViewFactory} that
+ * builds the object hierarchy without parsing XML or looking up setters reflectively.
+ * {@link GuiceFXMLLoader} uses the generated factory whenever one exists for the location being
+ * loaded and falls back to the JavaFX FXMLLoader otherwise.
+ * </p>
+ * <p>
+ * Documents that use FXML features the compiler does not support (scripts, includes, event
+ * handler references, expression bindings, ...) are reported as a note and are simply loaded by
+ * the FXMLLoader at runtime.
+ * </p>
+ * @see org.xine.fx.guice.fxml.FXMLViewFactory
+ */
+@Documented
+@Retention(SOURCE)
+@Target({TYPE, PACKAGE })
+public @interface CompiledFXML {
+
+    /**
+     * Locations of the FXML documents to be compiled.
+     * <p>
+     * A location can either be absolute within the classpath (e.g. "/com/example/MyView.fxml") or
+     * relative to the package of the annotated element (e.g. "MyView.fxml").
+     * </p>
+     * @return the FXML document locations
+     */
+    public String[] value();
+
+}
@@ -55,4 +55,25 @@ public @interface FXMLComponent {
      */
     public String charset() default "UTF-8";
 
+    /**
+     * Whether the FXML document is loaded after the component has been injected.
+     * <p>
+     * By default the document is loaded during injection, on the injecting thread, so that the
+     * component is complete once it has been created. Asynchronous components are returned empty
+     * and loaded on the JavaFX application thread through the
+     * {@link org.xine.fx.guice.thread.FxDispatcher}, which loads many components in a single drain
+     * and spreads large bursts over several frames.
+     * </p>
+     * <p>
+     * Asynchronous components require the {@link org.xine.fx.guice.thread.FxApplicationThreadModule}
+     * to be installed, which binds the dispatcher. The {@link org.xine.fx.guice.GuiceApplication}
+     * installs it by default; otherwise the injector cannot be created.
+     * </p>
+     * <p>
+     * Default: false
+     * </p>
+     * @return {@code true} if the document is loaded asynchronously
+     */
+    public boolean async() default false;
+
 }
@@ -10,6 +10,21 @@ import java.lang.annotation.Target;
 /**
  * This annotation marks methods that must be executed on the JavaFX application
  * thread.
+ * <p>
+ * Annotated methods either return {@code void} or a {@link java.util.concurrent.CompletableFuture}
+ * or {@link java.util.concurrent.CompletionStage}. Callers on other threads receive a future that
+ * is completed with the result of the method once it has run on the JavaFX application thread;
+ * exceptions thrown by the method complete the future exceptionally.
+ * </p>
+ * <p>
+ * Methods that only render the latest state, e.g. a price label updated from a feed, can be marked
+ * as conflating. A call then replaces a call to the same method that is still waiting to be run,
+ * so that the JavaFX application thread only runs the newest one.
+ * </p>
+ * <p>
+ * Handlers of high-frequency events, e.g. search-as-you-type, can additionally be throttled or
+ * debounced. This applies to calls made on the JavaFX application thread as well.
+ * </p>
  * @see javafx.application.Platform#isFxApplicationThread()
  * @see javafx.application.Platform#runLater(java.lang.Runnable)
  */
@@ -18,5 +33,89 @@ import java.lang.annotation.Target;
 @Retention(RUNTIME)
 @Target({METHOD })
 public @interface FxApplicationThread {
-    // Intentionally left empty.
+
+    /**
+     * Conflation.
+     * @return the way pending calls are conflated
+     */
+    public Conflation conflate() default Conflation.NONE;
+
+    /**
+     * Index of the argument that calls are conflated on. If not negative, a call only replaces
+     * pending calls of the same method on the same instance with an equal value of this argument,
+     * e.g. {@code conflateOn = 0} for {@code updatePrice(String symbol, double price)} keeps the
+     * newest price of each symbol. This implies {@link Conflation#ARGUMENTS} and applies to
+     * throttled and debounced calls as well.
+     * @return the index of the argument, or {@code -1} to conflate on all arguments
+     */
+    public int conflateOn() default -1;
+
+    /**
+     * Throttle, in milliseconds. If positive, the method is run at most once per interval, with the
+     * arguments of the newest call; calls made in between are conflated.
+     * @return the minimum interval between two runs, {@code 0} if not throttled
+     */
+    public long throttle() default 0;
+
+    /**
+     * Debounce, in milliseconds. If positive, the method is only run once no further call has been
+     * made for the given interval, with the arguments of the newest call.
+     * @return the quiet interval before a run, {@code 0} if not debounced
+     */
+    public long debounce() default 0;
+
+    /**
+     * Priority of calls made outside of the JavaFX application thread.
+     * @return the priority
+     * @see org.xine.fx.guice.thread.FxDispatcher
+     */
+    public Priority priority() default Priority.NORMAL;
+
+    /**
+     * Enumeration over the different ways of conflating pending calls.
+     */
+    public enum Conflation {
+        /**
+         * Indicates, that every call is run.
+         */
+        NONE,
+
+        /**
+         * Indicates, that a call replaces any pending call of the same method on the same
+         * instance.
+         */
+        TARGET,
+
+        /**
+         * Indicates, that a call replaces any pending call of the same method on the same
+         * instance with equal arguments, or an equal argument at the index given by
+         * {@link FxApplicationThread#conflateOn()}.
+         */
+        ARGUMENTS;
+
+    }
+
+    /**
+     * Enumeration over the priorities of calls waiting to be run on the JavaFX application thread.
+     */
+    public enum Priority {
+        /**
+         * Indicates, that calls are run with the next pulse, regardless of the frame budget, e.g.
+         * updates in response to user input.
+         */
+        HIGH,
+
+        /**
+         * Indicates, that calls are run as long as the frame budget lasts.
+         */
+        NORMAL,
+
+        /**
+         * Indicates, that calls are run only if the frame budget lasts after all other calls, e.g.
+         * prefetch rendering or statistics.
+         */
+        LOW;
+
+    }
+
 }
@@ -2,6 +2,10 @@ package org.xine.fx.guice;
 
 import org.xine.fx.guice.fxml.FXMLLoadingModule;
 import org.xine.fx.guice.prefs.PersistentPropertyModule;
+import org.xine.fx.guice.prefs.PersistentPropertyStorage;
+import org.xine.fx.guice.prefs.PersistentPropertyWriter;
+import org.xine.fx.guice.prefs.PreferencesStorage;
+import org.xine.fx.guice.thread.BackgroundThreadModule;
 import org.xine.fx.guice.thread.FxApplicationThreadModule;
 
 import com.google.inject.AbstractModule;
@@ -16,19 +20,57 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.application.Preloader;
 
 /**
  * The Class GuiceApplication.
+ * <p>
+ * By default the injector is created in {@link #init()}, before the JavaFX toolkit calls
+ * {@link #start(javafx.stage.Stage)}. Applications with large object graphs can override
+ * {@link #isAsynchronousStartup()} to create the injector on a background thread instead, while
+ * the toolkit starts up and the primary stage is shown:
+ * </p>
+ * <pre>
+ * public void start(final Stage stage) {
+ *     stage.setScene(new Scene(new ProgressIndicator()));
+ *     stage.show();
+ *     getInjectorFuture().thenAcceptAsync(new Consumer&lt;Injector&gt;() {
+ *         public void accept(final Injector injector) {
+ *             stage.setScene(injector.getInstance(MainScene.class));
+ *         }
+ *     }, Platform::runLater);
+ * }
+ * </pre>
  */
 public abstract class GuiceApplication extends Application {
 
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(GuiceApplication.class.getName());
+
+    /** The number of entries per category that are logged by startup profiling. */
+    private static final int REPORTED_ENTRIES = 20;
+
+    /** The share of the startup progress reported once the injector has been created. */
+    private static final double INJECTOR_PROGRESS = 0.9;
+
     /**
      * The Guice Injector instance that is being used within
      * the context of this application.
      **/
-    private Injector injector;
+    private volatile Injector injector;
+
+    /** Completed with the injector once the application has been injected. */
+    private final CompletableFuture<Injector> injectorFuture = new CompletableFuture<>();
+
+    /** The startup report, {@code null} unless startup profiling is enabled. */
+    private StartupReport startupReport;
 
     /**
      * List of annotations that are not allowed on constructors of {@code GuiceApplication}
@@ -65,6 +107,11 @@ public abstract class GuiceApplication extends Application {
             }
         }
 
+        if (isStartupProfiling()) {
+            this.startupReport = new StartupReport();
+        }
+        final long initStart = System.nanoTime();
+
         final Set<Module> modules = new HashSet<>();
         modules.add(new AbstractModule() {
             @Override
@@ -74,7 +121,9 @@ public abstract class GuiceApplication extends Application {
         });
         modules.add(new FXMLLoadingModule());
         modules.add(new FxApplicationThreadModule());
-        modules.add(new PersistentPropertyModule());
+        modules.add(new BackgroundThreadModule());
+        modules.add(new PersistentPropertyModule(createPersistentPropertyStorage(),
+                PersistentPropertyWriter.DEFAULT_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
 
         // Propagates initialization of additional modules to the specific
         // subclass of this GuiceApplication instance.
@@ -82,12 +131,141 @@ public abstract class GuiceApplication extends Application {
         init(additionalModules);
         modules.addAll(additionalModules);
 
-        // Creates an injector with all of the required modules.
-        this.injector = Guice.createInjector(modules);
+        if (this.startupReport != null) {
+            this.startupReport.record(StartupReport.Category.PHASE, "Module collection",
+                    initStart);
+            final Set<Module> profiledModules = new HashSet<>();
+            for (final Module module : modules) {
+                profiledModules.add(StartupProfilingModule.profile(module, this.startupReport));
+            }
+            profiledModules.add(new StartupProfilingModule(this.startupReport));
+            modules.clear();
+            modules.addAll(profiledModules);
+        }
+
+        if (isAsynchronousStartup()) {
+            final Thread thread = new Thread(new Runnable() {
+                @SuppressWarnings("synthetic-access")
+                @Override
+                public void run() {
+                    try {
+                        createInjector(modules, true);
+                    } catch (final Throwable t) {
+                        LOGGER.log(Level.SEVERE, "Cannot create the injector.", t);
+                        notifyPreloaderLater(new Preloader.ErrorNotification(null,
+                                "Cannot create the injector.", t));
+                        GuiceApplication.this.injectorFuture.completeExceptionally(t);
+                    }
+                }
+            }, "guice-fx-injector");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            try {
+                createInjector(modules, false);
+            } catch (final RuntimeException e) {
+                this.injectorFuture.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+    }
+
+    /**
+     * Creates the injector and injects this application.
+     * @param modules
+     *            the modules
+     * @param asynchronous
+     *            whether the injector is created in the background, reporting the progress to the
+     *            preloader
+     */
+    private void createInjector(final Set<Module> modules, final boolean asynchronous) {
+        if (asynchronous) {
+            notifyPreloaderLater(new Preloader.ProgressNotification(0));
+        }
+
+        // Creates an injector with all of the required modules. Guice instantiates the eager
+        // singletons while doing so, i.e. on the background thread in asynchronous mode.
+        long start = System.nanoTime();
+        final Injector created = Guice.createInjector(modules);
+        recordPhase("Injector creation", start);
+
+        // Reads the nodes of the persistent properties of all bound types in bulk.
+        start = System.nanoTime();
+        created.getInstance(PersistentPropertyWriter.class).preload();
+        recordPhase("Persistent property preload", start);
+
+        if (asynchronous) {
+            notifyPreloaderLater(new Preloader.ProgressNotification(INJECTOR_PROGRESS));
+        }
 
         // Injects all fields annotated with @Inject into this GuiceApplication instance.
-        this.injector.injectMembers(instance);
+        start = System.nanoTime();
+        created.injectMembers(this);
+        recordPhase("Application injection", start);
+
+        this.injector = created;
+        if (asynchronous) {
+            notifyPreloaderLater(new Preloader.ProgressNotification(1));
+        }
+        if (this.startupReport != null) {
+            this.startupReport.close();
+            LOGGER.info(this.startupReport.format(REPORTED_ENTRIES));
+        }
+        this.injectorFuture.complete(created);
+    }
+
+    /**
+     * Records a startup phase, if startup profiling is enabled.
+     * @param phase
+     *            the name of the phase
+     * @param startNanos
+     *            the {@link System#nanoTime()} at which the phase started
+     */
+    private void recordPhase(final String phase, final long startNanos) {
+        if (this.startupReport != null) {
+            this.startupReport.record(StartupReport.Category.PHASE, phase, startNanos);
+        }
+    }
+
+    /**
+     * Sends a notification to the preloader without waiting for it.
+     * <p>
+     * {@link #notifyPreloader(javafx.application.Preloader.PreloaderNotification)} waits for the
+     * JavaFX application thread, which would block the injector thread as long as that thread
+     * waits for the injector. The notification is therefore posted to the JavaFX application
+     * thread, where it is delivered directly.
+     * </p>
+     * @param notification
+     *            the notification
+     */
+    private void notifyPreloaderLater(final Preloader.PreloaderNotification notification) {
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                notifyPreloader(notification);
+            }
+        });
+    }
 
+    /**
+     * Writes all pending values of persistent properties before the application exits.
+     * <p>
+     * Subclasses that override this method must call {@code super.stop()}.
+     * </p>
+     * @throws Exception
+     *             the exception
+     * @see PersistentPropertyWriter#flush()
+     */
+    @Override
+    public void stop() throws Exception {
+        try {
+            if (this.injector != null) {
+                this.injector.getInstance(PersistentPropertyWriter.class).flush();
+            }
+        } finally {
+            super.stop();
+        }
     }
 
     /**
@@ -106,16 +284,97 @@ public abstract class GuiceApplication extends Application {
      */
     public abstract void init(List<Module> modules) throws Exception;
 
+    /**
+     * Determines whether the injector is created on a background thread.
+     * <p>
+     * If this method returns {@code true}, {@link #init()} returns as soon as the modules have been
+     * collected and {@link #start(javafx.stage.Stage)} is called while the injector is being
+     * created. Once the injector has been created, the application itself is injected and
+     * {@link #getInjectorFuture()} is completed. The progress is reported to the {@link Preloader}
+     * of the application, if any.
+     * </p>
+     * <p>
+     * Guice instantiates eager singletons, i.e. singletons bound with {@code asEagerSingleton()} or
+     * all singletons in {@link com.google.inject.Stage#PRODUCTION}, while it creates the injector.
+     * They are thus created on the background thread as well, one after the other, since Guice
+     * serializes the construction of singletons. They must not create windows or otherwise
+     * require the JavaFX application thread.
+     * </p>
+     * <p>
+     * Code running on the JavaFX application thread, such as {@link #start(javafx.stage.Stage)},
+     * must not call {@link #getInjector()} before the injector is ready, but use
+     * {@link #getInjectorFuture()} instead.
+     * </p>
+     * @return {@code false} by default
+     */
+    protected boolean isAsynchronousStartup() {
+        return false;
+    }
+
+    /**
+     * Determines whether the startup of the application is profiled.
+     * <p>
+     * If this method returns {@code true}, the wall time spent on configuring each module, on
+     * provisioning each key and on loading each FXML document with the {@link GuiceFXMLLoader} is
+     * recorded in a {@link StartupReport}. The slowest entries are logged once the application has
+     * been injected; the complete report can be fetched from the injector. Recording stops at that
+     * point, later provisions and FXML loads are not recorded.
+     * </p>
+     * @return {@code false} by default
+     */
+    protected boolean isStartupProfiling() {
+        return false;
+    }
+
+    /**
+     * Creates the storage of the values of {@link PersistentProperty} fields.
+     * <p>
+     * Override this method to use a different storage, e.g. a
+     * {@link org.xine.fx.guice.prefs.MappedFileStorage}.
+     * </p>
+     * @return the storage, {@link PreferencesStorage} by default
+     * @throws Exception
+     *             if the storage cannot be opened
+     */
+    protected PersistentPropertyStorage createPersistentPropertyStorage() throws Exception {
+        return new PreferencesStorage();
+    }
+
     /**
      * Returns the Google Guice Injector that is used within the context
      * of this JavaFX Application.
      * @return
      *         The Guice Injector that has been created during the initialization
      *         of this JavaFX Application.
+     *         If the injector is created asynchronously, this method waits until it is
+     *         ready.
+     * @throws IllegalStateException
+     *             if the injector is created asynchronously and is not ready yet, and this method
+     *             is called on the JavaFX application thread, which must not wait for it
      * @see #init(List)
+     * @see #getInjectorFuture()
+     */
+    public final Injector getInjector() throws IllegalStateException {
+        final Injector result = this.injector;
+        if (result != null) {
+            return result;
+        }
+        if (!this.injectorFuture.isDone() && Platform.isFxApplicationThread()) {
+            throw new IllegalStateException(
+                    "The injector is not ready yet, use getInjectorFuture() on the JavaFX application thread.");
+        }
+        return this.injectorFuture.join();
+    }
+
+    /**
+     * Returns a future that is completed with the Google Guice Injector once it has been created
+     * and this application has been injected.
+     * @return
+     *         The future, which is already completed after {@link #init()} unless
+     *         {@link #isAsynchronousStartup()} returns {@code true}.
      */
-    public final Injector getInjector() {
-        return this.injector;
+    public final CompletableFuture<Injector> getInjectorFuture() {
+        return this.injectorFuture;
     }
 
     /**
@@ -2,18 +2,32 @@ package org.xine.fx.guice;
 
 import org.xine.fx.guice.fxml.FXMLComponentBuilderFactory;
 import org.xine.fx.guice.fxml.FXMLLoadingScope;
+import org.xine.fx.guice.fxml.FXMLTemplateCache;
+import org.xine.fx.guice.fxml.FXMLViewContext;
+import org.xine.fx.guice.fxml.FXMLViewFactory;
+import org.xine.fx.guice.fxml.FXMLViewFactoryRegistry;
 
+import com.google.inject.Binding;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.fxml.FXMLLoader;
+import javafx.fxml.LoadException;
 import javafx.scene.Node;
 import javafx.util.Callback;
 
@@ -30,6 +44,11 @@ import javafx.util.Callback;
 
 public class GuiceFXMLLoader {
 
+    /**
+     * The charset reported for documents that have been compiled at build time.
+     */
+    private static final Charset DEFAULT_CHARSET = Charset.forName(FXMLLoader.DEFAULT_CHARSET_NAME);
+
     /**
      * Guice Injector that will be used to fetch an instance of our `controller
      * class`.
@@ -41,6 +60,22 @@ public class GuiceFXMLLoader {
      */
     private final FXMLLoadingScope fxmlLoadingScope;
 
+    /**
+     * The cache that FXML documents are read from.
+     */
+    private final FXMLTemplateCache templateCache;
+
+    /**
+     * The factories that have been generated for FXML documents at build time.
+     */
+    private final FXMLViewFactoryRegistry viewFactories;
+
+    /**
+     * The report that FXML loads are recorded in, {@code null} unless startup profiling is
+     * enabled.
+     */
+    private final StartupReport startupReport;
+
     /**
      * This constructor is usually never called directly.
      * <p>
@@ -57,9 +92,33 @@ public class GuiceFXMLLoader {
      * @throws IllegalStateException
      *             if the injector has no binding for the {@link FXMLController} loading scope.
      */
-    @Inject
     public GuiceFXMLLoader(final Injector injector, final FXMLLoadingScope fxmlLoadingScope)
             throws IllegalArgumentException, IllegalStateException {
+        this(injector, fxmlLoadingScope, new FXMLTemplateCache());
+    }
+
+    /**
+     * This constructor is usually never called directly.
+     * <p>
+     * Instead use an existing {@link com.google.inject.Injector} instance to fetch an instance of
+     * this class.
+     * </p>
+     * @param injector
+     *            Usually injected via Guice.
+     * @param fxmlLoadingScope
+     *            Usually injected via Guice.
+     * @param templateCache
+     *            Usually injected via Guice.
+     * @throws IllegalArgumentException
+     *             if you try to pass a {@code null} value as
+     *             injector instance.
+     * @throws IllegalStateException
+     *             if the injector has no binding for the {@link FXMLController} loading scope.
+     */
+    @Inject
+    public GuiceFXMLLoader(final Injector injector, final FXMLLoadingScope fxmlLoadingScope,
+            final FXMLTemplateCache templateCache) throws IllegalArgumentException,
+            IllegalStateException {
         super();
         if (injector == null) {
             throw new IllegalArgumentException("The Injector instance must not be null.");
@@ -70,6 +129,11 @@ public class GuiceFXMLLoader {
         }
         this.injector = injector;
         this.fxmlLoadingScope = fxmlLoadingScope;
+        this.templateCache = templateCache;
+        this.viewFactories = injector.getInstance(FXMLViewFactoryRegistry.class);
+        final Binding<StartupReport> reportBinding = injector.getExistingBinding(Key
+                .get(StartupReport.class));
+        this.startupReport = reportBinding == null ? null : reportBinding.getProvider().get();
     }
 
     /**
@@ -87,10 +151,39 @@ public class GuiceFXMLLoader {
      *             Signals that an I/O exception has occurred.
      * @see javafx.fxml.FXMLLoader#load(URL, ResourceBundle)
      */
-    @SuppressWarnings("synthetic-access")
     public Result load(final URL url, final ResourceBundle resources) throws IOException {
 
+        final StartupReport report = this.startupReport == null
+                || this.startupReport.isClosed() ? null : this.startupReport;
+        final long outer = report == null ? 0 : report.enter(StartupReport.Category.FXML);
+        final long start = System.nanoTime();
         this.fxmlLoadingScope.enter(this);
+        try {
+            // Prefer a factory that has been generated at build time over parsing the document.
+            final FXMLViewFactory viewFactory = this.viewFactories.getFactory(url);
+            return viewFactory == null ? loadDocument(url, resources) : loadCompiled(viewFactory,
+                    url, resources);
+        } finally {
+            this.fxmlLoadingScope.exit();
+            if (report != null) {
+                report.exit(StartupReport.Category.FXML, String.valueOf(url), start, outer);
+            }
+        }
+
+    }
+
+    /**
+     * Loads an object hierarchy by parsing the FXML document with the JavaFX FXMLLoader.
+     * @param url
+     *            URL of the FXML resource to be loaded.
+     * @param resources
+     *            Resources to be used to localize strings.
+     * @return The loaded object hierarchy encapsulated in a special result object.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @SuppressWarnings("synthetic-access")
+    private Result loadDocument(final URL url, final ResourceBundle resources) throws IOException {
 
         final FXMLLoader loader = new FXMLLoader();
         loader.setLocation(url);
@@ -107,7 +200,10 @@ public class GuiceFXMLLoader {
             }
         });
 
-        final Node root = (Node) loader.load(url.openStream());
+        final Node root;
+        try (InputStream in = this.templateCache.openStream(url)) {
+            root = (Node) loader.load(in);
+        }
 
         // Prepares the result that is being returned after loading the FXML hierarchy.
         final Result result = new Result();
@@ -116,13 +212,60 @@ public class GuiceFXMLLoader {
         result.controller.set(loader.getController());
         result.root.set(root);
         result.charset.set(loader.getCharset());
+        result.nodes = indexNodes(loader.getNamespace());
+        return result;
 
-        this.fxmlLoadingScope.exit();
+    }
 
+    /**
+     * Loads an object hierarchy using a factory that has been generated at build time.
+     * @param viewFactory
+     *            The factory generated for the FXML resource.
+     * @param url
+     *            URL of the FXML resource to be loaded.
+     * @param resources
+     *            Resources to be used to localize strings.
+     * @return The loaded object hierarchy encapsulated in a special result object.
+     * @throws LoadException
+     *             if the controller cannot be initialized
+     */
+    @SuppressWarnings("synthetic-access")
+    private Result loadCompiled(final FXMLViewFactory viewFactory, final URL url,
+            final ResourceBundle resources) throws LoadException {
+
+        final FXMLViewContext context = new FXMLViewContext(this.injector, url, resources);
+        final Node root = (Node) viewFactory.create(context);
+        context.initializeController();
+
+        // Prepares the result that is being returned after loading the FXML hierarchy.
+        final Result result = new Result();
+        result.location.set(url);
+        result.resources.set(resources);
+        result.controller.set(context.getController());
+        result.root.set(root);
+        result.charset.set(DEFAULT_CHARSET);
+        result.nodes = indexNodes(context.getNamespace());
         return result;
 
     }
 
+    /**
+     * Captures all nodes with an fx:id from the namespace of a loading operation.
+     * @param namespace
+     *            the namespace
+     * @return an immutable map from fx:id to node
+     */
+    private static Map<String, Node> indexNodes(final Map<String, Object> namespace) {
+        final Map<String, Node> nodes = new HashMap<>();
+        for (final Map.Entry<String, Object> entry : namespace.entrySet()) {
+            if (entry.getValue() instanceof Node) {
+                nodes.put(entry.getKey(), (Node) entry.getValue());
+            }
+        }
+        return nodes.isEmpty() ? Collections.<String, Node> emptyMap() : Collections
+                .unmodifiableMap(nodes);
+    }
+
     /**
      * Loads an object hierarchy from a FXML document.
      * <p>
@@ -141,6 +284,50 @@ public class GuiceFXMLLoader {
         return load(url, null);
     }
 
+    /**
+     * Loads an object hierarchy from a FXML document on the given executor.
+     * <p>
+     * Parsing the document, building the nodes and fetching the controllers from the Guice
+     * injector all happen on a thread of the given executor. As long as the resulting tree is not
+     * attached to a scene, this is perfectly legal in JavaFX. The returned future completes once
+     * the loaded hierarchy is ready to be attached, which must then happen on the JavaFX application
+     * thread, e.g.:
+     * </p>
+     * <pre>
+     * loader.loadAsync(url, resources, executor).thenAcceptAsync(
+     *         result -&gt; pane.getChildren().add(result.getRoot()), Platform::runLater);
+     * </pre>
+     * @param url
+     *            URL of the FXML resource to be loaded.
+     * @param resources
+     *            Resources to be used to localize strings.
+     * @param executor
+     *            The executor that performs the loading.
+     * @return A future that completes with the loaded object hierarchy, or exceptionally if the
+     *         document could not be loaded or the executor rejected the task.
+     * @see #load(URL, ResourceBundle)
+     */
+    public CompletableFuture<Result> loadAsync(final URL url, final ResourceBundle resources,
+            final Executor executor) {
+        final CompletableFuture<Result> future = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @SuppressWarnings("synthetic-access")
+                @Override
+                public void run() {
+                    try {
+                        future.complete(GuiceFXMLLoader.this.load(url, resources));
+                    } catch (final Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * A simple wrapper around the result of a FXML loading operation.
      * @author Benjamin P. Jung
@@ -162,6 +349,9 @@ public class GuiceFXMLLoader {
         /** The charset. */
         private final ReadOnlyObjectWrapper<Charset> charset = new ReadOnlyObjectWrapper<>();
 
+        /** The nodes by fx:id. */
+        private Map<String, Node> nodes = Collections.emptyMap();
+
         /**
          * Location property.
          * @return the read only object property
@@ -249,6 +439,30 @@ public class GuiceFXMLLoader {
             return this.charset.get();
         }
 
+        /**
+         * Gets all nodes of the loaded hierarchy that have an fx:id.
+         * @return an immutable map from fx:id to node
+         */
+        public Map<String, Node> getNodes() {
+            return this.nodes;
+        }
+
+        /**
+         * Gets the node with the given fx:id.
+         * <p>
+         * Unlike {@link Node#lookup(String)}, this does not traverse the scene graph.
+         * </p>
+         * @param <N>
+         *            the node type
+         * @param fxId
+         *            the fx:id of the node
+         * @return the node or {@code null} if the hierarchy has no node with the given fx:id
+         */
+        @SuppressWarnings("unchecked")
+        public <N extends Node> N getNode(final String fxId) {
+            return (N) this.nodes.get(fxId);
+        }
+
     }
 
 }
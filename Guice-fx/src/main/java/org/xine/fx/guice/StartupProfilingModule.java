@@ -0,0 +1,134 @@
+package org.xine.fx.guice;
+
+import org.xine.fx.guice.StartupReport.Category;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Binder;
+import com.google.inject.Module;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.spi.ProvisionListener;
+
+/**
+ * Binds the {@link StartupReport} of a {@link GuiceApplication} and records the provision of
+ * every key in it until the report is closed.
+ */
+final class StartupProfilingModule extends AbstractModule {
+
+    /** The report. */
+    private final StartupReport report;
+
+    /**
+     * Instantiates a new startup profiling module.
+     * @param report
+     *            the report
+     */
+    StartupProfilingModule(final StartupReport report) {
+        super();
+        this.report = report;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.AbstractModule#configure()
+     */
+    @Override
+    protected void configure() {
+        bind(StartupReport.class).toInstance(this.report);
+        bindListener(Matchers.any(), new ProvisionListener() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public <T> void onProvision(final ProvisionInvocation<T> provision) {
+                final StartupReport profile = StartupProfilingModule.this.report;
+                if (profile.isClosed()) {
+                    provision.provision();
+                    return;
+                }
+                final long outer = profile.enter(Category.PROVISION);
+                final long start = System.nanoTime();
+                try {
+                    provision.provision();
+                } finally {
+                    profile.exit(Category.PROVISION, provision.getBinding().getKey().toString(),
+                            start, outer);
+                }
+            }
+        });
+    }
+
+    /**
+     * Wraps a module so that the time it takes to configure is recorded.
+     * @param module
+     *            the module
+     * @param report
+     *            the report
+     * @return the wrapping module, which is equal to another one if the wrapped modules are equal
+     */
+    static Module profile(final Module module, final StartupReport report) {
+        return new ProfiledModule(module, report);
+    }
+
+    /**
+     * A module that records the time it takes to configure the module it wraps.
+     * <p>
+     * Equality is delegated to the wrapped module, so that Guice still skips modules that are
+     * installed more than once.
+     * </p>
+     */
+    private static final class ProfiledModule implements Module {
+
+        /** The wrapped module. */
+        private final Module module;
+
+        /** The report. */
+        private final StartupReport report;
+
+        /**
+         * Instantiates a new profiled module.
+         * @param module
+         *            the wrapped module
+         * @param report
+         *            the report
+         */
+        ProfiledModule(final Module module, final StartupReport report) {
+            super();
+            this.module = module;
+            this.report = report;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see com.google.inject.Module#configure(com.google.inject.Binder)
+         */
+        @Override
+        public void configure(final Binder binder) {
+            final long outer = this.report.enter(Category.MODULE);
+            final long start = System.nanoTime();
+            try {
+                binder.install(this.module);
+            } finally {
+                this.report.exit(Category.MODULE, this.module.getClass().getName(), start, outer);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof ProfiledModule
+                    && this.module.equals(((ProfiledModule) obj).module);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return this.module.hashCode();
+        }
+
+    }
+
+}
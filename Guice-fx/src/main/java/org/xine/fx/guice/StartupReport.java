@@ -0,0 +1,391 @@
+package org.xine.fx.guice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wall times spent while a {@link GuiceApplication} starts up.
+ * <p>
+ * A report is recorded if {@link GuiceApplication#isStartupProfiling()} returns {@code true}. It
+ * is bound in the injector of the application and closed and logged once the application has been
+ * injected. Provisions and FXML loads after startup are not recorded:
+ * </p>
+ * <pre>
+ * final StartupReport report = getInjector().getInstance(StartupReport.class);
+ * for (final StartupReport.Entry entry : report.getEntries(StartupReport.Category.PROVISION)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class StartupReport {
+
+    /**
+     * The kinds of recorded work.
+     */
+    public static enum Category {
+
+        /** Startup phases, such as the creation of the injector. */
+        PHASE,
+
+        /** The configuration of a module passed to {@link GuiceApplication#init(List)}. */
+        MODULE,
+
+        /** The provision of a key, by the injector. */
+        PROVISION,
+
+        /** The loading of a FXML document, by URL. */
+        FXML
+
+    }
+
+    /** The comparator that sorts entries by descending total time. */
+    private static final Comparator<Entry> SLOWEST_FIRST = new Comparator<Entry>() {
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            return Long.compare(entry2.totalNanos, entry1.totalNanos);
+        }
+    };
+
+    /** The recorded timings, by category and name. */
+    private final Map<Category, ConcurrentMap<String, Timing>> timings = new EnumMap<>(
+            Category.class);
+
+    /** The wall time of the nested work done by the current thread, by category. */
+    private final ThreadLocal<long[]> nested = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[Category.values().length];
+        }
+    };
+
+    /** Whether startup is over and nothing is recorded anymore. */
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new startup report.
+     */
+    StartupReport() {
+        super();
+        for (final Category category : Category.values()) {
+            this.timings.put(category, new ConcurrentHashMap<String, Timing>());
+        }
+    }
+
+    /**
+     * Stops recording, once startup is over.
+     */
+    void close() {
+        this.closed = true;
+    }
+
+    /**
+     * Checks whether startup is over and nothing is recorded anymore.
+     * @return {@code true} if closed
+     */
+    boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Starts a piece of work on the current thread.
+     * @param category
+     *            the category
+     * @return the state of the enclosing work, to be passed to
+     *         {@link #exit(Category, String, long, long)}
+     */
+    long enter(final Category category) {
+        final long[] times = this.nested.get();
+        final long outer = times[category.ordinal()];
+        times[category.ordinal()] = 0;
+        return outer;
+    }
+
+    /**
+     * Finishes and records a piece of work on the current thread.
+     * @param category
+     *            the category
+     * @param name
+     *            the name of the work, e.g. the class of a module
+     * @param startNanos
+     *            the {@link System#nanoTime()} at which the work started
+     * @param outer
+     *            the value returned by {@link #enter(Category)}
+     */
+    void exit(final Category category, final String name, final long startNanos,
+            final long outer) {
+        final long total = System.nanoTime() - startNanos;
+        final long[] times = this.nested.get();
+        final long self = total - times[category.ordinal()];
+        times[category.ordinal()] = outer + total;
+        record(category, name, total, self);
+    }
+
+    /**
+     * Records a piece of work that is not nested.
+     * @param category
+     *            the category
+     * @param name
+     *            the name of the work
+     * @param startNanos
+     *            the {@link System#nanoTime()} at which the work started
+     */
+    void record(final Category category, final String name, final long startNanos) {
+        final long total = System.nanoTime() - startNanos;
+        record(category, name, total, total);
+    }
+
+    /**
+     * Records a piece of work.
+     * @param category
+     *            the category
+     * @param name
+     *            the name of the work
+     * @param totalNanos
+     *            the wall time, in nanoseconds
+     * @param selfNanos
+     *            the wall time not spent on nested work of the same category, in nanoseconds
+     */
+    private void record(final Category category, final String name, final long totalNanos,
+            final long selfNanos) {
+        if (this.closed) {
+            return;
+        }
+        final ConcurrentMap<String, Timing> byName = this.timings.get(category);
+        Timing timing = byName.get(name);
+        if (timing == null) {
+            final Timing newTiming = new Timing();
+            timing = byName.putIfAbsent(name, newTiming);
+            if (timing == null) {
+                timing = newTiming;
+            }
+        }
+        timing.add(totalNanos, selfNanos);
+    }
+
+    /**
+     * Gets the recorded entries of a category.
+     * @param category
+     *            the category
+     * @return a snapshot of the entries, slowest first
+     */
+    public List<Entry> getEntries(final Category category) {
+        final List<Entry> entries = new ArrayList<>();
+        for (final Map.Entry<String, Timing> timing : this.timings.get(category).entrySet()) {
+            entries.add(timing.getValue().toEntry(category, timing.getKey()));
+        }
+        Collections.sort(entries, SLOWEST_FIRST);
+        return entries;
+    }
+
+    /**
+     * Formats the slowest entries of each category.
+     * @param limit
+     *            the maximum number of entries per category
+     * @return the formatted report
+     */
+    public String format(final int limit) {
+        final StringBuilder builder = new StringBuilder("Startup report");
+        for (final Category category : Category.values()) {
+            final List<Entry> entries = getEntries(category);
+            if (entries.isEmpty()) {
+                continue;
+            }
+            builder.append(String.format("%n  %s (%d)", category, entries.size()));
+            for (final Entry entry : entries.subList(0, Math.min(limit, entries.size()))) {
+                builder.append(String.format(Locale.ROOT,
+                        "%n    %10.3f ms  self %10.3f ms  max %10.3f ms  %5dx  %s",
+                        toMillis(entry.totalNanos), toMillis(entry.selfNanos),
+                        toMillis(entry.maxNanos), entry.count, entry.name));
+            }
+        }
+        return builder.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return format(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Converts nanoseconds to fractional milliseconds.
+     * @param nanos
+     *            the nanoseconds
+     * @return the milliseconds
+     */
+    private static double toMillis(final long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * The recorded wall times of a single piece of work.
+     */
+    public static final class Entry {
+
+        /** The category. */
+        private final Category category;
+
+        /** The name. */
+        private final String name;
+
+        /** The number of times the work has been done. */
+        private final long count;
+
+        /** The total wall time. */
+        private final long totalNanos;
+
+        /** The total wall time without nested work. */
+        private final long selfNanos;
+
+        /** The longest wall time. */
+        private final long maxNanos;
+
+        /**
+         * Instantiates a new entry.
+         * @param category
+         *            the category
+         * @param name
+         *            the name
+         * @param count
+         *            the number of times the work has been done
+         * @param totalNanos
+         *            the total wall time
+         * @param selfNanos
+         *            the total wall time without nested work
+         * @param maxNanos
+         *            the longest wall time
+         */
+        Entry(final Category category, final String name, final long count,
+                final long totalNanos, final long selfNanos, final long maxNanos) {
+            super();
+            this.category = category;
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.selfNanos = selfNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Gets the category.
+         * @return the category
+         */
+        public Category getCategory() {
+            return this.category;
+        }
+
+        /**
+         * Gets the name, i.e. the phase, the module class, the key or the URL.
+         * @return the name
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Gets the number of times the work has been done.
+         * @return the count
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Gets the total wall time, including nested work.
+         * @param unit
+         *            the unit of the returned value
+         * @return the total time
+         */
+        public long getTotalTime(final TimeUnit unit) {
+            return unit.convert(this.totalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets the total wall time without nested work of the same category, e.g. without the
+         * provision of dependencies.
+         * @param unit
+         *            the unit of the returned value
+         * @return the self time
+         */
+        public long getSelfTime(final TimeUnit unit) {
+            return unit.convert(this.selfNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets the longest wall time of a single run.
+         * @param unit
+         *            the unit of the returned value
+         * @return the maximum time
+         */
+        public long getMaxTime(final TimeUnit unit) {
+            return unit.convert(this.maxNanos, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    /**
+     * The accumulated wall times of a single piece of work.
+     */
+    private static final class Timing {
+
+        /** The number of times the work has been done. */
+        private long count;
+
+        /** The total wall time. */
+        private long totalNanos;
+
+        /** The total wall time without nested work. */
+        private long selfNanos;
+
+        /** The longest wall time. */
+        private long maxNanos;
+
+        /**
+         * Instantiates a new timing.
+         */
+        Timing() {
+            super();
+        }
+
+        /**
+         * Adds a run.
+         * @param total
+         *            the wall time
+         * @param self
+         *            the wall time without nested work
+         */
+        synchronized void add(final long total, final long self) {
+            this.count++;
+            this.totalNanos += total;
+            this.selfNanos += self;
+            this.maxNanos = Math.max(this.maxNanos, total);
+        }
+
+        /**
+         * Creates a snapshot.
+         * @param category
+         *            the category
+         * @param name
+         *            the name
+         * @return the entry
+         */
+        synchronized Entry toEntry(final Category category, final String name) {
+            return new Entry(category, name, this.count, this.totalNanos, this.selfNanos,
+                    this.maxNanos);
+        }
+
+    }
+
+}
@@ -8,21 +8,54 @@ import java.util.Collection;
  * <p>
  * {@link ControllerLookup} must only be injected into controllers that are created while an FXML
  * control is being created.
+ * </p>
+ * <p>
+ * Controllers are looked up by their ID in constant time. Hierarchical IDs such as
+ * {@code toolbar.search} can either be looked up as a whole or relative to a
+ * {@link #namespace(String) namespace}.
+ * </p>
  * @author jcosta
  */
 public class ControllerLookup {
 
-    /** The identifiables. */
-    private final Collection<IdentifiableController> identifiables;
+    /** The registry. */
+    private final ControllerRegistry registry;
+
+    /** The prefix of the namespace of this lookup, empty for the root namespace. */
+    private final String prefix;
 
     /**
      * Instantiates a new controller lookup.
      * @param identifiables
      *            the identifiables
+     * @throws IllegalStateException
+     *             if two of the given controllers have the same ID.
+     */
+    public ControllerLookup(final Collection<IdentifiableController> identifiables)
+            throws IllegalStateException {
+        this(toRegistry(identifiables));
+    }
+
+    /**
+     * Instantiates a new controller lookup.
+     * @param registry
+     *            the registry the controllers are looked up from
+     */
+    public ControllerLookup(final ControllerRegistry registry) {
+        this(registry, "");
+    }
+
+    /**
+     * Instantiates a new controller lookup.
+     * @param registry
+     *            the registry the controllers are looked up from
+     * @param prefix
+     *            the prefix of the namespace
      */
-    public ControllerLookup(final Collection<IdentifiableController> identifiables) {
+    private ControllerLookup(final ControllerRegistry registry, final String prefix) {
         super();
-        this.identifiables = identifiables;
+        this.registry = registry;
+        this.prefix = prefix;
     }
 
     /**
@@ -31,18 +64,48 @@ public class ControllerLookup {
      *            the generic type
      * @param id
      *            The string ID of the controller as returned by
-     *            {@link IdentifiableController#getId()}
+     *            {@link IdentifiableController#getId()}, relative to the namespace of this lookup.
      * @return The controller with the given ID that has just been
      *         looked up.
      */
     @SuppressWarnings("unchecked")
     public <T> T lookup(final String id) {
-        for (final IdentifiableController controller : this.identifiables) {
-            if (controller.getId().equals(id)) {
-                return (T) controller;
-            }
+        final IdentifiableController controller = this.registry.get(this.prefix.isEmpty() ? id
+                : this.prefix + id);
+        if (controller == null) {
+            throw new IllegalArgumentException("Could not find a controller with the ID '"
+                    + this.prefix + id + "'");
+        }
+        return (T) controller;
+    }
+
+    /**
+     * Returns a lookup of the controllers within the given namespace.
+     * <p>
+     * {@code lookup.namespace("toolbar").lookup("search")} returns the same controller as
+     * {@code lookup.lookup("toolbar.search")}.
+     * </p>
+     * @param namespace
+     *            The namespace, relative to the namespace of this lookup.
+     * @return A lookup within the namespace.
+     */
+    public ControllerLookup namespace(final String namespace) {
+        return new ControllerLookup(this.registry, this.prefix + namespace + ".");
+    }
+
+    /**
+     * Creates a registry holding the given controllers.
+     * @param identifiables
+     *            the identifiables
+     * @return the registry
+     */
+    private static ControllerRegistry toRegistry(
+            final Collection<IdentifiableController> identifiables) {
+        final ControllerRegistry registry = new ControllerRegistry();
+        for (final IdentifiableController controller : identifiables) {
+            registry.register(controller);
         }
-        throw new IllegalArgumentException("Could not find a controller with the ID '" + id + "'");
+        return registry;
     }
 
 }
@@ -0,0 +1,181 @@
+package org.xine.fx.guice.controllerlookup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hash-indexed store of the {@link IdentifiableController}s created while an FXML control is
+ * being created.
+ * <p>
+ * Controllers are indexed by their ID as they are registered, so that looking a controller up
+ * takes constant time. IDs may be hierarchical, using dots to separate their segments (e.g.
+ * {@code toolbar.search}); see {@link ControllerLookup#namespace(String)}. Registering two
+ * different controllers with the same ID fails immediately, whereas the controllers of another
+ * registry that are {@link #registerAll(ControllerRegistry) merged} replace those with the same ID.
+ * </p>
+ * <p>
+ * Controllers whose ID is not yet available when they are registered (e.g. because it is derived
+ * from a node that has not been injected yet) are indexed the next time a lookup misses.
+ * </p>
+ * <p>
+ * Instances of this class are not thread-safe; they are confined to a single loading operation.
+ * </p>
+ * @see ControllerLookup
+ */
+public final class ControllerRegistry {
+
+    /** The controllers by ID. */
+    private final Map<String, IdentifiableController> index = new HashMap<>();
+
+    /** The controllers whose ID has not been available yet. */
+    private final List<IdentifiableController> pending = new ArrayList<>();
+
+    /** All registered controllers, in order of registration. */
+    private final Set<IdentifiableController> controllers = new LinkedHashSet<>();
+
+    /**
+     * Instantiates a new, empty controller registry.
+     */
+    public ControllerRegistry() {
+        super();
+    }
+
+    /**
+     * Registers a controller.
+     * @param controller
+     *            the controller
+     * @throws IllegalStateException
+     *             if a different controller with the same ID has already been registered.
+     * @throws IllegalArgumentException
+     *             if the ID of the controller is no valid hierarchical ID.
+     */
+    public void register(final IdentifiableController controller) throws IllegalStateException,
+            IllegalArgumentException {
+        if (!this.controllers.add(controller)) {
+            return;
+        }
+        final String id = getId(controller);
+        if (id == null) {
+            this.pending.add(controller);
+        } else if (!id.isEmpty()) {
+            index(id, controller);
+        }
+    }
+
+    /**
+     * Registers all controllers of another registry, e.g. of a nested loading operation.
+     * <p>
+     * Unlike {@link #register(IdentifiableController)}, this method never fails: a controller of
+     * the other registry replaces a different controller of this registry with the same ID, so that
+     * the same document may be loaded several times within an enclosing one. Controllers with
+     * invalid IDs have already been rejected by the other registry and are not indexed.
+     * </p>
+     * @param other
+     *            the other registry
+     */
+    public void registerAll(final ControllerRegistry other) {
+        for (final IdentifiableController controller : other.controllers) {
+            if (!this.controllers.add(controller)) {
+                continue;
+            }
+            final String id = getId(controller);
+            if (id == null) {
+                this.pending.add(controller);
+            } else if (isValid(id)) {
+                this.index.put(id, controller);
+            }
+        }
+    }
+
+    /**
+     * Gets the controller with the given ID.
+     * @param id
+     *            The (possibly hierarchical) ID of the controller.
+     * @return the controller or {@code null} if no controller has been registered with the ID.
+     */
+    public IdentifiableController get(final String id) {
+        IdentifiableController controller = this.index.get(id);
+        if (controller == null && !this.pending.isEmpty()) {
+            indexPending();
+            controller = this.index.get(id);
+        }
+        return controller;
+    }
+
+    /**
+     * Gets all registered controllers.
+     * @return an unmodifiable view of the controllers, in order of registration.
+     */
+    public Collection<IdentifiableController> getControllers() {
+        return Collections.unmodifiableSet(this.controllers);
+    }
+
+    /**
+     * Indexes all controllers whose ID has become available.
+     */
+    private void indexPending() {
+        for (final Iterator<IdentifiableController> it = this.pending.iterator(); it.hasNext();) {
+            final IdentifiableController controller = it.next();
+            final String id = getId(controller);
+            if (id != null) {
+                it.remove();
+                if (!id.isEmpty()) {
+                    index(id, controller);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes a controller.
+     * @param id
+     *            the ID of the controller
+     * @param controller
+     *            the controller
+     */
+    private void index(final String id, final IdentifiableController controller) {
+        if (!isValid(id)) {
+            throw new IllegalArgumentException(String.format("Invalid controller ID '%s'.", id));
+        }
+        final IdentifiableController existing = this.index.put(id, controller);
+        if (existing != null && existing != controller) {
+            this.index.put(id, existing);
+            throw new IllegalStateException(String.format(
+                    "Duplicate controller ID '%s': %s and %s.", id, existing.getClass().getName(),
+                    controller.getClass().getName()));
+        }
+    }
+
+    /**
+     * Checks whether an ID is a valid hierarchical ID.
+     * @param id
+     *            the non-empty ID
+     * @return {@code true} if no segment of the ID is empty
+     */
+    private static boolean isValid(final String id) {
+        return !id.startsWith(".") && !id.endsWith(".") && !id.contains("..");
+    }
+
+    /**
+     * Gets the ID of a controller, if already available.
+     * @param controller
+     *            the controller
+     * @return the ID or {@code null}
+     */
+    private static String getId(final IdentifiableController controller) {
+        try {
+            return controller.getId();
+        } catch (final RuntimeException e) {
+            // The ID is derived from state that has not been initialized yet.
+            return null;
+        }
+    }
+
+}
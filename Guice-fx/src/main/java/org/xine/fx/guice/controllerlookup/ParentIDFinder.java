@@ -5,6 +5,7 @@ import javafx.scene.Parent;
 
 /**
  * The Class ParentIDFinder.
+ * @see ParentIDResolver
  */
 public final class ParentIDFinder {
 
@@ -25,15 +26,12 @@ public final class ParentIDFinder {
      *         ID set then {@code null} is returned.
      */
     public static String getParentId(final Node node) {
-        final String parentId;
-        if (node == null) {
-            parentId = null;
-        } else if (node.getId() != null) {
-            parentId = node.getId();
-        } else {
-            parentId = getParentId(node.getParent());
+        for (Node current = node; current != null; current = current.getParent()) {
+            if (current.getId() != null) {
+                return current.getId();
+            }
         }
-        return parentId;
+        return null;
     }
 
 }
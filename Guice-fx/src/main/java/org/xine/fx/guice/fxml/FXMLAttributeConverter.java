@@ -0,0 +1,121 @@
+package org.xine.fx.guice.fxml;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javafx.util.StringConverter;
+
+/**
+ * Converts attribute values of {@link org.xine.fx.guice.FXMLComponent} elements into values of a
+ * given type.
+ * <p>
+ * Converters are shared by all components and must therefore be thread-safe. Additional converters
+ * can be contributed through Guice:
+ * </p>
+ * <pre>
+ * FXMLLoadingModule.converterBinder(binder()).addBinding().toInstance(
+ *         FXMLAttributeConverter.of(Money.class, new MoneyStringConverter(), true));
+ * </pre>
+ * <p>
+ * Converters of immutable value types can be marked as cacheable. Their converted values are then
+ * reused for attribute strings that repeat across many components.
+ * </p>
+ * @param <T>
+ *            the type of the converted values
+ * @see FXMLConverterRegistry
+ */
+public abstract class FXMLAttributeConverter<T> {
+
+    /** The maximum number of cached values per converter. */
+    private static final int MAXIMUM_CACHE_SIZE = 256;
+
+    /** The type of the converted values. */
+    private final Class<T> type;
+
+    /** The cached values, {@code null} if the converter is not cacheable. */
+    private final ConcurrentMap<String, T> cache;
+
+    /**
+     * Instantiates a new FXML attribute converter.
+     * @param type
+     *            the type of the converted values
+     * @param cacheable
+     *            whether converted values may be shared between components, which is only safe
+     *            for immutable types.
+     */
+    protected FXMLAttributeConverter(final Class<T> type, final boolean cacheable) {
+        super();
+        this.type = type;
+        this.cache = cacheable ? new ConcurrentHashMap<String, T>() : null;
+    }
+
+    /**
+     * Creates a converter that delegates to a JavaFX {@link StringConverter}.
+     * @param <T>
+     *            the type of the converted values
+     * @param type
+     *            the type of the converted values
+     * @param converter
+     *            a thread-safe string converter
+     * @param cacheable
+     *            whether converted values may be shared between components
+     * @return the converter
+     */
+    public static <T> FXMLAttributeConverter<T> of(final Class<T> type,
+            final StringConverter<T> converter, final boolean cacheable) {
+        return new FXMLAttributeConverter<T>(type, cacheable) {
+            @Override
+            protected T fromString(final String value) {
+                return converter.fromString(value);
+            }
+        };
+    }
+
+    /**
+     * Gets the type of the converted values.
+     * @return the type
+     */
+    public final Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * Checks whether converted values are cached.
+     * @return {@code true} if cacheable
+     */
+    public final boolean isCacheable() {
+        return this.cache != null;
+    }
+
+    /**
+     * Converts the given attribute value, serving it from the cache if possible.
+     * @param value
+     *            the attribute value
+     * @return the converted value
+     */
+    public final T convert(final String value) {
+        if (this.cache == null) {
+            return fromString(value);
+        }
+        T converted = this.cache.get(value);
+        if (converted == null) {
+            converted = fromString(value);
+            if (converted != null) {
+                if (this.cache.size() >= MAXIMUM_CACHE_SIZE) {
+                    this.cache.clear();
+                }
+                this.cache.putIfAbsent(value, converted);
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Converts the given attribute value.
+     * @param value
+     *            the attribute value
+     * @return the converted value
+     */
+    protected abstract T fromString(String value);
+
+}
@@ -4,6 +4,7 @@ import org.xine.fx.guice.FXMLComponent;
 
 import com.google.inject.Injector;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javafx.fxml.JavaFXBuilderFactory;
@@ -23,6 +24,19 @@ public final class FXMLComponentBuilderFactory implements BuilderFactory {
     @Inject
     private Injector injector;
 
+    /** The converters for component properties. */
+    @Inject
+    private FXMLConverterRegistry converters;
+
+    /** The builder decisions, computed once per class. */
+    private final ClassValue<BuilderDecision> decisions = new ClassValue<BuilderDecision>() {
+        @SuppressWarnings("synthetic-access")
+        @Override
+        protected BuilderDecision computeValue(final Class<?> type) {
+            return decide(type);
+        }
+    };
+
     /** The Constant LOGGER. */
     private static final Logger LOGGER = Logger.getLogger(FXMLComponentBuilderFactory.class
             .getName());
@@ -37,14 +51,96 @@ public final class FXMLComponentBuilderFactory implements BuilderFactory {
     @SuppressWarnings({"rawtypes", "unchecked" })
     @Override
     public Builder<?> getBuilder(final Class<?> componentClass) {
-        final String className = componentClass.getName();
-        LOGGER.fine(String.format("Searching builder for component class '%s'.", className));
+        final BuilderDecision decision = this.decisions.get(componentClass);
+        switch (decision.strategy) {
+        case COMPONENT:
+            return new FXMLComponentBuilder(this.injector, componentClass, decision.plan);
+        case DEFAULT:
+            return getDefaultBuilder(componentClass);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Decides which builder strategy applies to the given class.
+     * @param componentClass
+     *            the component class
+     * @return the decision
+     */
+    private BuilderDecision decide(final Class<?> componentClass) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Searching builder for component class '%s'.",
+                    componentClass.getName()));
+        }
         if (componentClass.isAnnotationPresent(FXMLComponent.class)) {
-            LOGGER.fine(String.format("Creating FXMLComponentBuilder for class '%s'.", className));
-            return new FXMLComponentBuilder(this.injector, componentClass);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format("Creating FXMLComponentBuilder for class '%s'.",
+                        componentClass.getName()));
+            }
+            return new BuilderDecision(BuilderStrategy.COMPONENT, new FXMLComponentPlan(
+                    componentClass, this.converters));
         }
         // Fall back to the default builder factory if we are not dealing with a FXMLComponent class.
-        return this.defaultBuilderFactory.getBuilder(componentClass);
+        // Classes the default builder factory has no builder for are instantiated by the
+        // FXMLLoader itself, which never changes for a given class.
+        return new BuilderDecision(getDefaultBuilder(componentClass) == null ? BuilderStrategy.NONE
+                : BuilderStrategy.DEFAULT, null);
+    }
+
+    /**
+     * Gets a builder from the default builder factory.
+     * @param componentClass
+     *            the component class
+     * @return the builder or {@code null}
+     */
+    private Builder<?> getDefaultBuilder(final Class<?> componentClass) {
+        // The JavaFX builder factory is not thread-safe.
+        synchronized (this.defaultBuilderFactory) {
+            return this.defaultBuilderFactory.getBuilder(componentClass);
+        }
+    }
+
+    /**
+     * The strategies to create the builder of a class.
+     */
+    private enum BuilderStrategy {
+
+        /** The class is a {@link FXMLComponent}, built by a {@link FXMLComponentBuilder}. */
+        COMPONENT,
+
+        /** The class is built by the default JavaFX builder factory. */
+        DEFAULT,
+
+        /** The class needs no builder. */
+        NONE;
+
+    }
+
+    /**
+     * The builder strategy of a class.
+     */
+    private static final class BuilderDecision {
+
+        /** The strategy. */
+        private final BuilderStrategy strategy;
+
+        /** The plan to set the properties of a {@link FXMLComponent}, {@code null} otherwise. */
+        private final FXMLComponentPlan plan;
+
+        /**
+         * Instantiates a new builder decision.
+         * @param strategy
+         *            the strategy
+         * @param plan
+         *            the plan
+         */
+        private BuilderDecision(final BuilderStrategy strategy, final FXMLComponentPlan plan) {
+            super();
+            this.strategy = strategy;
+            this.plan = plan;
+        }
+
     }
 
 }
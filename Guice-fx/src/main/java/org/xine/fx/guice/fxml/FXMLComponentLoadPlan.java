@@ -0,0 +1,159 @@
+package org.xine.fx.guice.fxml;
+
+import org.xine.fx.guice.FXMLComponent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ResourceBundle;
+import java.util.logging.Logger;
+
+import javafx.fxml.FXMLLoader;
+
+/**
+ * The precomputed configuration of the {@link FXMLLoader} of an {@link FXMLComponent} class.
+ * <p>
+ * The location, resource bundle and charset of a component class are resolved only once, when the
+ * class is bound, and shared by all of its instances.
+ * </p>
+ */
+final class FXMLComponentLoadPlan {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(FXMLComponentLoadPlan.class.getName());
+
+    /**
+     * The {@code FXMLLoader.setTemplate(boolean)} method, which only exists in some JavaFX 8
+     * releases, or {@code null}.
+     */
+    private static final Method SET_TEMPLATE_METHOD = findSetTemplateMethod();
+
+    /** The location of the FXML document. */
+    private final URL location;
+
+    /** The resource bundle, or {@code null}. */
+    private final ResourceBundle resources;
+
+    /** The charset of the FXML document. */
+    private final Charset charset;
+
+    /**
+     * Instantiates a new load plan.
+     * @param componentClass
+     *            the component class
+     * @param annotation
+     *            the annotation of the component class
+     * @throws IllegalArgumentException
+     *             if the location is no valid URL, or the resource bundle or charset cannot be
+     *             found
+     */
+    FXMLComponentLoadPlan(final Class<?> componentClass, final FXMLComponent annotation)
+            throws IllegalArgumentException {
+        super();
+        this.location = resolveLocation(componentClass, annotation);
+        final String resourcesString = annotation.resources();
+        try {
+            this.resources = resourcesString.isEmpty() ? null : ResourceBundle
+                    .getBundle(resourcesString);
+        } catch (final RuntimeException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot find resource bundle '%s'.", resourcesString), e);
+        }
+        this.charset = Charset.forName(annotation.charset());
+    }
+
+    /**
+     * Gets the location of the FXML document.
+     * @return the location
+     */
+    URL getLocation() {
+        return this.location;
+    }
+
+    /**
+     * Creates a loader for a component instance.
+     * @param instance
+     *            the component, which becomes both the root and the controller of the document
+     * @return the configured loader
+     */
+    FXMLLoader createLoader(final Object instance) {
+        final FXMLLoader fxmlLoader = new FXMLLoader();
+        fxmlLoader.setLocation(this.location);
+        if (this.resources != null) {
+            fxmlLoader.setResources(this.resources);
+        }
+        fxmlLoader.setCharset(this.charset);
+        fxmlLoader.setController(instance);
+        fxmlLoader.setRoot(instance);
+
+        // Invoke "fxmlLoader.setTemplate(true)" if the JavaFX runtime supports it to improve
+        // performance on objects that are created multiple times.
+        if (SET_TEMPLATE_METHOD != null) {
+            try {
+                SET_TEMPLATE_METHOD.invoke(fxmlLoader, Boolean.TRUE);
+            } catch (IllegalAccessException | IllegalArgumentException
+                    | InvocationTargetException e) {
+                // We simply ignore this exception, templates are an optimization only.
+            }
+        }
+        return fxmlLoader;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "FXMLComponentLoadPlan[" + this.location + "]";
+    }
+
+    /**
+     * Resolves the location of the FXML document of a component class.
+     * @param componentClass
+     *            the component class
+     * @param annotation
+     *            the annotation of the component class
+     * @return the location
+     * @throws IllegalArgumentException
+     *             if the location is no valid URL
+     */
+    private static URL resolveLocation(final Class<?> componentClass,
+            final FXMLComponent annotation) throws IllegalArgumentException {
+        String locationString = annotation.location();
+        if (locationString.isEmpty()) {
+            locationString = String.format("%s.fxml", componentClass.getSimpleName());
+            LOGGER.fine(String
+                    .format("No location for FXML component has been set for class '%s'. Assuming default ('%s').",
+                            componentClass.getName(), locationString));
+        }
+        final URL location = componentClass.getResource(locationString);
+        if (location != null) {
+            return location;
+        }
+        LOGGER.fine(String.format(
+                "Location '%s' cannot be found on the classpath. Trying to construct a new URL...",
+                locationString));
+        try {
+            return new URL(locationString);
+        } catch (final MalformedURLException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot construct URL from string '%s'.", locationString), e);
+        }
+    }
+
+    /**
+     * Looks up the {@code FXMLLoader.setTemplate(boolean)} method.
+     * @return the method or {@code null} if the JavaFX runtime does not support templates
+     */
+    private static Method findSetTemplateMethod() {
+        try {
+            return FXMLLoader.class.getMethod("setTemplate", boolean.class);
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+}
@@ -1,98 +1,99 @@
 package org.xine.fx.guice.fxml;
 
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.nio.charset.Charset;
-import java.util.ResourceBundle;
-import java.util.logging.Logger;
-
-import org.xine.fx.guice.FXMLComponent;
-import org.xine.fx.guice.GuiceFXMLLoader;
+import org.xine.fx.guice.thread.FxDispatcher;
 
 import com.google.inject.MembersInjector;
+import com.google.inject.Provider;
+
+import java.io.IOException;
 
-import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 
+/**
+ * Loads the FXML document of an {@link org.xine.fx.guice.FXMLComponent} into each of its
+ * instances.
+ * <p>
+ * Documents are loaded on the injecting thread, which is either the JavaFX application thread or
+ * any other thread, as the component is not attached to a scene while it is being injected.
+ * Asynchronous components are loaded by the {@link FxDispatcher} instead.
+ * </p>
+ * @param <T>
+ *            the generic type
+ */
 final class FXMLComponentMembersInjector<T> implements MembersInjector<T> {
 
-    @SuppressWarnings("unused")
-    private final GuiceFXMLLoader fxmlLoader;
+    /** The configuration of the loader, shared by all instances of the component class. */
+    private final FXMLComponentLoadPlan loadPlan;
 
-    /** Logger for this class. */
-    private static final Logger LOGGER = Logger.getLogger(FXMLComponentMembersInjector.class
-            .getName());
+    /** The dispatcher of asynchronous loads, or {@code null} if loads are synchronous. */
+    private final Provider<FxDispatcher> dispatcherProvider;
 
-    private final FXMLComponent annotation;
+    /** The dispatcher, resolved on first use. */
+    private volatile FxDispatcher dispatcher;
 
-    FXMLComponentMembersInjector(final GuiceFXMLLoader fxmlLoader, final FXMLComponent annotation) {
+    /**
+     * Instantiates a new FXML component members injector.
+     * @param loadPlan
+     *            the configuration of the loader
+     * @param dispatcherProvider
+     *            the dispatcher of asynchronous loads, or {@code null} if loads are synchronous
+     */
+    FXMLComponentMembersInjector(final FXMLComponentLoadPlan loadPlan,
+            final Provider<FxDispatcher> dispatcherProvider) {
         super();
-        this.fxmlLoader = fxmlLoader;
-        this.annotation = annotation;
+        this.loadPlan = loadPlan;
+        this.dispatcherProvider = dispatcherProvider;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.MembersInjector#injectMembers(java.lang.Object)
+     */
     @Override
     public void injectMembers(final T instance) {
-
-        String locationString = this.annotation.location();
-        if (locationString.isEmpty()) {
-            locationString = String.format("%s.fxml", instance.getClass().getSimpleName());
-            LOGGER.fine(String
-                    .format("No location for FXML component has been set for class '%s'. Assuming default ('%s').",
-                            instance.getClass().getName(), locationString));
+        if (this.dispatcherProvider == null) {
+            load(instance);
+            return;
         }
-        URL location;
-        location = instance.getClass().getResource(locationString);
-        if (location == null) {
-            LOGGER.fine(String
-                    .format("Location '%s' cannot be found on the classpath. Trying to construct a new URL...",
-                            locationString));
-            try {
-                location = new URL(locationString);
-            } catch (final MalformedURLException e) {
-                throw new RuntimeException(String.format("Cannot construct URL from string '%s'.",
-                        locationString), e);
+        getDispatcher().execute(new Runnable() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public void run() {
+                load(instance);
             }
-        }
-        final FXMLLoader fxmlLoader = new FXMLLoader();
-        fxmlLoader.setLocation(location);
-        final String resourcesString = this.annotation.resources();
-        if (!resourcesString.isEmpty()) {
-            fxmlLoader.setResources(ResourceBundle.getBundle(resourcesString));
-        }
-        fxmlLoader.setCharset(Charset.forName(this.annotation.charset()));
-        fxmlLoader.setController(instance);
-        fxmlLoader.setRoot(instance);
+        });
+    }
 
-        // Invoke "fxmlLoader.setTemplate(true)" if we are using JavaFX 8.0 or
-        // higher to improve performance on objects that are created multiple times.
+    /**
+     * Loads the FXML document into a component.
+     * @param instance
+     *            the component
+     */
+    private void load(final T instance) {
+        final FXMLLoader loader = this.loadPlan.createLoader(instance);
         try {
-            final Method setTemplateMethod = FXMLLoader.class.getMethod("setTemplate",
-                    boolean.class);
-            setTemplateMethod.invoke(fxmlLoader, Boolean.TRUE);
-        } catch (NoSuchMethodException | SecurityException | IllegalAccessException
-                | IllegalArgumentException | InvocationTargetException e) {
-            // We simply ignore this exception. It means that we are using
-            // a JavaFX runtime prior to JavaFX 8.0.
+            final Object loaded = loader.load();
+            if (loaded != instance) {
+                throw new IllegalStateException(
+                        "Loading of FXML component went terribly wrong! :-(");
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(String.format("Cannot load FXML component from '%s'.",
+                    this.loadPlan.getLocation()), e);
         }
+    }
 
-        // Actual instantiation of the component has to happen on the JavaFX thread.
-        // We simply delegate the loading.
-        Platform.runLater(() -> {
-		    try {
-		        final Object loaded = fxmlLoader.load();
-		        if (loaded != instance) {
-		            throw new IllegalStateException(
-		                    "Loading of FXML component went terribly wrong! :-(");
-		        }
-		    } catch (final IOException e) {
-		        throw new RuntimeException(e);
-		    }
-
-		});
-
+    /**
+     * Gets the dispatcher, resolving it on first use.
+     * @return the dispatcher
+     */
+    private FxDispatcher getDispatcher() {
+        FxDispatcher result = this.dispatcher;
+        if (result == null) {
+            result = this.dispatcherProvider.get();
+            this.dispatcher = result;
+        }
+        return result;
     }
+
 }
@@ -0,0 +1,406 @@
+package org.xine.fx.guice.fxml;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The precomputed plan to set the properties of an {@link org.xine.fx.guice.FXMLComponent} class.
+ * <p>
+ * The setters of a component class are looked up only once and bound as {@link MethodHandle}s.
+ * Setters taking a primitive are invoked with the parsed primitive value, all other setters use the
+ * shared {@link FXMLAttributeConverter} of their type.
+ * </p>
+ */
+final class FXMLComponentPlan {
+
+    /** The component class. */
+    private final Class<?> componentClass;
+
+    /** The converters for non-primitive setters. */
+    private final FXMLConverterRegistry converters;
+
+    /** The public single-argument setter methods by name. */
+    private final Map<String, List<Method>> setterMethods = new HashMap<>();
+
+    /** The resolved setters by property name. */
+    private final ConcurrentMap<String, PropertySetter> setters = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new FXML component plan.
+     * @param componentClass
+     *            the component class
+     * @param converters
+     *            the converters for non-primitive setters
+     */
+    FXMLComponentPlan(final Class<?> componentClass, final FXMLConverterRegistry converters) {
+        super();
+        this.componentClass = componentClass;
+        this.converters = converters;
+        for (final Method method : componentClass.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterTypes().length == 1
+                    && !Modifier.isStatic(method.getModifiers())) {
+                List<Method> methods = this.setterMethods.get(method.getName());
+                if (methods == null) {
+                    methods = new ArrayList<>(1);
+                    this.setterMethods.put(method.getName(), methods);
+                }
+                methods.add(method);
+            }
+        }
+    }
+
+    /**
+     * Gets the setter of the given property.
+     * @param property
+     *            the property name
+     * @return the setter
+     * @throws IllegalStateException
+     *             if the component class has no setter for the property
+     * @throws IllegalArgumentException
+     *             if there is no converter for the type of the property
+     */
+    PropertySetter getSetter(final String property) throws IllegalStateException,
+            IllegalArgumentException {
+        PropertySetter setter = this.setters.get(property);
+        if (setter == null) {
+            setter = createSetter(property);
+            this.setters.putIfAbsent(property, setter);
+        }
+        return setter;
+    }
+
+    /**
+     * Creates the setter of the given property.
+     * @param property
+     *            the property name
+     * @return the setter
+     */
+    private PropertySetter createSetter(final String property) {
+        final String setterName = "set" + property.substring(0, 1).toUpperCase()
+                + property.substring(1);
+        final List<Method> methods = this.setterMethods.get(setterName);
+        if (methods == null) {
+            throw new IllegalStateException(String.format(
+                    "No setter for field '%s' could be found.", property));
+        }
+        Class<?> valueClass = null;
+        for (final Method method : methods) {
+            valueClass = method.getParameterTypes()[0];
+            if (valueClass.isPrimitive()) {
+                return createSetter(method, null);
+            }
+            final FXMLAttributeConverter<?> converter = this.converters.getConverter(valueClass);
+            if (converter != null) {
+                return createSetter(method, converter);
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "Can't find converter for class '%s'.", valueClass.getName()));
+    }
+
+    /**
+     * Binds the given setter method.
+     * @param method
+     *            the setter method
+     * @param converter
+     *            the converter for non-primitive setters
+     * @return the setter
+     */
+    private static PropertySetter createSetter(final Method method,
+            final FXMLAttributeConverter<?> converter) {
+        final Class<?> valueClass = method.getParameterTypes()[0];
+        final MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(method)
+                    .asType(MethodType.methodType(void.class, Object.class, valueClass));
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        if (valueClass == boolean.class) {
+            return new BooleanSetter(handle);
+        } else if (valueClass == byte.class) {
+            return new ByteSetter(handle);
+        } else if (valueClass == short.class) {
+            return new ShortSetter(handle);
+        } else if (valueClass == int.class) {
+            return new IntSetter(handle);
+        } else if (valueClass == long.class) {
+            return new LongSetter(handle);
+        } else if (valueClass == float.class) {
+            return new FloatSetter(handle);
+        } else if (valueClass == double.class) {
+            return new DoubleSetter(handle);
+        } else if (valueClass.isPrimitive()) {
+            throw new IllegalArgumentException(String.format(
+                    "Can't find converter for class '%s'.", valueClass.getName()));
+        }
+        return new ObjectSetter(handle.asType(MethodType.methodType(void.class, Object.class,
+                Object.class)), converter);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "FXMLComponentPlan[" + this.componentClass.getName() + "]";
+    }
+
+    /**
+     * Sets a single property of a component from its string representation.
+     */
+    abstract static class PropertySetter {
+
+        /** The bound setter method. */
+        final MethodHandle handle;
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        PropertySetter(final MethodHandle handle) {
+            super();
+            this.handle = handle;
+        }
+
+        /**
+         * Sets the property.
+         * @param component
+         *            the component
+         * @param value
+         *            the string representation of the value
+         * @throws Throwable
+         *             anything thrown by the setter
+         */
+        abstract void set(Object component, String value) throws Throwable;
+
+    }
+
+    /**
+     * Setter of a {@code boolean} property.
+     */
+    private static final class BooleanSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        BooleanSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Boolean.parseBoolean(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of a {@code byte} property.
+     */
+    private static final class ByteSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        ByteSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Byte.parseByte(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of a {@code short} property.
+     */
+    private static final class ShortSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        ShortSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Short.parseShort(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of an {@code int} property.
+     */
+    private static final class IntSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        IntSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Integer.parseInt(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of a {@code long} property.
+     */
+    private static final class LongSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        LongSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Long.parseLong(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of a {@code float} property.
+     */
+    private static final class FloatSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        FloatSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Float.parseFloat(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of a {@code double} property.
+     */
+    private static final class DoubleSetter extends PropertySetter {
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         */
+        DoubleSetter(final MethodHandle handle) {
+            super(handle);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, Double.parseDouble(value.trim()));
+        }
+
+    }
+
+    /**
+     * Setter of a property of any other type, converted by a shared
+     * {@link FXMLAttributeConverter}.
+     */
+    private static final class ObjectSetter extends PropertySetter {
+
+        /** The converter. */
+        private final FXMLAttributeConverter<?> converter;
+
+        /**
+         * Instantiates a new setter.
+         * @param handle
+         *            the bound setter method
+         * @param converter
+         *            the converter
+         */
+        ObjectSetter(final MethodHandle handle, final FXMLAttributeConverter<?> converter) {
+            super(handle);
+            this.converter = converter;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLComponentPlan.PropertySetter#set(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void set(final Object component, final String value) throws Throwable {
+            this.handle.invokeExact(component, (Object) this.converter.convert(value));
+        }
+
+    }
+
+}
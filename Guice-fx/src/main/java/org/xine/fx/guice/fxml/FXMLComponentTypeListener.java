@@ -1,14 +1,12 @@
 package org.xine.fx.guice.fxml;
 
 import org.xine.fx.guice.FXMLComponent;
-import org.xine.fx.guice.GuiceFXMLLoader;
+import org.xine.fx.guice.thread.FxDispatcher;
 
 import com.google.inject.TypeLiteral;
 import com.google.inject.spi.TypeEncounter;
 import com.google.inject.spi.TypeListener;
 
-import javax.inject.Inject;
-
 /**
  * The listener interface for receiving FXMLComponentType events.
  * The class that is interested in processing a FXMLComponentType
@@ -21,10 +19,6 @@ import javax.inject.Inject;
  */
 final class FXMLComponentTypeListener implements TypeListener {
 
-    /** The fxml loader. */
-    @Inject
-    private GuiceFXMLLoader fxmlLoader;
-
     /**
      * Instantiates a new FXML component type listener.
      */
@@ -41,8 +35,18 @@ final class FXMLComponentTypeListener implements TypeListener {
         final Class<? super T> rawType = typeLiteral.getRawType();
         if (rawType.isAnnotationPresent(FXMLComponent.class)) {
             final FXMLComponent annotation = rawType.getAnnotation(FXMLComponent.class);
+            final FXMLComponentLoadPlan loadPlan;
+            try {
+                loadPlan = new FXMLComponentLoadPlan(rawType, annotation);
+            } catch (final IllegalArgumentException e) {
+                typeEncounter.addError("Cannot load FXML component %s: %s", rawType,
+                        e.getMessage());
+                return;
+            }
+            // Asynchronous components require the FxDispatcher of the FxApplicationThreadModule.
             final FXMLComponentMembersInjector<T> membersInjector = new FXMLComponentMembersInjector<>(
-                    this.fxmlLoader, annotation);
+                    loadPlan, annotation.async() ? typeEncounter.getProvider(FxDispatcher.class)
+                            : null);
             typeEncounter.register(membersInjector);
         }
     }
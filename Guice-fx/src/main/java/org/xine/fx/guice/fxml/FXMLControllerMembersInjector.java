@@ -1,7 +1,6 @@
 package org.xine.fx.guice.fxml;
 
 import org.xine.fx.guice.FXMLController;
-import org.xine.fx.guice.controllerlookup.ControllerLookup;
 
 import com.google.inject.MembersInjector;
 
@@ -49,8 +48,8 @@ final class FXMLControllerMembersInjector<T> implements MembersInjector<T> {
     public void injectMembers(final T instance) {
         Object controllerInstance = null;
         if (!this.annotation.controllerId().isEmpty()) {
-            controllerInstance = new ControllerLookup(this.scope.getIdentifiables())
-                    .lookup(this.annotation.controllerId());
+            controllerInstance = this.scope.getControllerLookup().lookup(
+                    this.annotation.controllerId());
         } else {
             controllerInstance = this.scope.getInstance(this.annotation.controllerId());
         }
@@ -0,0 +1,227 @@
+package org.xine.fx.guice.fxml;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javafx.geometry.Insets;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.util.Duration;
+
+/**
+ * Registry of the {@link FXMLAttributeConverter}s used to set the properties of
+ * {@link org.xine.fx.guice.FXMLComponent} elements.
+ * <p>
+ * Besides the built-in converters for strings, primitive wrappers, {@link BigDecimal},
+ * {@link BigInteger}, {@link Color}, {@link Paint}, {@link Duration}, {@link Insets} and all enum
+ * types, the registry holds every converter contributed through
+ * {@link FXMLLoadingModule#converterBinder(com.google.inject.Binder)}. Contributed converters take
+ * precedence over the built-in ones.
+ * </p>
+ */
+@Singleton
+public final class FXMLConverterRegistry {
+
+    /** The converters by type. */
+    private final ConcurrentMap<Class<?>, FXMLAttributeConverter<?>> converters = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new registry with the built-in converters only.
+     */
+    public FXMLConverterRegistry() {
+        this(Collections.<FXMLAttributeConverter<?>> emptySet());
+    }
+
+    /**
+     * Instantiates a new registry.
+     * @param contributions
+     *            the converters contributed through Guice
+     */
+    @Inject
+    public FXMLConverterRegistry(final Set<FXMLAttributeConverter<?>> contributions) {
+        super();
+
+        // String
+        register(new FXMLAttributeConverter<String>(String.class, false) {
+            @Override
+            protected String fromString(final String value) {
+                return value;
+            }
+        });
+
+        // Primitive wrappers
+        register(new FXMLAttributeConverter<Boolean>(Boolean.class, false) {
+            @Override
+            protected Boolean fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Boolean.valueOf(trimmed);
+            }
+        });
+        register(new FXMLAttributeConverter<Byte>(Byte.class, false) {
+            @Override
+            protected Byte fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Byte.valueOf(Byte.parseByte(trimmed));
+            }
+        });
+        register(new FXMLAttributeConverter<Short>(Short.class, false) {
+            @Override
+            protected Short fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Short.valueOf(Short.parseShort(trimmed));
+            }
+        });
+        register(new FXMLAttributeConverter<Integer>(Integer.class, false) {
+            @Override
+            protected Integer fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Integer.valueOf(Integer.parseInt(trimmed));
+            }
+        });
+        register(new FXMLAttributeConverter<Long>(Long.class, false) {
+            @Override
+            protected Long fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Long.valueOf(Long.parseLong(trimmed));
+            }
+        });
+        register(new FXMLAttributeConverter<Float>(Float.class, false) {
+            @Override
+            protected Float fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Float.valueOf(Float.parseFloat(trimmed));
+            }
+        });
+        register(new FXMLAttributeConverter<Double>(Double.class, false) {
+            @Override
+            protected Double fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : Double.valueOf(Double.parseDouble(trimmed));
+            }
+        });
+
+        // Immutable value types
+        register(new FXMLAttributeConverter<BigDecimal>(BigDecimal.class, true) {
+            @Override
+            protected BigDecimal fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : new BigDecimal(trimmed);
+            }
+        });
+        register(new FXMLAttributeConverter<BigInteger>(BigInteger.class, true) {
+            @Override
+            protected BigInteger fromString(final String value) {
+                final String trimmed = value.trim();
+                return trimmed.isEmpty() ? null : new BigInteger(trimmed);
+            }
+        });
+        register(new FXMLAttributeConverter<Color>(Color.class, true) {
+            @Override
+            protected Color fromString(final String value) {
+                return Color.web(value.trim());
+            }
+        });
+        register(new FXMLAttributeConverter<Paint>(Paint.class, true) {
+            @Override
+            protected Paint fromString(final String value) {
+                return Paint.valueOf(value.trim());
+            }
+        });
+        register(new FXMLAttributeConverter<Duration>(Duration.class, true) {
+            @Override
+            protected Duration fromString(final String value) {
+                return Duration.valueOf(value.trim());
+            }
+        });
+        register(new FXMLAttributeConverter<Insets>(Insets.class, true) {
+            @Override
+            protected Insets fromString(final String value) {
+                final String[] parts = value.trim().split("\\s*[,\\s]\\s*");
+                if (parts.length == 1) {
+                    return new Insets(Double.parseDouble(parts[0]));
+                } else if (parts.length == 4) {
+                    return new Insets(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+                }
+                throw new IllegalArgumentException(String.format(
+                        "Insets must be given as one or four values: '%s'.", value));
+            }
+        });
+
+        // Contributions override the built-in converters.
+        for (final FXMLAttributeConverter<?> contribution : contributions) {
+            register(contribution);
+        }
+    }
+
+    /**
+     * Gets the converter for the given type.
+     * @param <T>
+     *            the generic type
+     * @param type
+     *            the type
+     * @return the converter or {@code null} if values of the given type cannot be converted
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    public <T> FXMLAttributeConverter<T> getConverter(final Class<T> type) {
+        FXMLAttributeConverter<?> converter = this.converters.get(type);
+        if (converter == null && type.isEnum()) {
+            converter = new EnumConverter(type);
+            final FXMLAttributeConverter<?> existing = this.converters.putIfAbsent(type, converter);
+            if (existing != null) {
+                converter = existing;
+            }
+        }
+        return (FXMLAttributeConverter<T>) converter;
+    }
+
+    /**
+     * Registers a converter.
+     * @param converter
+     *            the converter
+     */
+    private void register(final FXMLAttributeConverter<?> converter) {
+        this.converters.put(converter.getType(), converter);
+    }
+
+    /**
+     * Converter of enum constants, accepting the constant name in any case.
+     * @param <E>
+     *            the enum type
+     */
+    private static final class EnumConverter<E extends Enum<E>> extends FXMLAttributeConverter<E> {
+
+        /**
+         * Instantiates a new enum converter.
+         * @param type
+         *            the enum type
+         */
+        EnumConverter(final Class<E> type) {
+            super(type, false);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLAttributeConverter#fromString(java.lang.String)
+         */
+        @Override
+        protected E fromString(final String value) {
+            final String trimmed = value.trim();
+            try {
+                return Enum.valueOf(getType(), trimmed);
+            } catch (final IllegalArgumentException e) {
+                return Enum.valueOf(getType(), trimmed.toUpperCase(Locale.ROOT));
+            }
+        }
+
+    }
+
+}
@@ -4,21 +4,44 @@ import org.xine.fx.guice.FXMLComponent;
 import org.xine.fx.guice.FXMLController;
 import org.xine.fx.guice.GuiceFXMLLoader;
 import org.xine.fx.guice.controllerlookup.ControllerLookup;
+import org.xine.fx.guice.index.AnnotationIndex;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Binder;
 import com.google.inject.Provider;
-import com.google.inject.matcher.Matchers;
+import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
 
 /**
  * The Class FXMLLoadingModule.
  */
 public final class FXMLLoadingModule extends AbstractModule {
 
+    /** The type of contributed FXML attribute converters. */
+    private static final TypeLiteral<FXMLAttributeConverter<?>> CONVERTER_TYPE = new TypeLiteral<FXMLAttributeConverter<?>>() {
+        // Intentionally left empty.
+    };
+
+    /** The maximum number of FXML documents kept in the template cache. */
+    private final int templateCacheSize;
+
     /**
      * Instantiates a new FXML loading module.
      */
     public FXMLLoadingModule() {
+        this(FXMLTemplateCache.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Instantiates a new FXML loading module.
+     * @param templateCacheSize
+     *            the maximum number of FXML documents kept in the template cache, {@code 0}
+     *            disables the cache.
+     * @see FXMLTemplateCache
+     */
+    public FXMLLoadingModule(final int templateCacheSize) {
         super();
+        this.templateCacheSize = templateCacheSize;
     }
 
     /*
@@ -35,6 +58,13 @@ public final class FXMLLoadingModule extends AbstractModule {
         bindScope(FXMLController.class, fxmlLoadingScope);
         bindScope(FXMLComponent.class, fxmlLoadingScope);
 
+        // FXMLTemplateCache
+        bind(FXMLTemplateCache.class).toInstance(new FXMLTemplateCache(this.templateCacheSize));
+
+        // FXMLConverterRegistry
+        converterBinder(binder());
+        bind(FXMLConverterRegistry.class);
+
         // GuiceFXMLLoader
         bind(GuiceFXMLLoader.class);
 
@@ -42,19 +72,30 @@ public final class FXMLLoadingModule extends AbstractModule {
         final FXMLControllerTypeListener fxmlControllerTypeListener = new FXMLControllerTypeListener();
         requestInjection(fxmlControllerTypeListener);
         bind(FXMLControllerTypeListener.class).toInstance(fxmlControllerTypeListener);
-        bindListener(Matchers.any(), fxmlControllerTypeListener);
+        bindListener(AnnotationIndex.typesWith(FXMLController.class), fxmlControllerTypeListener);
 
         // FXMLComponentTypeListener
         final FXMLComponentTypeListener fxmlComponentTypeListener = new FXMLComponentTypeListener();
-        requestInjection(fxmlComponentTypeListener);
         bind(FXMLComponentTypeListener.class).toInstance(fxmlComponentTypeListener);
-        bindListener(Matchers.any(), fxmlComponentTypeListener);
+        bindListener(AnnotationIndex.typesWith(FXMLComponent.class), fxmlComponentTypeListener);
 
         // ControllerLookup
         bind(ControllerLookup.class).toProvider(new ControllerLookupProvider(fxmlLoadingScope));
 
     }
 
+    /**
+     * Gets the binder to contribute {@link FXMLAttributeConverter}s for the properties of
+     * {@link FXMLComponent} elements.
+     * @param binder
+     *            the binder of the module that contributes converters
+     * @return the converter binder
+     * @see FXMLConverterRegistry
+     */
+    public static Multibinder<FXMLAttributeConverter<?>> converterBinder(final Binder binder) {
+        return Multibinder.newSetBinder(binder, CONVERTER_TYPE);
+    }
+
     /**
      * The Class ControllerLookupProvider.
      */
@@ -83,7 +124,7 @@ public final class FXMLLoadingModule extends AbstractModule {
                 throw new IllegalStateException(
                         "A ControllerLookup instance cannot be injected while outside of the FXML Loading scope.");
             }
-            return new ControllerLookup(this.fxmlLoadingScope.getIdentifiables());
+            return this.fxmlLoadingScope.getControllerLookup();
         }
     }
 
@@ -3,6 +3,7 @@ package org.xine.fx.guice.fxml;
 import org.xine.fx.guice.FXMLController;
 import org.xine.fx.guice.GuiceFXMLLoader;
 import org.xine.fx.guice.controllerlookup.ControllerLookup;
+import org.xine.fx.guice.controllerlookup.ControllerRegistry;
 import org.xine.fx.guice.controllerlookup.IdentifiableController;
 
 import com.google.inject.Key;
@@ -10,22 +11,25 @@ import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Singleton;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Deque;
 
 /**
  * The Class FXMLLoadingScope.
+ * <p>
+ * Every loading operation enters the scope with a frame of its own. Frames are kept in a per-thread
+ * stack, so that loads may run in parallel on several threads and loads may be nested within other
+ * loads (e.g. when a controller loads another FXML document). When a nested load exits, the
+ * controllers registered within its frame are handed over to the enclosing frame, replacing those
+ * with the same ID, so that the same document may be loaded several times.
+ * </p>
  */
 @Singleton
 public final class FXMLLoadingScope implements Scope {
 
-    /** The fxml loader. */
-    @SuppressWarnings("unused")
-    private GuiceFXMLLoader fxmlLoader;
-
-    /** The identifiables. */
-    private Set<IdentifiableController> identifiables;
+    /** The stack of frames of the loading operations of the current thread. */
+    private final ThreadLocal<Deque<Frame>> frames = new ThreadLocal<>();
 
     /**
      * Instantiates a new FXML loading scope.
@@ -38,21 +42,42 @@ public final class FXMLLoadingScope implements Scope {
      * Enter the scope. From here on in, controllers implementing {@link IdentifiableController} and annotated wih {@link FXMLController} will
      * be retrievable from any {@link ControllerLookup} instance that is
      * injected.
+     * <p>
+     * Every call to this method must be followed by a call to {@link #exit()} on the same thread,
+     * even if loading fails.
+     * </p>
      * @param fxmlLoader
      *            The FXML Loader to be used within this scope.
      */
-    @SuppressWarnings("hiding")
     public void enter(final GuiceFXMLLoader fxmlLoader) {
-        this.fxmlLoader = fxmlLoader;
-        this.identifiables = new HashSet<>();
+        Deque<Frame> stack = this.frames.get();
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+            this.frames.set(stack);
+        }
+        stack.push(new Frame(fxmlLoader));
     }
 
     /**
      * End the scope.
+     * <p>
+     * Handing the controllers of a nested load over to the enclosing one never fails, so that
+     * exiting the scope does not mask an exception thrown while loading.
+     * </p>
+     * @throws IllegalStateException
+     *             if the scope has not been entered on the current thread.
      */
-    public void exit() {
-        this.identifiables = null;
-        this.fxmlLoader = null;
+    public void exit() throws IllegalStateException {
+        final Deque<Frame> stack = this.frames.get();
+        if (stack == null || stack.isEmpty()) {
+            throw new IllegalStateException("The FXML Loading scope has not been entered.");
+        }
+        final Frame frame = stack.pop();
+        if (stack.isEmpty()) {
+            this.frames.remove();
+        } else {
+            stack.peek().registry.registerAll(frame.registry);
+        }
     }
 
     /*
@@ -66,10 +91,11 @@ public final class FXMLLoadingScope implements Scope {
             @Override
             public T get() {
                 final T providedObject = unscoped.get();
-                if (FXMLLoadingScope.this.identifiables != null
-                        && providedObject instanceof IdentifiableController) {
-                    final IdentifiableController identifiable = (IdentifiableController) providedObject;
-                    FXMLLoadingScope.this.identifiables.add(identifiable);
+                if (providedObject instanceof IdentifiableController) {
+                    final Frame frame = currentFrame();
+                    if (frame != null) {
+                        frame.registry.register((IdentifiableController) providedObject);
+                    }
                 }
                 return providedObject;
             }
@@ -86,29 +112,86 @@ public final class FXMLLoadingScope implements Scope {
      */
     @SuppressWarnings("unchecked")
     public <T> T getInstance(final String controllerId) {
-        for (final IdentifiableController identifiable : this.identifiables) {
-            if (identifiable.getId().equals(controllerId)) {
-                return (T) identifiable;
-            }
-        }
         // TODO Throw an exception maybe?
-        return null;
+        return (T) requireFrame().registry.get(controllerId);
     }
 
     /**
-     * Gets the identifiables.
+     * Gets the identifiables of the loading operation of the current thread.
      * @return the identifiables
+     * @throws IllegalStateException
+     *             if the scope is not active on the current thread.
      */
-    public Collection<IdentifiableController> getIdentifiables() {
-        return this.identifiables;
+    public Collection<IdentifiableController> getIdentifiables() throws IllegalStateException {
+        return requireFrame().registry.getControllers();
     }
 
     /**
-     * Checks whether the FXML Loading Scope is currently being used.
+     * Gets the controller lookup of the loading operation of the current thread.
+     * @return the controller lookup
+     * @throws IllegalStateException
+     *             if the scope is not active on the current thread.
+     */
+    public ControllerLookup getControllerLookup() throws IllegalStateException {
+        return requireFrame().lookup;
+    }
+
+    /**
+     * Checks whether the FXML Loading Scope is currently being used by the current thread.
      * @return {@code true} if this scope is currently active, {@code false} otherwise.
      */
     public boolean isActive() {
-        return (this.identifiables != null);
+        return currentFrame() != null;
+    }
+
+    /**
+     * Gets the frame of the innermost loading operation of the current thread.
+     * @return the frame or {@code null} if the scope is not active.
+     */
+    private Frame currentFrame() {
+        final Deque<Frame> stack = this.frames.get();
+        return stack == null ? null : stack.peek();
+    }
+
+    /**
+     * Gets the frame of the innermost loading operation of the current thread.
+     * @return the frame
+     * @throws IllegalStateException
+     *             if the scope is not active.
+     */
+    private Frame requireFrame() throws IllegalStateException {
+        final Frame frame = currentFrame();
+        if (frame == null) {
+            throw new IllegalStateException("The FXML Loading scope is not active.");
+        }
+        return frame;
+    }
+
+    /**
+     * The state of a single loading operation.
+     */
+    private static final class Frame {
+
+        /** The fxml loader. */
+        @SuppressWarnings("unused")
+        private final GuiceFXMLLoader fxmlLoader;
+
+        /** The identifiables. */
+        private final ControllerRegistry registry = new ControllerRegistry();
+
+        /** The lookup of the identifiables. */
+        private final ControllerLookup lookup = new ControllerLookup(this.registry);
+
+        /**
+         * Instantiates a new frame.
+         * @param fxmlLoader
+         *            the fxml loader
+         */
+        private Frame(final GuiceFXMLLoader fxmlLoader) {
+            super();
+            this.fxmlLoader = fxmlLoader;
+        }
+
     }
 
 }
@@ -0,0 +1,259 @@
+package org.xine.fx.guice.fxml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least-recently-used cache of FXML documents.
+ * <p>
+ * FXML documents that are loaded over and over again (dialogs, detail panes, ...) are only read
+ * from their location once. Subsequent loads are served from memory until the document is either
+ * evicted or its last-modified time changes.
+ * </p>
+ * <p>
+ * Documents in the file system are revalidated by their file time, without opening them.
+ * Documents in JAR files are never revalidated, since the contents of a JAR file on the classpath
+ * do not change while it is in use. Documents at any other location are revalidated by the
+ * last-modified time of a connection, which is closed again on a cache hit.
+ * </p>
+ * <p>
+ * The cached documents are independent of the resource bundle and the charset used to load them,
+ * both are applied by the {@link javafx.fxml.FXMLLoader} on every load. Entries are therefore keyed
+ * by location only.
+ * </p>
+ * @see org.xine.fx.guice.GuiceFXMLLoader
+ */
+public final class FXMLTemplateCache {
+
+    /** The default maximum number of cached documents. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+    /** The maximum number of cached documents. */
+    private final int maximumSize;
+
+    /** The cached templates, in access order. */
+    private final Map<String, Template> templates;
+
+    /** The number of loads that have been served from the cache. */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** The number of loads that had to read the document from its location. */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Instantiates a new FXML template cache with the {@link #DEFAULT_MAXIMUM_SIZE default maximum
+     * size}.
+     */
+    public FXMLTemplateCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Instantiates a new FXML template cache.
+     * @param maximumSize
+     *            the maximum number of documents to be kept in memory. A value of {@code 0}
+     *            disables caching.
+     * @throws IllegalArgumentException
+     *             if the given size is negative.
+     */
+    public FXMLTemplateCache(final int maximumSize) throws IllegalArgumentException {
+        super();
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("The maximum cache size must not be negative.");
+        }
+        this.maximumSize = maximumSize;
+        this.templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Template> eldest) {
+                return size() > FXMLTemplateCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Opens a stream on the FXML document at the given location.
+     * <p>
+     * The stream is served from the cache if the document has been read before and has not been
+     * modified since.
+     * </p>
+     * @param url
+     *            The location of the FXML document.
+     * @return A stream on the contents of the FXML document.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public InputStream openStream(final URL url) throws IOException {
+        if (this.maximumSize == 0) {
+            this.missCount.incrementAndGet();
+            return url.openStream();
+        }
+
+        final String key = url.toExternalForm();
+        final String protocol = url.getProtocol();
+        URLConnection connection = null;
+        long lastModified = -1;
+        if ("jar".equals(protocol)) {
+            lastModified = 0;
+        } else if ("file".equals(protocol)) {
+            lastModified = getFileLastModified(url);
+        }
+        if (lastModified == -1) {
+            connection = url.openConnection();
+            lastModified = connection.getLastModified();
+        }
+
+        Template template;
+        synchronized (this.templates) {
+            template = this.templates.get(key);
+        }
+        if (template != null && template.lastModified == lastModified) {
+            this.hitCount.incrementAndGet();
+            if (connection != null) {
+                close(connection);
+            }
+            return new ByteArrayInputStream(template.content);
+        }
+
+        this.missCount.incrementAndGet();
+        try (InputStream in = connection != null ? connection.getInputStream() : url.openStream()) {
+            template = new Template(readFully(in), lastModified);
+        }
+        synchronized (this.templates) {
+            this.templates.put(key, template);
+        }
+        return new ByteArrayInputStream(template.content);
+    }
+
+    /**
+     * Removes all documents from this cache.
+     */
+    public void invalidateAll() {
+        synchronized (this.templates) {
+            this.templates.clear();
+        }
+    }
+
+    /**
+     * Gets the maximum number of documents this cache holds.
+     * @return the maximum size
+     */
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Gets the number of documents that are currently cached.
+     * @return the size
+     */
+    public int size() {
+        synchronized (this.templates) {
+            return this.templates.size();
+        }
+    }
+
+    /**
+     * Gets the number of loads that have been served from the cache.
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Gets the number of loads that had to read the document from its location.
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Gets the last-modified time of a file without opening it.
+     * @param url
+     *            the {@code file:} URL of the file
+     * @return the last-modified time in milliseconds, or {@code -1} if it cannot be determined
+     */
+    private static long getFileLastModified(final URL url) {
+        try {
+            return Files.getLastModifiedTime(Paths.get(url.toURI())).toMillis();
+        } catch (IOException | URISyntaxException | IllegalArgumentException
+                | FileSystemNotFoundException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Closes a connection that has only been opened to revalidate a cached document.
+     * @param connection
+     *            the connection
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static void close(final URLConnection connection) throws IOException {
+        if (connection instanceof HttpURLConnection) {
+            ((HttpURLConnection) connection).disconnect();
+        } else {
+            connection.getInputStream().close();
+        }
+    }
+
+    /**
+     * Reads the given stream until its end.
+     * @param in
+     *            the stream
+     * @return the contents of the stream
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A cached FXML document.
+     */
+    private static final class Template {
+
+        /** The raw contents of the document. */
+        private final byte[] content;
+
+        /** The last-modified time of the document when it has been read. */
+        private final long lastModified;
+
+        /**
+         * Instantiates a new template.
+         * @param content
+         *            the content
+         * @param lastModified
+         *            the last modified time
+         */
+        private Template(final byte[] content, final long lastModified) {
+            super();
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+}
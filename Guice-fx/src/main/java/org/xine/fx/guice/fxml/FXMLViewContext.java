@@ -0,0 +1,263 @@
+package org.xine.fx.guice.fxml;
+
+import com.google.inject.Injector;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.fxml.Initializable;
+import javafx.fxml.LoadException;
+
+/**
+ * The context of a single loading operation that is performed by a compiled
+ * {@link FXMLViewFactory}.
+ * <p>
+ * The context takes over the duties of the JavaFX FXMLLoader that are not compiled into the
+ * factory: fetching the controller and {@link org.xine.fx.guice.FXMLComponent}s from the Guice
+ * injector, resolving localized strings and injecting the controller's {@link FXML} fields once the
+ * hierarchy has been built.
+ * </p>
+ */
+public final class FXMLViewContext {
+
+    /** The controller plans, computed once per controller class. */
+    private static final ClassValue<ControllerPlan> CONTROLLER_PLANS = new ClassValue<ControllerPlan>() {
+        @Override
+        protected ControllerPlan computeValue(final Class<?> type) {
+            return new ControllerPlan(type);
+        }
+    };
+
+    /** The injector. */
+    private final Injector injector;
+
+    /** The location. */
+    private final URL location;
+
+    /** The resources. */
+    private final ResourceBundle resources;
+
+    /** The namespace. */
+    private final Map<String, Object> namespace = new HashMap<>();
+
+    /** The controller. */
+    private Object controller;
+
+    /**
+     * Instantiates a new FXML view context.
+     * @param injector
+     *            the injector
+     * @param location
+     *            the location of the FXML document
+     * @param resources
+     *            the resources, may be {@code null}
+     */
+    public FXMLViewContext(final Injector injector, final URL location,
+            final ResourceBundle resources) {
+        super();
+        this.injector = injector;
+        this.location = location;
+        this.resources = resources;
+        this.namespace.put(FXMLLoader.LOCATION_KEY, location);
+        this.namespace.put(FXMLLoader.RESOURCES_KEY, resources);
+    }
+
+    /**
+     * Fetches the controller of the document from the Guice injector.
+     * @param <T>
+     *            the generic type
+     * @param controllerClass
+     *            the controller class
+     * @return the controller
+     */
+    public <T> T createController(final Class<T> controllerClass) {
+        final T instance = this.injector.getInstance(controllerClass);
+        this.controller = instance;
+        this.namespace.put(FXMLLoader.CONTROLLER_KEYWORD, instance);
+        return instance;
+    }
+
+    /**
+     * Fetches an instance of the given class from the Guice injector.
+     * @param <T>
+     *            the generic type
+     * @param type
+     *            the type
+     * @return the instance
+     */
+    public <T> T getInstance(final Class<T> type) {
+        return this.injector.getInstance(type);
+    }
+
+    /**
+     * Gets a localized string.
+     * @param key
+     *            the key
+     * @return the string
+     * @throws IllegalStateException
+     *             if no resources have been given for this loading operation.
+     */
+    public String getString(final String key) throws IllegalStateException {
+        if (this.resources == null) {
+            throw new IllegalStateException(String.format(
+                    "No resources specified to resolve '%%%s' in '%s'.", key, this.location));
+        }
+        return this.resources.getString(key);
+    }
+
+    /**
+     * Registers an element with an fx:id.
+     * @param id
+     *            the id
+     * @param value
+     *            the value
+     */
+    public void register(final String id, final Object value) {
+        this.namespace.put(id, value);
+    }
+
+    /**
+     * Injects the registered elements into the {@link FXML} fields of the controller and calls its
+     * initialize method, just like the JavaFX FXMLLoader does.
+     * @throws LoadException
+     *             if a field cannot be injected or the initialize method fails
+     */
+    public void initializeController() throws LoadException {
+        if (this.controller != null) {
+            CONTROLLER_PLANS.get(this.controller.getClass()).initialize(this.controller,
+                    this.namespace, this.location, this.resources);
+        }
+    }
+
+    /**
+     * Gets the injector.
+     * @return the injector
+     */
+    public Injector getInjector() {
+        return this.injector;
+    }
+
+    /**
+     * Gets the location.
+     * @return the location
+     */
+    public URL getLocation() {
+        return this.location;
+    }
+
+    /**
+     * Gets the resources.
+     * @return the resources
+     */
+    public ResourceBundle getResources() {
+        return this.resources;
+    }
+
+    /**
+     * Gets the controller.
+     * @return the controller
+     */
+    public Object getController() {
+        return this.controller;
+    }
+
+    /**
+     * Gets the namespace.
+     * @return the namespace
+     */
+    public Map<String, Object> getNamespace() {
+        return this.namespace;
+    }
+
+    /**
+     * The fields and the initialize method of a controller class.
+     */
+    private static final class ControllerPlan {
+
+        /** The injectable fields by name. */
+        private final Map<String, Field> fields = new HashMap<>();
+
+        /** The no-arg initialize method. */
+        private Method initializeMethod;
+
+        /**
+         * Instantiates a new controller plan.
+         * @param type
+         *            the controller class
+         */
+        private ControllerPlan(final Class<?> type) {
+            super();
+            // Walk up from the super class so that fields of subclasses take precedence.
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (final Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())
+                            && !this.fields.containsKey(field.getName())
+                            && (Modifier.isPublic(field.getModifiers()) || field
+                                    .isAnnotationPresent(FXML.class))) {
+                        field.setAccessible(true);
+                        this.fields.put(field.getName(), field);
+                    }
+                }
+                if (this.initializeMethod == null && !Initializable.class.isAssignableFrom(type)) {
+                    try {
+                        final Method method = c.getDeclaredMethod("initialize");
+                        if (Modifier.isPublic(method.getModifiers())
+                                || method.isAnnotationPresent(FXML.class)) {
+                            method.setAccessible(true);
+                            this.initializeMethod = method;
+                        }
+                    } catch (final NoSuchMethodException e) {
+                        // Continue with the super class.
+                    }
+                }
+            }
+        }
+
+        /**
+         * Initializes the given controller.
+         * @param controller
+         *            the controller
+         * @param namespace
+         *            the namespace
+         * @param location
+         *            the location
+         * @param resources
+         *            the resources
+         * @throws LoadException
+         *             if a field cannot be injected or the initialize method fails
+         */
+        private void initialize(final Object controller, final Map<String, Object> namespace,
+                final URL location, final ResourceBundle resources) throws LoadException {
+            try {
+                for (final Map.Entry<String, Object> entry : namespace.entrySet()) {
+                    final Field field = this.fields.get(entry.getKey());
+                    if (field != null && entry.getValue() != null
+                            && field.getType().isInstance(entry.getValue())) {
+                        field.set(controller, entry.getValue());
+                    }
+                }
+                if (controller instanceof Initializable) {
+                    ((Initializable) controller).initialize(location, resources);
+                } else if (this.initializeMethod != null) {
+                    this.initializeMethod.invoke(controller);
+                }
+            } catch (final IllegalAccessException e) {
+                throw new LoadException(String.format("Cannot initialize controller %s of '%s'.",
+                        controller.getClass().getName(), location), e);
+            } catch (final InvocationTargetException e) {
+                throw new LoadException(String.format("Cannot initialize controller %s of '%s'.",
+                        controller.getClass().getName(), location), e.getCause());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package org.xine.fx.guice.fxml;
+
+/**
+ * A factory that builds the object hierarchy described by a single FXML document.
+ * <p>
+ * Implementations of this interface are generated at build time for documents listed in a
+ * {@link org.xine.fx.guice.CompiledFXML} annotation and registered as a
+ * {@link java.util.ServiceLoader service}. There is usually no need to implement this interface by
+ * hand.
+ * </p>
+ * @see FXMLViewFactoryRegistry
+ */
+public interface FXMLViewFactory {
+
+    /**
+     * Gets the location of the FXML document this factory has been generated from.
+     * @return The classpath location of the document without a leading slash, e.g.
+     *         "com/example/MyView.fxml".
+     */
+    String getLocation();
+
+    /**
+     * Builds the object hierarchy.
+     * @param context
+     *            The context of the current loading operation, used to fetch the controller and
+     *            {@link org.xine.fx.guice.FXMLComponent}s from the Guice injector and to register
+     *            elements with an fx:id.
+     * @return The root of the object hierarchy.
+     */
+    Object create(FXMLViewContext context);
+
+}
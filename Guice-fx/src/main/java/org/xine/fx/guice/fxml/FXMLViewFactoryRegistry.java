@@ -0,0 +1,125 @@
+package org.xine.fx.guice.fxml;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+/**
+ * Registry of all {@link FXMLViewFactory FXMLViewFactories} available on the classpath.
+ * <p>
+ * A factory is used for exactly the resource it has been compiled from, i.e. the resource that the
+ * class loader of the factory finds at its {@link FXMLViewFactory#getLocation() location}. Other
+ * documents with the same path, e.g. in the file system or another JAR file, are loaded by the
+ * {@link javafx.fxml.FXMLLoader}.
+ * </p>
+ */
+@Singleton
+public final class FXMLViewFactoryRegistry {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(FXMLViewFactoryRegistry.class.getName());
+
+    /** The factories, indexed by the file name of their FXML document. */
+    private final Map<String, List<FXMLViewFactory>> factories = new HashMap<>();
+
+    /** The URLs of the resources the factories have been compiled from, resolved on first use. */
+    private final ConcurrentMap<FXMLViewFactory, String> resources = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new registry with all factories found by the {@link ServiceLoader}.
+     */
+    public FXMLViewFactoryRegistry() {
+        this(ServiceLoader.load(FXMLViewFactory.class));
+    }
+
+    /**
+     * Instantiates a new registry with the given factories.
+     * @param viewFactories
+     *            the view factories
+     */
+    public FXMLViewFactoryRegistry(final Iterable<? extends FXMLViewFactory> viewFactories) {
+        super();
+        for (final FXMLViewFactory viewFactory : viewFactories) {
+            final String location = viewFactory.getLocation();
+            final String fileName = location.substring(location.lastIndexOf('/') + 1);
+            List<FXMLViewFactory> candidates = this.factories.get(fileName);
+            if (candidates == null) {
+                candidates = new ArrayList<>(1);
+                this.factories.put(fileName, candidates);
+            }
+            candidates.add(viewFactory);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format("Registered compiled FXML view '%s'.", location));
+            }
+        }
+    }
+
+    /**
+     * Gets the factory that has been generated for the FXML document at the given location.
+     * @param url
+     *            The location of the FXML document.
+     * @return The factory for the document or {@code null} if the document has not been compiled.
+     */
+    public FXMLViewFactory getFactory(final URL url) {
+        if (this.factories.isEmpty()) {
+            return null;
+        }
+        final String path = url.getPath();
+        final String fileName = path.substring(path.lastIndexOf('/') + 1);
+        final List<FXMLViewFactory> candidates = this.factories.get(fileName);
+        if (candidates != null) {
+            final String externalForm = url.toExternalForm();
+            for (final FXMLViewFactory candidate : candidates) {
+                if (externalForm.equals(getResource(candidate))) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the URL of the resource a factory has been compiled from.
+     * @param factory
+     *            the factory
+     * @return the external form of the URL, empty if the resource cannot be found
+     */
+    private String getResource(final FXMLViewFactory factory) {
+        String resource = this.resources.get(factory);
+        if (resource == null) {
+            ClassLoader loader = factory.getClass().getClassLoader();
+            if (loader == null) {
+                loader = ClassLoader.getSystemClassLoader();
+            }
+            final URL url = loader.getResource(factory.getLocation());
+            resource = url == null ? "" : url.toExternalForm();
+            this.resources.putIfAbsent(factory, resource);
+        }
+        return resource;
+    }
+
+    /**
+     * Gets the locations of all compiled FXML documents.
+     * @return the locations
+     */
+    public List<String> getLocations() {
+        final List<String> locations = new ArrayList<>();
+        for (final List<FXMLViewFactory> candidates : this.factories.values()) {
+            for (final FXMLViewFactory candidate : candidates) {
+                locations.add(candidate.getLocation());
+            }
+        }
+        return Collections.unmodifiableList(locations);
+    }
+
+}
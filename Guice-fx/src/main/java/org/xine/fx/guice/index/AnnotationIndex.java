@@ -0,0 +1,221 @@
+package org.xine.fx.guice.index;
+
+import com.google.inject.TypeLiteral;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.matcher.Matcher;
+import com.google.inject.matcher.Matchers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The build-time index of the classes that carry an annotation, or declare fields that carry it.
+ * <p>
+ * The index is written by the {@code AnnotationIndexProcessor} of the Guice-fx compiler into
+ * {@code META-INF/guice-fx/index/<annotation>} of each classpath root. Type listeners are bound
+ * with {@link #typesWith(Class)}, so that Guice does not hand them the classes of an indexed root
+ * that are not listed, and they do not have to scan their fields by reflection.
+ * </p>
+ * <p>
+ * Classes of roots that have not been indexed, as well as local and anonymous classes, which are
+ * not visible to annotation processors, are always matched.
+ * </p>
+ */
+public final class AnnotationIndex {
+
+    /** The location of the index resources. */
+    static final String INDEX_DIRECTORY = "META-INF/guice-fx/index/";
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(AnnotationIndex.class.getName());
+
+    /** The binary names of the listed classes. */
+    private final Set<String> classNames;
+
+    /** The locations of the indexed classpath roots. */
+    private final Set<String> roots;
+
+    /** Whether the classes of a protection domain have been indexed. */
+    private final ConcurrentMap<ProtectionDomain, Boolean> indexedDomains = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new annotation index.
+     * @param classNames
+     *            the binary names of the listed classes
+     * @param roots
+     *            the locations of the indexed classpath roots
+     */
+    private AnnotationIndex(final Set<String> classNames, final Set<String> roots) {
+        super();
+        this.classNames = classNames;
+        this.roots = roots;
+    }
+
+    /**
+     * Gets a matcher for the types that may carry an annotation or declare fields that carry it,
+     * according to the index of the context class loader.
+     * @param annotation
+     *            the annotation
+     * @return the matcher, {@link Matchers#any()} if no classpath root has been indexed
+     */
+    public static Matcher<? super TypeLiteral<?>> typesWith(
+            final Class<? extends Annotation> annotation) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = AnnotationIndex.class.getClassLoader();
+        }
+        final AnnotationIndex index = load(annotation, loader);
+        if (index.roots.isEmpty()) {
+            return Matchers.any();
+        }
+        return new AbstractMatcher<TypeLiteral<?>>() {
+            @Override
+            public boolean matches(final TypeLiteral<?> typeLiteral) {
+                return index.mayBeAnnotated(typeLiteral.getRawType());
+            }
+
+            @Override
+            public String toString() {
+                return "typesWith(" + annotation.getName() + ")";
+            }
+        };
+    }
+
+    /**
+     * Loads the index of an annotation from all classpath roots of a class loader.
+     * @param annotation
+     *            the annotation
+     * @param loader
+     *            the class loader
+     * @return the index, with no roots if none has been indexed
+     */
+    public static AnnotationIndex load(final Class<? extends Annotation> annotation,
+            final ClassLoader loader) {
+        final String resource = INDEX_DIRECTORY + annotation.getName();
+        final Set<String> classNames = new HashSet<>();
+        final Set<String> roots = new HashSet<>();
+        try {
+            final Enumeration<URL> urls = loader.getResources(resource);
+            while (urls.hasMoreElements()) {
+                final URL url = urls.nextElement();
+                final String root = getRoot(url.toExternalForm(), resource);
+                if (root != null && read(url, classNames)) {
+                    roots.add(root);
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Cannot read '%s'.", resource), e);
+        }
+        return new AnnotationIndex(Collections.unmodifiableSet(classNames),
+                Collections.unmodifiableSet(roots));
+    }
+
+    /**
+     * Checks whether a class may carry the annotation or declare fields that carry it.
+     * @param type
+     *            the class
+     * @return {@code false} only if the class certainly does not
+     */
+    public boolean mayBeAnnotated(final Class<?> type) {
+        if (type.getClassLoader() == null) {
+            // Classes of the platform do not use Guice-fx annotations.
+            return false;
+        }
+        final String name = type.getName();
+        return this.classNames.contains(name) || !isIndexed(type.getProtectionDomain())
+                || isLocalOrAnonymous(name);
+    }
+
+    /**
+     * Checks whether the classes of a protection domain have been indexed.
+     * @param domain
+     *            the protection domain
+     * @return {@code true} if the classpath root of the domain has an index
+     */
+    private boolean isIndexed(final ProtectionDomain domain) {
+        if (domain == null) {
+            return false;
+        }
+        Boolean indexed = this.indexedDomains.get(domain);
+        if (indexed == null) {
+            final CodeSource codeSource = domain.getCodeSource();
+            final URL location = codeSource == null ? null : codeSource.getLocation();
+            indexed = Boolean.valueOf(location != null
+                    && this.roots.contains(location.toExternalForm()));
+            this.indexedDomains.putIfAbsent(domain, indexed);
+        }
+        return indexed.booleanValue();
+    }
+
+    /**
+     * Reads the class names of an index.
+     * @param url
+     *            the location of the index
+     * @param classNames
+     *            the class names to add to
+     * @return {@code true} if the index has been read
+     */
+    private static boolean read(final URL url, final Set<String> classNames) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    classNames.add(line);
+                }
+            }
+            return true;
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Cannot read '%s'.", url), e);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the location of the classpath root of a resource, in the form of
+     * {@link CodeSource#getLocation()}.
+     * @param url
+     *            the location of the resource
+     * @param resource
+     *            the name of the resource
+     * @return the location of the root or {@code null} if it cannot be determined
+     */
+    private static String getRoot(final String url, final String resource) {
+        if (!url.endsWith(resource)) {
+            return null;
+        }
+        final String root = url.substring(0, url.length() - resource.length());
+        if (root.startsWith("jar:") && root.endsWith("!/")) {
+            return root.substring("jar:".length(), root.length() - "!/".length());
+        }
+        return root;
+    }
+
+    /**
+     * Checks whether a class is a local or anonymous class, judging from its binary name.
+     * @param name
+     *            the binary name
+     * @return {@code true} if the simple name of the class starts with a digit
+     */
+    private static boolean isLocalOrAnonymous(final String name) {
+        final int index = name.lastIndexOf('$');
+        return index >= 0 && index + 1 < name.length()
+                && Character.isDigit(name.charAt(index + 1));
+    }
+
+}
@@ -0,0 +1,448 @@
+package org.xine.fx.guice.prefs;
+
+import org.xine.fx.guice.PersistentProperty.NodeType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link PersistentPropertyStorage} that keeps all values in an append-only log in a
+ * memory-mapped file.
+ * <p>
+ * The log is read once when the storage is opened; afterwards values are served from memory and
+ * every changed value is appended to the mapped file, without parsing or rewriting anything.
+ * Superseded records are dropped by compacting the log in place, which happens as soon as they take
+ * up more space than the live records.
+ * </p>
+ * <p>
+ * A record only becomes visible once its length has been written, so that a record that is cut off
+ * by a crash is ignored on the next start. The compacted log is written to a journal file next to
+ * the log before the log is rewritten, so that a compaction that is interrupted by a crash is
+ * completed on the next start. Since the mapped file is never replaced or truncated while it is in
+ * use, this works on all platforms, including Windows. The file must not be shared by several
+ * processes.
+ * </p>
+ * <p>
+ * The file never shrinks while it is open. When it grows, the mapped region is doubled; the
+ * previous mapping is released by the garbage collector, since Java offers no way to unmap a file.
+ * </p>
+ * <pre>
+ * modules.add(new PersistentPropertyModule(new MappedFileStorage(Paths.get(
+ *         System.getProperty("user.home"), ".myapp", "settings.log")), 500, TimeUnit.MILLISECONDS));
+ * </pre>
+ */
+public final class MappedFileStorage implements PersistentPropertyStorage {
+
+    /** The magic number at the start of the file. */
+    private static final int MAGIC = 0x47465850;
+
+    /** The version of the file format. */
+    private static final int VERSION = 1;
+
+    /** The size of the file header. */
+    private static final int HEADER_SIZE = 8;
+
+    /** The minimum size of the mapped region. */
+    private static final int MINIMUM_CAPACITY = 64 * 1024;
+
+    /** The file. */
+    private final Path file;
+
+    /** The live records by ID. */
+    private final Map<String, Record> records = new HashMap<>();
+
+    /** The mapped file. */
+    private MappedByteBuffer buffer;
+
+    /** The position at which the next record is appended. */
+    private int position;
+
+    /** The size of all live records. */
+    private int liveBytes;
+
+    /**
+     * Instantiates a new storage, creating the file if it does not exist.
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the file cannot be read or created, or if it is no storage file
+     */
+    public MappedFileStorage(final Path file) throws IOException {
+        super();
+        this.file = file.toAbsolutePath();
+        if (this.file.getParent() != null) {
+            Files.createDirectories(this.file.getParent());
+        }
+        recover();
+        final long size = Files.exists(this.file) ? Files.size(this.file) : 0;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Storage file '%s' is too large.", this.file));
+        }
+        this.buffer = map(this.file, Math.max(MINIMUM_CAPACITY, (int) size));
+        if (size == 0) {
+            this.buffer.putInt(0, MAGIC);
+            this.buffer.putInt(4, VERSION);
+            this.position = HEADER_SIZE;
+        } else {
+            read();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#get(org.xine.fx.guice.PersistentProperty.NodeType, java.lang.Class, java.lang.String)
+     */
+    @Override
+    public synchronized String get(final NodeType type, final Class<?> nodeClass,
+            final String key) {
+        final Record record = this.records.get(getId(type, nodeClass, key));
+        return record == null ? null : record.value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#put(org.xine.fx.guice.PersistentProperty.NodeType, java.lang.Class, java.lang.String, java.lang.String)
+     */
+    @Override
+    public synchronized void put(final NodeType type, final Class<?> nodeClass, final String key,
+            final String value) {
+        final String id = getId(type, nodeClass, key);
+        final Record existing = this.records.get(id);
+        if (existing != null && existing.value.equals(value)) {
+            return;
+        }
+        final byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        final int size = getRecordSize(idBytes, valueBytes);
+        try {
+            ensureCapacity(size);
+        } catch (final IOException e) {
+            throw new IllegalStateException(String.format("Cannot write storage file '%s'.",
+                    this.file), e);
+        }
+        append(this.buffer, this.position, idBytes, valueBytes);
+        this.position += size;
+        this.records.put(id, new Record(value, size));
+        this.liveBytes += size - (existing == null ? 0 : existing.size);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#preload(org.xine.fx.guice.PersistentProperty.NodeType, java.lang.Class)
+     */
+    @Override
+    public void preload(final NodeType type, final Class<?> nodeClass) {
+        // All values have been read when the storage was opened.
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#flush()
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (getDeadBytes() > Math.max(this.liveBytes, MINIMUM_CAPACITY / 2)) {
+            compact();
+        } else {
+            this.buffer.force();
+        }
+    }
+
+    /**
+     * Makes room for a record, compacting the log or growing the mapped region if necessary.
+     * @param size
+     *            the size of the record
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void ensureCapacity(final int size) throws IOException {
+        if (getDeadBytes() > Math.max(this.liveBytes, MINIMUM_CAPACITY / 2)) {
+            compact();
+        }
+        if (this.position + size > this.buffer.capacity()) {
+            final long capacity = Math.max(2L * this.buffer.capacity(),
+                    2L * (this.position + size));
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Storage file '%s' is too large.", this.file));
+            }
+            this.buffer.force();
+            this.buffer = map(this.file, (int) capacity);
+        }
+    }
+
+    /**
+     * Rewrites the log in place with the live records only.
+     * <p>
+     * The compacted log is written to the journal first and removed once the mapped file has been
+     * rewritten and forced. The records following the compacted log are cleared, so that they are
+     * not read as part of the log.
+     * </p>
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void compact() throws IOException {
+        final ByteBuffer image = ByteBuffer.allocate(HEADER_SIZE + this.liveBytes);
+        int pos = HEADER_SIZE;
+        for (final Map.Entry<String, Record> entry : this.records.entrySet()) {
+            final byte[] idBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            final byte[] valueBytes = entry.getValue().value.getBytes(StandardCharsets.UTF_8);
+            append(image, pos, idBytes, valueBytes);
+            pos += getRecordSize(idBytes, valueBytes);
+        }
+        image.putInt(0, MAGIC);
+        image.putInt(4, VERSION);
+        final Path journal = getJournal();
+        writeJournal(journal, image);
+
+        final ByteBuffer view = this.buffer.duplicate();
+        view.position(HEADER_SIZE);
+        image.position(HEADER_SIZE);
+        view.put(image);
+        view.put(new byte[this.position - pos]);
+        this.buffer.force();
+        Files.delete(journal);
+
+        this.position = pos;
+        this.liveBytes = pos - HEADER_SIZE;
+    }
+
+    /**
+     * Writes the compacted log to the journal. The header is written last, so that only a
+     * complete journal is recovered.
+     * @param journal
+     *            the journal
+     * @param image
+     *            the compacted log, including its header
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static void writeJournal(final Path journal, final ByteBuffer image)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer body = image.duplicate();
+            body.position(HEADER_SIZE);
+            writeFully(channel, body, HEADER_SIZE);
+            channel.force(false);
+            final ByteBuffer header = image.duplicate();
+            header.limit(HEADER_SIZE);
+            writeFully(channel, header, 0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Completes a compaction that has been interrupted, or discards an incomplete journal.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void recover() throws IOException {
+        final Path journal = getJournal();
+        if (!Files.exists(journal)) {
+            return;
+        }
+        final ByteBuffer image = ByteBuffer.wrap(Files.readAllBytes(journal));
+        if (image.capacity() >= HEADER_SIZE && image.getInt(0) == MAGIC
+                && image.getInt(4) == VERSION) {
+            // The log may have been rewritten partially.
+            try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                channel.truncate(0);
+                writeFully(channel, image, 0);
+                channel.force(true);
+            }
+        }
+        Files.delete(journal);
+    }
+
+    /**
+     * Gets the journal of compactions.
+     * @return the path of the journal
+     */
+    private Path getJournal() {
+        return this.file.resolveSibling(this.file.getFileName() + ".compacting");
+    }
+
+    /**
+     * Reads all records of the log.
+     * @throws IOException
+     *             if the file is no storage file
+     */
+    private void read() throws IOException {
+        if (this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("'%s' is no storage file.", this.file));
+        }
+        int pos = HEADER_SIZE;
+        while (pos + 4 <= this.buffer.capacity()) {
+            final int length = this.buffer.getInt(pos);
+            if (length <= 8 || pos + 4 + length > this.buffer.capacity()) {
+                // End of the log, or a record that has not been completed.
+                break;
+            }
+            final int idLength = this.buffer.getInt(pos + 4);
+            if (idLength < 0 || idLength > length - 8) {
+                break;
+            }
+            final int valueLength = this.buffer.getInt(pos + 8 + idLength);
+            if (valueLength != length - 8 - idLength) {
+                break;
+            }
+            final String id = decode(pos + 8, idLength);
+            final String value = decode(pos + 12 + idLength, valueLength);
+            final int size = 4 + length;
+            final Record existing = this.records.put(id, new Record(value, size));
+            this.liveBytes += size - (existing == null ? 0 : existing.size);
+            pos += size;
+        }
+        this.position = pos;
+    }
+
+    /**
+     * Decodes a string of the mapped file.
+     * @param offset
+     *            the offset
+     * @param length
+     *            the length in bytes
+     * @return the string
+     */
+    private String decode(final int offset, final int length) {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = this.buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the size of all superseded records.
+     * @return the number of bytes
+     */
+    private int getDeadBytes() {
+        return this.position - HEADER_SIZE - this.liveBytes;
+    }
+
+    /**
+     * Maps a file.
+     * @param path
+     *            the file
+     * @param capacity
+     *            the size of the mapped region
+     * @return the mapped region
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static MappedByteBuffer map(final Path path, final int capacity) throws IOException {
+        // The mapping stays valid after the channel has been closed.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel.
+     * @param channel
+     *            the channel
+     * @param source
+     *            the buffer
+     * @param offset
+     *            the position in the channel of the first remaining byte
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static void writeFully(final FileChannel channel, final ByteBuffer source,
+            final long offset) throws IOException {
+        final int start = source.position();
+        while (source.hasRemaining()) {
+            channel.write(source, offset + source.position() - start);
+        }
+    }
+
+    /**
+     * Appends a record.
+     * @param target
+     *            the mapped region or compacted log
+     * @param offset
+     *            the offset of the record
+     * @param idBytes
+     *            the encoded ID
+     * @param valueBytes
+     *            the encoded value
+     */
+    private static void append(final ByteBuffer target, final int offset,
+            final byte[] idBytes, final byte[] valueBytes) {
+        final ByteBuffer view = target.duplicate();
+        view.position(offset + 4);
+        view.putInt(idBytes.length);
+        view.put(idBytes);
+        view.putInt(valueBytes.length);
+        view.put(valueBytes);
+        // The length is written last, making the record visible.
+        target.putInt(offset, getRecordSize(idBytes, valueBytes) - 4);
+    }
+
+    /**
+     * Gets the size of a record.
+     * @param idBytes
+     *            the encoded ID
+     * @param valueBytes
+     *            the encoded value
+     * @return the number of bytes
+     */
+    private static int getRecordSize(final byte[] idBytes, final byte[] valueBytes) {
+        return 12 + idBytes.length + valueBytes.length;
+    }
+
+    /**
+     * Gets the ID of a value, which is unique across all nodes.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package of the node
+     * @param key
+     *            the key
+     * @return the ID
+     */
+    private static String getId(final NodeType type, final Class<?> nodeClass, final String key) {
+        final String className = nodeClass.getName();
+        final int index = className.lastIndexOf('.');
+        final String packageName = index < 0 ? "" : className.substring(0, index);
+        return type.name() + ':' + packageName + '\u0000' + key;
+    }
+
+    /**
+     * A live record.
+     */
+    private static final class Record {
+
+        /** The value. */
+        private final String value;
+
+        /** The size of the record in the log. */
+        private final int size;
+
+        /**
+         * Instantiates a new record.
+         * @param value
+         *            the value
+         * @param size
+         *            the size of the record in the log
+         */
+        private Record(final String value, final int size) {
+            super();
+            this.value = value;
+            this.size = size;
+        }
+
+    }
+
+}
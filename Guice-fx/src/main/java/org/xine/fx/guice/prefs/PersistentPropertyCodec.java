@@ -0,0 +1,84 @@
+package org.xine.fx.guice.prefs;
+
+import javafx.util.StringConverter;
+
+/**
+ * Converts the values of {@code ObjectProperty} fields annotated with
+ * {@link org.xine.fx.guice.PersistentProperty} to and from their stored representation.
+ * <p>
+ * Codecs are shared by all fields and must therefore be thread-safe. Additional codecs can be
+ * contributed through Guice:
+ * </p>
+ * <pre>
+ * PersistentPropertyModule.codecBinder(binder()).addBinding().toInstance(
+ *         PersistentPropertyCodec.of(Money.class, new MoneyStringConverter()));
+ * </pre>
+ * @param <T>
+ *            the type of the values
+ * @see PersistentPropertyCodecRegistry
+ */
+public abstract class PersistentPropertyCodec<T> {
+
+    /** The type of the values. */
+    private final Class<T> type;
+
+    /**
+     * Instantiates a new persistent property codec.
+     * @param type
+     *            the type of the values
+     */
+    protected PersistentPropertyCodec(final Class<T> type) {
+        super();
+        this.type = type;
+    }
+
+    /**
+     * Creates a codec that delegates to a JavaFX {@link StringConverter}.
+     * @param <T>
+     *            the type of the values
+     * @param type
+     *            the type of the values
+     * @param converter
+     *            a thread-safe string converter
+     * @return the codec
+     */
+    public static <T> PersistentPropertyCodec<T> of(final Class<T> type,
+            final StringConverter<T> converter) {
+        return new PersistentPropertyCodec<T>(type) {
+            @Override
+            public String encode(final T value) {
+                return converter.toString(value);
+            }
+
+            @Override
+            public T decode(final String value) {
+                return converter.fromString(value);
+            }
+        };
+    }
+
+    /**
+     * Gets the type of the values.
+     * @return the type
+     */
+    public final Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * Converts a value to its stored representation.
+     * @param value
+     *            the value, never {@code null}
+     * @return the stored representation
+     */
+    public abstract String encode(T value);
+
+    /**
+     * Converts a stored representation back to a value.
+     * @param value
+     *            the stored representation, never empty
+     * @return the value
+     */
+    public abstract T decode(String value);
+
+}
@@ -0,0 +1,96 @@
+package org.xine.fx.guice.prefs;
+
+import org.xine.fx.guice.prefs.PersistentPropertyFieldCodec.ObjectFieldCodec;
+
+import com.google.inject.Inject;
+import com.google.inject.spi.TypeEncounter;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that there is a {@link PersistentPropertyCodec} for every {@code ObjectProperty} field
+ * while the injector is created.
+ * <p>
+ * The codecs contributed through
+ * {@link PersistentPropertyModule#codecBinder(com.google.inject.Binder)} are only known once the
+ * injector has been created. Fields of types bound in modules are therefore collected while they
+ * are heard and checked as soon as the injector injects the {@link PersistentPropertyCodecRegistry}
+ * into this checker; a missing codec fails the creation of the injector. Fields of types heard
+ * afterwards, e.g. just-in-time bindings, are checked right away and a missing codec is reported
+ * as an error of the type. The fields look up their codecs themselves, on first use.
+ * </p>
+ */
+final class PersistentPropertyCodecChecker {
+
+    /** The codecs of the fields heard before the registry has been injected, with their fields. */
+    private final Map<ObjectFieldCodec, Field> unchecked = new LinkedHashMap<>();
+
+    /** The registry, once it has been injected. */
+    private volatile PersistentPropertyCodecRegistry registry;
+
+    /**
+     * Instantiates a new codec checker.
+     */
+    PersistentPropertyCodecChecker() {
+        super();
+    }
+
+    /**
+     * Checks the codec of a field, or collects it until the registry has been injected.
+     * @param field
+     *            the field
+     * @param codec
+     *            the codec of the field
+     * @param typeEncounter
+     *            the encounter of the declaring type, to report a missing codec to
+     */
+    void check(final Field field, final ObjectFieldCodec codec,
+            final TypeEncounter<?> typeEncounter) {
+        synchronized (this.unchecked) {
+            if (this.registry == null) {
+                this.unchecked.put(codec, field);
+                return;
+            }
+        }
+        if (this.registry.getCodec(codec.getValueType()) == null) {
+            typeEncounter.addError(
+                    "Can't find persistent property codec for class '%s' of field %s.", codec
+                            .getValueType().getName(), field);
+        }
+    }
+
+    /**
+     * Sets the registry and checks the codecs of all fields heard so far. Called by the injector
+     * while it is created.
+     * @param codecRegistry
+     *            the registry
+     * @throws IllegalStateException
+     *             if there is no codec for the value type of a field
+     */
+    @Inject
+    void setRegistry(final PersistentPropertyCodecRegistry codecRegistry)
+            throws IllegalStateException {
+        final List<String> missing = new ArrayList<>();
+        synchronized (this.unchecked) {
+            for (final Map.Entry<ObjectFieldCodec, Field> entry : this.unchecked.entrySet()) {
+                final ObjectFieldCodec codec = entry.getKey();
+                if (codecRegistry.getCodec(codec.getValueType()) == null) {
+                    final Field field = entry.getValue();
+                    missing.add(String.format("class '%s' of field %s.%s", codec.getValueType()
+                            .getName(), field.getDeclaringClass().getName(), field.getName()));
+                }
+            }
+            this.unchecked.clear();
+            this.registry = codecRegistry;
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException(String.format(
+                    "Can't find persistent property codecs for %s.", missing));
+        }
+    }
+
+}
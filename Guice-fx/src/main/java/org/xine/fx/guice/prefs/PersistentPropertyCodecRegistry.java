@@ -0,0 +1,263 @@
+package org.xine.fx.guice.prefs;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link PersistentPropertyCodec}s of {@code ObjectProperty} fields annotated with
+ * {@link org.xine.fx.guice.PersistentProperty}.
+ * <p>
+ * Besides the built-in codecs for strings, primitive wrappers, {@link BigDecimal},
+ * {@link BigInteger}, {@link Date}, the {@code java.time} types and all enum types, the registry
+ * holds every codec contributed through
+ * {@link PersistentPropertyModule#codecBinder(com.google.inject.Binder)}. Contributed codecs take
+ * precedence over the built-in ones. Dates and times are stored in their ISO-8601 representation.
+ * </p>
+ */
+@Singleton
+public final class PersistentPropertyCodecRegistry {
+
+    /** The codecs by type. */
+    private final ConcurrentMap<Class<?>, PersistentPropertyCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new registry with the built-in codecs only.
+     */
+    public PersistentPropertyCodecRegistry() {
+        this(Collections.<PersistentPropertyCodec<?>> emptySet());
+    }
+
+    /**
+     * Instantiates a new registry.
+     * @param contributions
+     *            the codecs contributed through Guice
+     */
+    @Inject
+    public PersistentPropertyCodecRegistry(final Set<PersistentPropertyCodec<?>> contributions) {
+        super();
+
+        // String and primitive wrappers
+        register(new PersistentPropertyCodec<String>(String.class) {
+            @Override
+            public String encode(final String value) {
+                return value;
+            }
+
+            @Override
+            public String decode(final String value) {
+                return value;
+            }
+        });
+        register(new ToStringCodec<Boolean>(Boolean.class) {
+            @Override
+            public Boolean decode(final String value) {
+                return Boolean.valueOf(value);
+            }
+        });
+        register(new ToStringCodec<Integer>(Integer.class) {
+            @Override
+            public Integer decode(final String value) {
+                return Integer.valueOf(value);
+            }
+        });
+        register(new ToStringCodec<Long>(Long.class) {
+            @Override
+            public Long decode(final String value) {
+                return Long.valueOf(value);
+            }
+        });
+        register(new ToStringCodec<Float>(Float.class) {
+            @Override
+            public Float decode(final String value) {
+                return Float.valueOf(value);
+            }
+        });
+        register(new ToStringCodec<Double>(Double.class) {
+            @Override
+            public Double decode(final String value) {
+                return Double.valueOf(value);
+            }
+        });
+        register(new ToStringCodec<BigDecimal>(BigDecimal.class) {
+            @Override
+            public BigDecimal decode(final String value) {
+                return new BigDecimal(value);
+            }
+        });
+        register(new ToStringCodec<BigInteger>(BigInteger.class) {
+            @Override
+            public BigInteger decode(final String value) {
+                return new BigInteger(value);
+            }
+        });
+
+        // Dates and times
+        register(new PersistentPropertyCodec<Date>(Date.class) {
+            @Override
+            public String encode(final Date value) {
+                return value.toInstant().toString();
+            }
+
+            @Override
+            public Date decode(final String value) {
+                return Date.from(Instant.parse(value));
+            }
+        });
+        register(new ToStringCodec<Instant>(Instant.class) {
+            @Override
+            public Instant decode(final String value) {
+                return Instant.parse(value);
+            }
+        });
+        register(new ToStringCodec<LocalDate>(LocalDate.class) {
+            @Override
+            public LocalDate decode(final String value) {
+                return LocalDate.parse(value);
+            }
+        });
+        register(new ToStringCodec<LocalTime>(LocalTime.class) {
+            @Override
+            public LocalTime decode(final String value) {
+                return LocalTime.parse(value);
+            }
+        });
+        register(new ToStringCodec<LocalDateTime>(LocalDateTime.class) {
+            @Override
+            public LocalDateTime decode(final String value) {
+                return LocalDateTime.parse(value);
+            }
+        });
+        register(new ToStringCodec<OffsetDateTime>(OffsetDateTime.class) {
+            @Override
+            public OffsetDateTime decode(final String value) {
+                return OffsetDateTime.parse(value);
+            }
+        });
+        register(new ToStringCodec<ZonedDateTime>(ZonedDateTime.class) {
+            @Override
+            public ZonedDateTime decode(final String value) {
+                return ZonedDateTime.parse(value);
+            }
+        });
+        register(new ToStringCodec<Duration>(Duration.class) {
+            @Override
+            public Duration decode(final String value) {
+                return Duration.parse(value);
+            }
+        });
+
+        // Contributions override the built-in codecs.
+        for (final PersistentPropertyCodec<?> contribution : contributions) {
+            register(contribution);
+        }
+    }
+
+    /**
+     * Gets the codec for the given type.
+     * @param <T>
+     *            the generic type
+     * @param type
+     *            the type
+     * @return the codec or {@code null} if values of the given type cannot be stored
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    public <T> PersistentPropertyCodec<T> getCodec(final Class<T> type) {
+        PersistentPropertyCodec<?> codec = this.codecs.get(type);
+        if (codec == null && type.isEnum()) {
+            codec = new EnumCodec(type);
+            final PersistentPropertyCodec<?> existing = this.codecs.putIfAbsent(type, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return (PersistentPropertyCodec<T>) codec;
+    }
+
+    /**
+     * Registers a codec.
+     * @param codec
+     *            the codec
+     */
+    private void register(final PersistentPropertyCodec<?> codec) {
+        this.codecs.put(codec.getType(), codec);
+    }
+
+    /**
+     * Codec of values whose {@link Object#toString()} is their stored representation.
+     * @param <T>
+     *            the type of the values
+     */
+    private abstract static class ToStringCodec<T> extends PersistentPropertyCodec<T> {
+
+        /**
+         * Instantiates a new to string codec.
+         * @param type
+         *            the type of the values
+         */
+        ToStringCodec(final Class<T> type) {
+            super(type);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyCodec#encode(java.lang.Object)
+         */
+        @Override
+        public String encode(final T value) {
+            return value.toString();
+        }
+
+    }
+
+    /**
+     * Codec of enum constants, stored by name.
+     * @param <E>
+     *            the enum type
+     */
+    private static final class EnumCodec<E extends Enum<E>> extends PersistentPropertyCodec<E> {
+
+        /**
+         * Instantiates a new enum codec.
+         * @param type
+         *            the enum type
+         */
+        EnumCodec(final Class<E> type) {
+            super(type);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyCodec#encode(java.lang.Object)
+         */
+        @Override
+        public String encode(final E value) {
+            return value.name();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyCodec#decode(java.lang.String)
+         */
+        @Override
+        public E decode(final String value) {
+            return Enum.valueOf(getType(), value);
+        }
+
+    }
+
+}
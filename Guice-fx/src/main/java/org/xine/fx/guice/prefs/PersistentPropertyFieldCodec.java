@@ -0,0 +1,331 @@
+package org.xine.fx.guice.prefs;
+
+import com.google.inject.Provider;
+import com.google.inject.TypeLiteral;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import javafx.beans.property.Property;
+import javafx.beans.value.WritableBooleanValue;
+import javafx.beans.value.WritableDoubleValue;
+import javafx.beans.value.WritableFloatValue;
+import javafx.beans.value.WritableIntegerValue;
+import javafx.beans.value.WritableLongValue;
+import javafx.beans.value.WritableStringValue;
+import javafx.beans.value.WritableValue;
+
+/**
+ * The precomputed codec of a single {@link org.xine.fx.guice.PersistentProperty} field.
+ * <p>
+ * Codecs are created once per field, when its type is bound. Properties of primitive values are
+ * read and written through their typed accessors, e.g. {@link WritableIntegerValue#set(int)},
+ * without boxing; {@code ObjectProperty} fields use the {@link PersistentPropertyCodec} of their
+ * value type, which is looked up in the {@link PersistentPropertyCodecRegistry} on first use.
+ * </p>
+ */
+abstract class PersistentPropertyFieldCodec {
+
+    /**
+     * Instantiates a new persistent property field codec.
+     */
+    PersistentPropertyFieldCodec() {
+        super();
+    }
+
+    /**
+     * Creates the codec of a field.
+     * @param fieldType
+     *            the resolved type of the field
+     * @param codecRegistry
+     *            the provider of the registry of the codecs of object values
+     * @return the codec or {@code null} if values of the field cannot be stored
+     */
+    static PersistentPropertyFieldCodec create(final TypeLiteral<?> fieldType,
+            final Provider<PersistentPropertyCodecRegistry> codecRegistry) {
+        final Class<?> rawType = fieldType.getRawType();
+        if (WritableStringValue.class.isAssignableFrom(rawType)) {
+            return new StringFieldCodec();
+        } else if (WritableBooleanValue.class.isAssignableFrom(rawType)) {
+            return new BooleanFieldCodec();
+        } else if (WritableIntegerValue.class.isAssignableFrom(rawType)) {
+            return new IntegerFieldCodec();
+        } else if (WritableLongValue.class.isAssignableFrom(rawType)) {
+            return new LongFieldCodec();
+        } else if (WritableDoubleValue.class.isAssignableFrom(rawType)) {
+            return new DoubleFieldCodec();
+        } else if (WritableFloatValue.class.isAssignableFrom(rawType)) {
+            return new FloatFieldCodec();
+        } else if (Property.class.isAssignableFrom(rawType)) {
+            final Type propertyType = fieldType.getSupertype(Property.class).getType();
+            if (propertyType instanceof ParameterizedType) {
+                final Type valueType = ((ParameterizedType) propertyType).getActualTypeArguments()[0];
+                if (valueType instanceof Class) {
+                    return new ObjectFieldCodec((Class<?>) valueType, codecRegistry);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of a property.
+     * @param property
+     *            the property
+     * @param value
+     *            the stored representation of the value, never empty
+     */
+    abstract void decode(Object property, String value);
+
+    /**
+     * Gets the value of a property.
+     * @param property
+     *            the property
+     * @return the stored representation of the value, empty if the value is {@code null}
+     */
+    abstract String encode(Object property);
+
+    /**
+     * Codec of {@code String} properties.
+     */
+    private static final class StringFieldCodec extends PersistentPropertyFieldCodec {
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableStringValue) property).set(value);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @Override
+        String encode(final Object property) {
+            final String value = ((WritableStringValue) property).get();
+            return value == null ? "" : value;
+        }
+
+    }
+
+    /**
+     * Codec of {@code boolean} properties.
+     */
+    private static final class BooleanFieldCodec extends PersistentPropertyFieldCodec {
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableBooleanValue) property).set(Boolean.parseBoolean(value));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @Override
+        String encode(final Object property) {
+            return Boolean.toString(((WritableBooleanValue) property).get());
+        }
+
+    }
+
+    /**
+     * Codec of {@code int} properties.
+     */
+    private static final class IntegerFieldCodec extends PersistentPropertyFieldCodec {
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableIntegerValue) property).set(Integer.parseInt(value));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @Override
+        String encode(final Object property) {
+            return Integer.toString(((WritableIntegerValue) property).get());
+        }
+
+    }
+
+    /**
+     * Codec of {@code long} properties.
+     */
+    private static final class LongFieldCodec extends PersistentPropertyFieldCodec {
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableLongValue) property).set(Long.parseLong(value));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @Override
+        String encode(final Object property) {
+            return Long.toString(((WritableLongValue) property).get());
+        }
+
+    }
+
+    /**
+     * Codec of {@code double} properties.
+     */
+    private static final class DoubleFieldCodec extends PersistentPropertyFieldCodec {
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableDoubleValue) property).set(Double.parseDouble(value));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @Override
+        String encode(final Object property) {
+            return Double.toString(((WritableDoubleValue) property).get());
+        }
+
+    }
+
+    /**
+     * Codec of {@code float} properties.
+     */
+    private static final class FloatFieldCodec extends PersistentPropertyFieldCodec {
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableFloatValue) property).set(Float.parseFloat(value));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @Override
+        String encode(final Object property) {
+            return Float.toString(((WritableFloatValue) property).get());
+        }
+
+    }
+
+    /**
+     * Codec of {@code ObjectProperty} properties, using the {@link PersistentPropertyCodec} of
+     * their value type.
+     */
+    static final class ObjectFieldCodec extends PersistentPropertyFieldCodec {
+
+        /** The value type. */
+        private final Class<?> valueType;
+
+        /**
+         * The provider of the registry. The registry is looked up on first use rather than injected,
+         * since instances bound in modules may be injected before any other object.
+         */
+        private final Provider<PersistentPropertyCodecRegistry> codecRegistry;
+
+        /** The codec of the value type, {@code null} until it has been looked up. */
+        private volatile PersistentPropertyCodec<Object> codec;
+
+        /**
+         * Instantiates a new object field codec.
+         * @param valueType
+         *            the value type
+         * @param codecRegistry
+         *            the provider of the registry of the codecs
+         */
+        ObjectFieldCodec(final Class<?> valueType,
+                final Provider<PersistentPropertyCodecRegistry> codecRegistry) {
+            super();
+            this.valueType = valueType;
+            this.codecRegistry = codecRegistry;
+        }
+
+        /**
+         * Gets the value type.
+         * @return the value type
+         */
+        Class<?> getValueType() {
+            return this.valueType;
+        }
+
+        /**
+         * Gets the codec of the value type, looking it up on first use.
+         * @return the codec
+         * @throws IllegalStateException
+         *             if there is no codec for the value type
+         */
+        @SuppressWarnings("unchecked")
+        private PersistentPropertyCodec<Object> getCodec() throws IllegalStateException {
+            PersistentPropertyCodec<Object> valueCodec = this.codec;
+            if (valueCodec == null) {
+                valueCodec = (PersistentPropertyCodec<Object>) this.codecRegistry.get().getCodec(
+                        this.valueType);
+                if (valueCodec == null) {
+                    throw new IllegalStateException(String.format(
+                            "Can't find persistent property codec for class '%s'.",
+                            this.valueType.getName()));
+                }
+                this.codec = valueCodec;
+            }
+            return valueCodec;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#decode(java.lang.Object,
+         * java.lang.String)
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        void decode(final Object property, final String value) {
+            ((WritableValue<Object>) property).setValue(getCodec().decode(value));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyFieldCodec#encode(java.lang.Object)
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        String encode(final Object property) {
+            final Object value = ((WritableValue<Object>) property).getValue();
+            return value == null ? "" : getCodec().encode(value);
+        }
+
+    }
+
+}
@@ -1,20 +1,106 @@
 package org.xine.fx.guice.prefs;
 
+import org.xine.fx.guice.PersistentProperty;
+import org.xine.fx.guice.index.AnnotationIndex;
+
 import com.google.inject.AbstractModule;
-import com.google.inject.matcher.Matchers;
+import com.google.inject.Binder;
+import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Class PersistentPropertyModule.
  */
 public final class PersistentPropertyModule extends AbstractModule {
 
+    /** The Constant CODEC_TYPE. */
+    private static final TypeLiteral<PersistentPropertyCodec<?>> CODEC_TYPE = new TypeLiteral<PersistentPropertyCodec<?>>() {
+        // Intentionally left empty.
+    };
+
+    /** The storage of the values. */
+    private final PersistentPropertyStorage storage;
+
+    /** The flush interval of the writer, in nanoseconds. */
+    private final long flushIntervalNanos;
+
+    /**
+     * Instantiates a new persistent property module that stores values in {@link java.util.prefs
+     * Preferences}.
+     */
+    public PersistentPropertyModule() {
+        this(PersistentPropertyWriter.DEFAULT_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new persistent property module that stores values in {@link java.util.prefs
+     * Preferences}.
+     * @param flushInterval
+     *            the time changed values are kept before they are written
+     * @param unit
+     *            the unit of the flush interval
+     * @see PersistentPropertyWriter
+     */
+    public PersistentPropertyModule(final long flushInterval, final TimeUnit unit) {
+        this(new PreferencesStorage(), flushInterval, unit);
+    }
+
+    /**
+     * Instantiates a new persistent property module.
+     * @param storage
+     *            the storage of the values
+     * @param flushInterval
+     *            the time changed values are kept before they are written
+     * @param unit
+     *            the unit of the flush interval
+     * @see PersistentPropertyWriter
+     */
+    public PersistentPropertyModule(final PersistentPropertyStorage storage,
+            final long flushInterval, final TimeUnit unit) {
+        super();
+        this.storage = storage;
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+    }
+
     /*
      * (non-Javadoc)
      * @see com.google.inject.AbstractModule#configure()
      */
     @Override
     public void configure() {
-        bindListener(Matchers.any(), new PersistentPropertyTypeListener());
+
+        // PersistentPropertyStorage
+        bind(PersistentPropertyStorage.class).toInstance(this.storage);
+
+        // PersistentPropertyWriter
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage,
+                this.flushIntervalNanos, TimeUnit.NANOSECONDS);
+        bind(PersistentPropertyWriter.class).toInstance(writer);
+
+        // PersistentPropertyCodecRegistry
+        codecBinder(binder());
+        bind(PersistentPropertyCodecRegistry.class);
+
+        // Checks the codecs of the fields of bound types while the injector is created.
+        final PersistentPropertyCodecChecker codecChecker = new PersistentPropertyCodecChecker();
+        requestInjection(codecChecker);
+
+        bindListener(AnnotationIndex.typesWith(PersistentProperty.class),
+                new PersistentPropertyTypeListener(writer, codecChecker));
+    }
+
+    /**
+     * Gets the binder to contribute {@link PersistentPropertyCodec}s for the values of
+     * {@code ObjectProperty} fields annotated with {@link org.xine.fx.guice.PersistentProperty}.
+     * @param binder
+     *            the binder of the module that contributes codecs
+     * @return the codec binder
+     * @see PersistentPropertyCodecRegistry
+     */
+    public static Multibinder<PersistentPropertyCodec<?>> codecBinder(final Binder binder) {
+        return Multibinder.newSetBinder(binder, CODEC_TYPE);
     }
 
 }
@@ -0,0 +1,63 @@
+package org.xine.fx.guice.prefs;
+
+import org.xine.fx.guice.PersistentProperty.NodeType;
+
+import java.io.IOException;
+
+/**
+ * The storage of the values of {@link org.xine.fx.guice.PersistentProperty} fields.
+ * <p>
+ * Like {@link java.util.prefs.Preferences}, values are grouped in nodes, one per package and
+ * {@link NodeType}. Implementations must be thread-safe: values are read while properties are
+ * injected and written by the {@link PersistentPropertyWriter} on a background thread.
+ * </p>
+ * @see PersistentPropertyModule#PersistentPropertyModule(PersistentPropertyStorage, long,
+ *      java.util.concurrent.TimeUnit)
+ * @see PreferencesStorage
+ * @see MappedFileStorage
+ */
+public interface PersistentPropertyStorage {
+
+    /**
+     * Gets a value.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package whose node holds the value
+     * @param key
+     *            the key
+     * @return the value or {@code null} if no value is stored
+     */
+    String get(NodeType type, Class<?> nodeClass, String key);
+
+    /**
+     * Stores a value.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package whose node holds the value
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    void put(NodeType type, Class<?> nodeClass, String key, String value);
+
+    /**
+     * Reads all values of a node at once, so that subsequent reads from the node are served from
+     * memory. Storages that keep all values in memory anyway need not do anything.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package of the node
+     */
+    void preload(NodeType type, Class<?> nodeClass);
+
+    /**
+     * Forces all stored values to the backing store.
+     * @throws IOException
+     *             if the values cannot be written
+     */
+    void flush() throws IOException;
+
+}
@@ -20,11 +20,24 @@ import java.lang.reflect.Field;
  */
 class PersistentPropertyTypeListener implements TypeListener {
 
+    /** The writer of changed values. */
+    private final PersistentPropertyWriter writer;
+
+    /** The checker of the codecs of object values. */
+    private final PersistentPropertyCodecChecker codecChecker;
+
     /**
      * Instantiates a new persistent property type listener.
+     * @param writer
+     *            the writer of changed values
+     * @param codecChecker
+     *            the checker of the codecs of object values
      */
-    PersistentPropertyTypeListener() {
+    PersistentPropertyTypeListener(final PersistentPropertyWriter writer,
+            final PersistentPropertyCodecChecker codecChecker) {
         super();
+        this.writer = writer;
+        this.codecChecker = codecChecker;
     }
 
     /*
@@ -37,7 +50,23 @@ class PersistentPropertyTypeListener implements TypeListener {
         for (final Field field : typeLiteral.getRawType().getDeclaredFields()) {
             if (field.isAnnotationPresent(PersistentProperty.class)) {
                 final PersistentProperty annotation = field.getAnnotation(PersistentProperty.class);
-                typeEncounter.register(new PersistentPropertyMembersInjector<T>(field, annotation));
+                // Only collects the node without any I/O. The nodes of the types bound in modules
+                // are read in bulk once the injector has been created.
+                this.writer.addNodeToPreload(annotation.type(), annotation.clazz());
+                final PersistentPropertyFieldCodec codec = PersistentPropertyFieldCodec.create(
+                        typeLiteral.getFieldType(field),
+                        typeEncounter.getProvider(PersistentPropertyCodecRegistry.class));
+                if (codec == null) {
+                    typeEncounter.addError("Cannot persist field %s of type %s.", field,
+                            field.getGenericType());
+                    continue;
+                }
+                if (codec instanceof PersistentPropertyFieldCodec.ObjectFieldCodec) {
+                    this.codecChecker.check(field,
+                            (PersistentPropertyFieldCodec.ObjectFieldCodec) codec, typeEncounter);
+                }
+                typeEncounter.register(new PersistentPropertyMembersInjector<T>(field, annotation,
+                        codec, this.writer));
             }
         }
     }
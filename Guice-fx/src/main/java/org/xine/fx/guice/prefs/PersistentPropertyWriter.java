@@ -0,0 +1,306 @@
+package org.xine.fx.guice.prefs;
+
+import org.xine.fx.guice.PersistentProperty.NodeType;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the values of {@link org.xine.fx.guice.PersistentProperty} fields behind the changes of
+ * the properties.
+ * <p>
+ * Property changes only record the latest value per key, which is cheap enough to be done on every
+ * change on the JavaFX application thread. The recorded values are written to the
+ * {@link PersistentPropertyStorage} by a background thread once the flush interval has passed;
+ * values that equal the stored ones are skipped. Values are read through
+ * {@link #get(NodeType, Class, String)}, which returns recorded values that have not been written
+ * yet. All recorded values are written when the application stops, either by
+ * {@link org.xine.fx.guice.GuiceApplication#stop()} or, as a last resort, by a shutdown hook.
+ * </p>
+ */
+public final class PersistentPropertyWriter {
+
+    /** The default flush interval in milliseconds. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 500;
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(PersistentPropertyWriter.class.getName());
+
+    /** The storage. */
+    private final PersistentPropertyStorage storage;
+
+    /** The values that have not been written yet. */
+    private final ConcurrentMap<PropertyKey, String> pending = new ConcurrentHashMap<>();
+
+    /** The nodes of the fields that have been bound, by node type, until they are preloaded. */
+    private final Map<NodeType, Set<Class<?>>> nodesToPreload = new EnumMap<>(NodeType.class);
+
+    /** Whether a flush has been scheduled. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Whether the shutdown hook has been registered. */
+    private final AtomicBoolean hooked = new AtomicBoolean();
+
+    /** The flush interval in nanoseconds. */
+    private final long flushIntervalNanos;
+
+    /** Flushes the pending values. */
+    private final Runnable flush = new Runnable() {
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public void run() {
+            PersistentPropertyWriter.this.scheduled.set(false);
+            write(false);
+        }
+    };
+
+    /** The lock that guards the creation of the background thread. */
+    private final Object executorLock = new Object();
+
+    /** The background thread, started on first use. */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Instantiates a new writer with the default flush interval.
+     * @param storage
+     *            the storage
+     */
+    public PersistentPropertyWriter(final PersistentPropertyStorage storage) {
+        this(storage, DEFAULT_FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new writer.
+     * @param storage
+     *            the storage
+     * @param flushInterval
+     *            the time values are kept before they are written
+     * @param unit
+     *            the unit of the flush interval
+     */
+    public PersistentPropertyWriter(final PersistentPropertyStorage storage,
+            final long flushInterval, final TimeUnit unit) {
+        super();
+        this.storage = storage;
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("The flush interval must not be negative.");
+        }
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+        for (final NodeType type : NodeType.values()) {
+            this.nodesToPreload.put(type,
+                    Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>()));
+        }
+    }
+
+    /**
+     * Reads the values of all nodes that have been collected since the last call at once, see
+     * {@link PersistentPropertyStorage#preload(NodeType, Class)}.
+     * <p>
+     * Nodes are collected while the fields of a type are bound, without any I/O. The
+     * {@link org.xine.fx.guice.GuiceApplication} preloads them once the injector has been created.
+     * Nodes that are not preloaded are read on first access.
+     * </p>
+     */
+    public void preload() {
+        for (final Map.Entry<NodeType, Set<Class<?>>> entry : this.nodesToPreload.entrySet()) {
+            for (final Iterator<Class<?>> it = entry.getValue().iterator(); it.hasNext();) {
+                final Class<?> nodeClass = it.next();
+                it.remove();
+                try {
+                    this.storage.preload(entry.getKey(), nodeClass);
+                } catch (final RuntimeException e) {
+                    LOGGER.log(Level.WARNING, String.format("Cannot preload the node of %s.",
+                            nodeClass.getName()), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the node of a field to be {@link #preload() preloaded}.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package of the node
+     */
+    void addNodeToPreload(final NodeType type, final Class<?> nodeClass) {
+        this.nodesToPreload.get(type).add(nodeClass);
+    }
+
+    /**
+     * Gets a value, either the value recorded last or, if it has already been written, the stored
+     * value.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package whose node holds the value
+     * @param key
+     *            the key
+     * @return the value or {@code null} if no value has been recorded or stored
+     */
+    public String get(final NodeType type, final Class<?> nodeClass, final String key) {
+        final String value = this.pending.get(new PropertyKey(type, nodeClass, key));
+        return value != null ? value : this.storage.get(type, nodeClass, key);
+    }
+
+    /**
+     * Records a value to be written, replacing any value of the same key that has not been
+     * written yet.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package whose node holds the value
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void write(final NodeType type, final Class<?> nodeClass, final String key,
+            final String value) {
+        this.pending.put(new PropertyKey(type, nodeClass, key), value);
+
+        if (this.hooked.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, "guice-fx-preferences-shutdown"));
+        }
+        if (this.scheduled.compareAndSet(false, true)) {
+            getExecutor().schedule(this.flush, this.flushIntervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Writes all pending values immediately and forces them to the backing store.
+     */
+    public void flush() {
+        write(true);
+    }
+
+    /**
+     * Writes the pending values.
+     * @param force
+     *            whether to force the values to the backing store
+     */
+    private synchronized void write(final boolean force) {
+        boolean written = false;
+        for (final Map.Entry<PropertyKey, String> entry : this.pending.entrySet()) {
+            final PropertyKey key = entry.getKey();
+            final String value = entry.getValue();
+            try {
+                if (!value.equals(this.storage.get(key.type, key.nodeClass, key.key))) {
+                    this.storage.put(key.type, key.nodeClass, key.key, value);
+                    written = true;
+                }
+                // Removes the value only once it is stored, so that get() never misses it, and
+                // keeps values that have been replaced in the meantime for the next flush.
+                this.pending.remove(key, value);
+            } catch (final RuntimeException e) {
+                LOGGER.log(Level.WARNING, String.format("Cannot write persistent property '%s'.",
+                        key.key), e);
+            }
+        }
+        if (written && force) {
+            try {
+                this.storage.flush();
+            } catch (final IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot flush persistent properties.", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the background thread, starting it on first use.
+     * @return the executor
+     */
+    private ScheduledExecutorService getExecutor() {
+        synchronized (this.executorLock) {
+            if (this.executor == null) {
+                this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "guice-fx-preferences");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return this.executor;
+        }
+    }
+
+    /**
+     * Identifies a persistent value.
+     */
+    private static final class PropertyKey {
+
+        /** The node type. */
+        private final NodeType type;
+
+        /** A class of the package whose node holds the value. */
+        private final Class<?> nodeClass;
+
+        /** The key. */
+        private final String key;
+
+        /**
+         * Instantiates a new property key.
+         * @param type
+         *            the node type
+         * @param nodeClass
+         *            a class of the package whose node holds the value
+         * @param key
+         *            the key
+         */
+        private PropertyKey(final NodeType type, final Class<?> nodeClass, final String key) {
+            super();
+            this.type = type;
+            this.nodeClass = nodeClass;
+            this.key = key;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.type.hashCode() + this.nodeClass.hashCode())
+                    + this.key.hashCode();
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PropertyKey)) {
+                return false;
+            }
+            final PropertyKey other = (PropertyKey) obj;
+            return this.type == other.type && this.nodeClass == other.nodeClass
+                    && this.key.equals(other.key);
+        }
+
+    }
+
+}
@@ -0,0 +1,229 @@
+package org.xine.fx.guice.prefs;
+
+import static java.util.prefs.Preferences.systemNodeForPackage;
+import static java.util.prefs.Preferences.userNodeForPackage;
+
+import org.xine.fx.guice.PersistentProperty.NodeType;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * The default {@link PersistentPropertyStorage}, which stores values in the user or system
+ * {@link Preferences} node of their package.
+ * <p>
+ * The node of a class is resolved once. All values of a node are read at once, when the node is
+ * preloaded or first read from, into a snapshot that serves all further reads; writes update both
+ * the snapshot and the node.
+ * </p>
+ * @see Preferences#userNodeForPackage(Class)
+ * @see Preferences#systemNodeForPackage(Class)
+ */
+public final class PreferencesStorage implements PersistentPropertyStorage {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(PreferencesStorage.class.getName());
+
+    /** The user nodes by class. */
+    private final ConcurrentMap<Class<?>, Node> userNodes = new ConcurrentHashMap<>();
+
+    /** The system nodes by class. */
+    private final ConcurrentMap<Class<?>, Node> systemNodes = new ConcurrentHashMap<>();
+
+    /** The nodes by preference node, shared by all classes of a package. */
+    private final ConcurrentMap<Preferences, Node> nodes = new ConcurrentHashMap<>();
+
+    /** Whether values have been stored in system nodes. */
+    private volatile boolean systemNodesUsed;
+
+    /**
+     * Instantiates a new preferences storage.
+     */
+    public PreferencesStorage() {
+        super();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#get(org.xine.fx.guice.PersistentProperty.NodeType, java.lang.Class, java.lang.String)
+     */
+    @Override
+    public String get(final NodeType type, final Class<?> nodeClass, final String key) {
+        return getNode(type, nodeClass).get(key);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#put(org.xine.fx.guice.PersistentProperty.NodeType, java.lang.Class, java.lang.String, java.lang.String)
+     */
+    @Override
+    public void put(final NodeType type, final Class<?> nodeClass, final String key,
+            final String value) {
+        if (type == NodeType.SYSTEM_NODE) {
+            this.systemNodesUsed = true;
+        }
+        getNode(type, nodeClass).put(key, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#preload(org.xine.fx.guice.PersistentProperty.NodeType, java.lang.Class)
+     */
+    @Override
+    public void preload(final NodeType type, final Class<?> nodeClass) {
+        getNode(type, nodeClass).getSnapshot();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+        try {
+            Preferences.userRoot().flush();
+            if (this.systemNodesUsed) {
+                Preferences.systemRoot().flush();
+            }
+        } catch (final BackingStoreException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Gets the node of a class, resolving it on first use.
+     * @param type
+     *            the node type
+     * @param nodeClass
+     *            a class of the package
+     * @return the node
+     */
+    private Node getNode(final NodeType type, final Class<?> nodeClass) {
+        final ConcurrentMap<Class<?>, Node> nodesByClass;
+        switch (type) {
+        case SYSTEM_NODE:
+            nodesByClass = this.systemNodes;
+            break;
+        case USER_NODE:
+            nodesByClass = this.userNodes;
+            break;
+        default:
+            throw new IllegalStateException(String.format("Unknown Preferences node type: %s!",
+                    type));
+        }
+        Node node = nodesByClass.get(nodeClass);
+        if (node == null) {
+            final Preferences prefs = type == NodeType.SYSTEM_NODE ? systemNodeForPackage(nodeClass)
+                    : userNodeForPackage(nodeClass);
+            node = this.nodes.get(prefs);
+            if (node == null) {
+                final Node newNode = new Node(prefs);
+                node = this.nodes.putIfAbsent(prefs, newNode);
+                if (node == null) {
+                    node = newNode;
+                }
+            }
+            nodesByClass.putIfAbsent(nodeClass, node);
+        }
+        return node;
+    }
+
+    /**
+     * A preference node and the snapshot of its values.
+     */
+    private static final class Node {
+
+        /** The preference node. */
+        private final Preferences prefs;
+
+        /** The values, {@code null} until they have been read. */
+        private volatile ConcurrentMap<String, String> snapshot;
+
+        /** Whether the values cannot be read at once. */
+        private volatile boolean unreadable;
+
+        /**
+         * Instantiates a new node.
+         * @param prefs
+         *            the preference node
+         */
+        private Node(final Preferences prefs) {
+            super();
+            this.prefs = prefs;
+        }
+
+        /**
+         * Gets a value.
+         * @param key
+         *            the key
+         * @return the value or {@code null}
+         */
+        private String get(final String key) {
+            final ConcurrentMap<String, String> values = getSnapshot();
+            return values == null ? this.prefs.get(key, null) : values.get(key);
+        }
+
+        /**
+         * Stores a value.
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        private void put(final String key, final String value) {
+            final ConcurrentMap<String, String> values = getSnapshot();
+            if (values != null) {
+                values.put(key, value);
+            }
+            this.prefs.put(key, value);
+        }
+
+        /**
+         * Gets the snapshot of all values, reading them on first use.
+         * @return the snapshot or {@code null} if the values cannot be read at once
+         */
+        private ConcurrentMap<String, String> getSnapshot() {
+            ConcurrentMap<String, String> values = this.snapshot;
+            if (values == null && !this.unreadable) {
+                synchronized (this) {
+                    values = this.snapshot;
+                    if (values == null && !this.unreadable) {
+                        values = read();
+                        this.snapshot = values;
+                    }
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Reads all values of the node.
+         * @return the values or {@code null} if they cannot be read at once
+         */
+        private ConcurrentMap<String, String> read() {
+            try {
+                final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+                for (final String key : this.prefs.keys()) {
+                    final String value = this.prefs.get(key, null);
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                }
+                return values;
+            } catch (final BackingStoreException e) {
+                LOGGER.log(Level.WARNING, String.format(
+                        "Cannot preload preferences '%s', reading them one by one.",
+                        this.prefs.absolutePath()), e);
+                this.unreadable = true;
+                return null;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.xine.fx.guice.thread;
+
+import com.google.inject.ImplementedBy;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The executor that runs methods annotated with {@link org.xine.fx.guice.BackgroundThread}.
+ * <p>
+ * By default, every call runs on its own virtual thread if the JDK supports them, otherwise on a
+ * bounded pool of daemon threads. Bind this interface to use a different executor.
+ * </p>
+ */
+@ImplementedBy(DefaultBackgroundExecutor.class)
+public interface BackgroundExecutor extends Executor {
+    // Intentionally left empty.
+}
@@ -0,0 +1,191 @@
+package org.xine.fx.guice.thread;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.xine.fx.guice.BackgroundThread;
+import org.xine.fx.guice.FxApplicationThread;
+
+import com.google.inject.Provider;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The Class BackgroundThreadMethodInterceptor.
+ */
+class BackgroundThreadMethodInterceptor implements MethodInterceptor {
+
+    /** The executor that runs the intercepted methods. */
+    private final Provider<BackgroundExecutor> executor;
+
+    /** The dispatcher that completes the returned futures. */
+    private final Provider<FxDispatcher> dispatcher;
+
+    /** Whether a method returns a future, by method. */
+    private final ConcurrentMap<Method, Boolean> asynchronous = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new background thread method interceptor.
+     * @param executor
+     *            the executor that runs the intercepted methods
+     * @param dispatcher
+     *            the dispatcher that completes the returned futures
+     */
+    BackgroundThreadMethodInterceptor(final Provider<BackgroundExecutor> executor,
+            final Provider<FxDispatcher> dispatcher) {
+        super();
+        this.executor = executor;
+        this.dispatcher = dispatcher;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation
+     * )
+     */
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        if (isAsynchronous(invocation.getMethod())) {
+            final CompletableFuture<Object> result = new CompletableFuture<>();
+            this.executor.get().execute(new BackgroundTask(invocation, result));
+            return result;
+        }
+        this.executor.get().execute(new BackgroundTask(invocation, null));
+        return null;
+    }
+
+    /**
+     * Checks whether a method returns a future, validating it on first use.
+     * @param method
+     *            the intercepted method
+     * @return {@code true} if the method returns a future, {@code false} if it returns
+     *         {@code void}
+     * @throws IllegalStateException
+     *             if the method cannot be run in the background
+     */
+    boolean isAsynchronous(final Method method) throws IllegalStateException {
+        Boolean result = this.asynchronous.get(method);
+        if (result == null) {
+            result = Boolean.valueOf(validate(method));
+            this.asynchronous.putIfAbsent(method, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * Validates a method.
+     * @param method
+     *            the method
+     * @return {@code true} if the method returns a future
+     * @throws IllegalStateException
+     *             if the method cannot be run in the background
+     */
+    private static boolean validate(final Method method) throws IllegalStateException {
+        if (method.isAnnotationPresent(FxApplicationThread.class)) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Methods cannot be annotated with both @BackgroundThread and @FxApplicationThread!",
+                    method.getDeclaringClass().getName(), method.getName()));
+        }
+
+        final Class<?> returnType = method.getReturnType();
+        final boolean asynchronous = returnType.equals(CompletableFuture.class)
+                || returnType.equals(CompletionStage.class);
+        if (!(asynchronous || returnType.equals(void.class) || returnType.equals(Void.class))) {
+            throw new IllegalStateException(
+                    String.format(
+                            "[%s#%s] Only methods with return type 'void', 'CompletableFuture' or 'CompletionStage' can be annotated with @BackgroundThread!",
+                            method.getDeclaringClass().getName(), method.getName()));
+        }
+
+        if (!asynchronous && method.getExceptionTypes().length > 0) {
+            throw new IllegalStateException(
+                    String.format(
+                            "[%s#%s] Only methods that don't declare exception types can be annotated with @BackgroundThread!",
+                            method.getDeclaringClass().getName(), method.getName()));
+        }
+        return asynchronous;
+    }
+
+    /**
+     * Runs an intercepted method in the background and hands its result over to the JavaFX
+     * application thread.
+     */
+    private final class BackgroundTask implements Runnable, BiConsumer<Object, Throwable> {
+
+        /** The method invocation. */
+        private final MethodInvocation methodInvocation;
+
+        /**
+         * The future that receives the result of the method, {@code null} if the method returns
+         * {@code void}.
+         */
+        private final CompletableFuture<Object> result;
+
+        /**
+         * Instantiates a new background task.
+         * @param methodInvocation
+         *            the method invocation
+         * @param result
+         *            the future that receives the result of the method, {@code null} if the method
+         *            returns {@code void}
+         */
+        private BackgroundTask(final MethodInvocation methodInvocation,
+                final CompletableFuture<Object> result) {
+            super();
+            this.methodInvocation = methodInvocation;
+            this.result = result;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            final Object stage;
+            try {
+                stage = this.methodInvocation.proceed();
+            } catch (final Throwable t) {
+                if (this.result == null) {
+                    throw new RuntimeException(t);
+                }
+                accept(null, t);
+                return;
+            }
+            if (this.result == null) {
+                return;
+            }
+            if (stage == null) {
+                accept(null, null);
+            } else {
+                ((CompletionStage<?>) stage).whenComplete(this);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.function.BiConsumer#accept(java.lang.Object, java.lang.Object)
+         */
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public void accept(final Object value, final Throwable failure) {
+            BackgroundThreadMethodInterceptor.this.dispatcher.get().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (failure == null) {
+                        BackgroundTask.this.result.complete(value);
+                    } else {
+                        BackgroundTask.this.result.completeExceptionally(failure);
+                    }
+                }
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.xine.fx.guice.thread;
+
+import org.xine.fx.guice.BackgroundThread;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.matcher.Matchers;
+
+/**
+ * The Class BackgroundThreadModule.
+ * <p>
+ * Requires the {@link FxApplicationThreadModule}, whose {@link FxDispatcher} completes the futures
+ * returned by methods annotated with {@link BackgroundThread}.
+ * </p>
+ */
+public final class BackgroundThreadModule extends AbstractModule {
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.AbstractModule#configure()
+     */
+    @Override
+    protected void configure() {
+        final BackgroundThreadMethodInterceptor interceptor = new BackgroundThreadMethodInterceptor(
+                getProvider(BackgroundExecutor.class), getProvider(FxDispatcher.class));
+        bindListener(Matchers.any(), new BackgroundThreadTypeListener(interceptor));
+        bindInterceptor(Matchers.any(), Matchers.annotatedWith(BackgroundThread.class),
+                interceptor);
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.xine.fx.guice.thread;
+
+import org.xine.fx.guice.BackgroundThread;
+
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
+
+import java.lang.reflect.Method;
+
+/**
+ * Validates the methods annotated with {@link BackgroundThread} when their type is bound.
+ * @see FxApplicationThreadTypeListener
+ */
+final class BackgroundThreadTypeListener implements TypeListener {
+
+    /** The interceptor that validates the methods. */
+    private final BackgroundThreadMethodInterceptor interceptor;
+
+    /**
+     * Instantiates a new background thread type listener.
+     * @param interceptor
+     *            the interceptor that validates the methods
+     */
+    BackgroundThreadTypeListener(final BackgroundThreadMethodInterceptor interceptor) {
+        super();
+        this.interceptor = interceptor;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.spi.TypeListener#hear(com.google.inject.TypeLiteral, com.google.inject.spi.TypeEncounter)
+     */
+    @Override
+    public <I> void hear(final TypeLiteral<I> typeLiteral, final TypeEncounter<I> typeEncounter) {
+        for (Class<?> clazz = typeLiteral.getRawType(); clazz != null && clazz != Object.class; clazz = clazz
+                .getSuperclass()) {
+            for (final Method method : clazz.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(BackgroundThread.class)) {
+                    try {
+                        this.interceptor.isAsynchronous(method);
+                    } catch (final IllegalStateException e) {
+                        typeEncounter.addError("%s", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+}
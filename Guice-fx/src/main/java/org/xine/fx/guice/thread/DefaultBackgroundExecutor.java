@@ -0,0 +1,86 @@
+package org.xine.fx.guice.thread;
+
+import com.google.inject.Singleton;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The default {@link BackgroundExecutor}.
+ * <p>
+ * Uses a virtual thread per task where the JDK supports them. Otherwise falls back to a pool of
+ * daemon threads, bounded by twice the number of processors, that are released when idle.
+ * </p>
+ */
+@Singleton
+final class DefaultBackgroundExecutor implements BackgroundExecutor {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(DefaultBackgroundExecutor.class
+            .getName());
+
+    /** The time after which idle pool threads are released, in seconds. */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /** The executor. */
+    private final ExecutorService executor;
+
+    /**
+     * Instantiates a new default background executor.
+     */
+    DefaultBackgroundExecutor() {
+        super();
+        ExecutorService virtualThreads = null;
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            virtualThreads = (ExecutorService) factory.invoke(null);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Virtual threads are not available, using a thread pool.");
+            }
+        }
+        this.executor = virtualThreads != null ? virtualThreads : createPool();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(final Runnable command) {
+        this.executor.execute(command);
+    }
+
+    /**
+     * Creates the bounded pool of daemon threads.
+     * @return the pool
+     */
+    private static ExecutorService createPool() {
+        final int size = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    /** The number of created threads. */
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "guice-fx-background-"
+                                + this.count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+}
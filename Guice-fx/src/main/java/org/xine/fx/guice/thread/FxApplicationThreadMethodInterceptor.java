@@ -2,7 +2,14 @@ package org.xine.fx.guice.thread;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
-import org.xine.fx.guice.FxApplicationThread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import javafx.application.Platform;
 
@@ -11,6 +18,29 @@ import javafx.application.Platform;
  */
 class FxApplicationThreadMethodInterceptor implements MethodInterceptor {
 
+    /** The dispatcher that runs calls made outside of the JavaFX application thread. */
+    private final FxDispatcher dispatcher;
+
+    /** The dispatch plans by method. */
+    private final ConcurrentMap<Method, FxDispatchPlan> plans = new ConcurrentHashMap<>();
+
+    /** The timer wheel of throttled and debounced methods. */
+    private final FxTimerWheel timerWheel;
+
+    /**
+     * Instantiates a new fx application thread method interceptor.
+     * @param dispatcher
+     *            the dispatcher that runs calls made outside of the JavaFX application thread
+     * @param timerWheel
+     *            the timer wheel of throttled and debounced methods
+     */
+    FxApplicationThreadMethodInterceptor(final FxDispatcher dispatcher,
+            final FxTimerWheel timerWheel) {
+        super();
+        this.dispatcher = dispatcher;
+        this.timerWheel = timerWheel;
+    }
+
     /*
      * (non-Javadoc)
      * @see
@@ -20,38 +50,128 @@ class FxApplicationThreadMethodInterceptor implements MethodInterceptor {
     @Override
     public Object invoke(final MethodInvocation invocation) throws Throwable {
 
-        final FxApplicationThread annotation = invocation.getMethod().getAnnotation(
-                FxApplicationThread.class);
-        @SuppressWarnings("synthetic-access")
-        final FxTask fxTask = new FxTask(invocation);
+        final FxDispatchPlan plan = getPlan(invocation.getMethod());
 
-        if (annotation == null) {
-            throw new IllegalStateException("Method is not annotated with @FxApplicationThread!");
+        final Object retval;
+        if (plan.isRateLimited()) {
+            rateLimit(plan, invocation.getThis(), plan.getArgumentKey(invocation.getArguments()),
+                    invocation);
+            retval = null;
+        } else if (Platform.isFxApplicationThread()) {
+            if (plan.isConflated() && !plan.getPendingCalls().isEmpty()) {
+                // A pending call must not overwrite the state set by this one.
+                final Object target = invocation.getThis();
+                final Object argumentKey = plan.getArgumentKey(invocation.getArguments());
+                final ConflatedTask pending = (ConflatedTask) plan.getPendingCalls().get(target,
+                        argumentKey);
+                if (pending != null && plan.getPendingCalls().remove(target, argumentKey, pending)) {
+                    pending.cancel();
+                }
+            }
+            if (plan.isAsynchronous()) {
+                final CompletableFuture<Object> result = new CompletableFuture<>();
+                new FxTask(invocation, result).run();
+                retval = result;
+            } else {
+                retval = invocation.proceed();
+            }
+        } else if (plan.isAsynchronous()) {
+            final CompletableFuture<Object> result = new CompletableFuture<>();
+            this.dispatcher.execute(new FxTask(invocation, result), plan.getPriority());
+            retval = result;
+        } else if (plan.isConflated()) {
+            conflate(plan, invocation.getThis(), plan.getArgumentKey(invocation.getArguments()),
+                    invocation);
+            retval = null;
+        } else {
+            this.dispatcher.execute(new FxTask(invocation, null), plan.getPriority());
+            retval = null;
         }
+        return retval;
 
-        final Class<?> returnType = invocation.getMethod().getReturnType();
-        if (!(returnType.equals(void.class) || returnType.equals(Void.class))) {
-            throw new RuntimeException(
-                    String.format(
-                            "[%s#%s] Only methods with return type 'void' can be annotated with @FxApplicationThread!",
-                            invocation.getThis().getClass().getName(), invocation.getMethod()
-                                    .getName()));
-        }
+    }
 
-        if (invocation.getMethod().getExceptionTypes().length > 0) {
-            throw new RuntimeException(
-                    "Only methods that don't declare exception types can be annotated with @FxApplicationThread!");
+    /**
+     * Gets the dispatch plan of a method, creating it on first use.
+     * @param method
+     *            the intercepted method
+     * @return the dispatch plan
+     * @throws IllegalStateException
+     *             if the method cannot be run on the JavaFX application thread
+     */
+    FxDispatchPlan getPlan(final Method method) throws IllegalStateException {
+        FxDispatchPlan plan = this.plans.get(method);
+        if (plan == null) {
+            plan = FxDispatchPlan.create(method);
+            final FxDispatchPlan existing = this.plans.putIfAbsent(method, plan);
+            if (existing != null) {
+                plan = existing;
+            }
         }
+        return plan;
+    }
 
-        final Object retval;
-        if (Platform.isFxApplicationThread()) {
-            retval = invocation.proceed();
-        } else {
-            Platform.runLater(fxTask);
-            retval = null;
+    /**
+     * Passes a call to the state of its throttled or debounced method, creating it if necessary.
+     * @param plan
+     *            the dispatch plan
+     * @param target
+     *            the instance
+     * @param argumentKey
+     *            the argument key
+     * @param invocation
+     *            the method invocation
+     */
+    @SuppressWarnings("synthetic-access")
+    private void rateLimit(final FxDispatchPlan plan, final Object target,
+            final Object argumentKey, final MethodInvocation invocation) {
+        final FxCallTable<Runnable> pendingCalls = plan.getPendingCalls();
+        for (;;) {
+            RateLimitedCall call = (RateLimitedCall) pendingCalls.get(target, argumentKey);
+            if (call == null) {
+                final RateLimitedCall newCall = new RateLimitedCall(plan, target, argumentKey);
+                call = (RateLimitedCall) pendingCalls.putIfAbsent(target, argumentKey, newCall);
+                if (call == null) {
+                    call = newCall;
+                }
+            }
+            if (call.offer(invocation)) {
+                return;
+            }
+            // The state has just been discarded, retry with a new one.
         }
-        return retval;
+    }
 
+    /**
+     * Replaces the pending call with the given instance and argument key or queues a new one.
+     * @param plan
+     *            the dispatch plan
+     * @param target
+     *            the instance
+     * @param argumentKey
+     *            the argument key
+     * @param invocation
+     *            the method invocation
+     */
+    @SuppressWarnings("synthetic-access")
+    private void conflate(final FxDispatchPlan plan, final Object target,
+            final Object argumentKey, final MethodInvocation invocation) {
+        final FxCallTable<Runnable> pendingCalls = plan.getPendingCalls();
+        for (;;) {
+            final ConflatedTask pending = (ConflatedTask) pendingCalls.get(target, argumentKey);
+            if (pending != null) {
+                if (pending.replace(invocation)) {
+                    return;
+                }
+                // The pending call is being run, wait for it to be removed.
+                continue;
+            }
+            final ConflatedTask task = new ConflatedTask(plan, target, argumentKey, invocation);
+            if (pendingCalls.putIfAbsent(target, argumentKey, task) == null) {
+                this.dispatcher.execute(task, plan.getPriority());
+                return;
+            }
+        }
     }
 
     /**
@@ -62,18 +182,127 @@ class FxApplicationThreadMethodInterceptor implements MethodInterceptor {
         /** The method invocation. */
         private final MethodInvocation methodInvocation;
 
-        /** The return value. */
-        @SuppressWarnings("unused")
-        private Object returnValue;
+        /**
+         * The future that receives the result of the method, {@code null} if the method returns
+         * {@code void}.
+         */
+        private final CompletableFuture<Object> result;
 
         /**
          * Instantiates a new fx task.
          * @param methodInvocation
          *            the method invocation
+         * @param result
+         *            the future that receives the result of the method, {@code null} if the method
+         *            returns {@code void}
          */
-        private FxTask(final MethodInvocation methodInvocation) {
+        private FxTask(final MethodInvocation methodInvocation,
+                final CompletableFuture<Object> result) {
             super();
             this.methodInvocation = methodInvocation;
+            this.result = result;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            if (this.result == null) {
+                try {
+                    this.methodInvocation.proceed();
+                } catch (final Throwable t) {
+                    throw new RuntimeException(t);
+                }
+                return;
+            }
+            final Object stage;
+            try {
+                stage = this.methodInvocation.proceed();
+            } catch (final Throwable t) {
+                this.result.completeExceptionally(t);
+                return;
+            }
+            if (stage == null) {
+                this.result.complete(null);
+            } else {
+                ((CompletionStage<?>) stage).whenComplete(new BiConsumer<Object, Throwable>() {
+                    @SuppressWarnings("synthetic-access")
+                    @Override
+                    public void accept(final Object value, final Throwable failure) {
+                        if (failure == null) {
+                            FxTask.this.result.complete(value);
+                        } else {
+                            FxTask.this.result.completeExceptionally(failure);
+                        }
+                    }
+                });
+            }
+        }
+
+    }
+
+    /**
+     * A queued call that is replaced by newer calls with the same key until it is run.
+     */
+    private static final class ConflatedTask implements Runnable {
+
+        /** The dispatch plan. */
+        private final FxDispatchPlan plan;
+
+        /** The instance. */
+        private final Object target;
+
+        /** The argument key. */
+        private final Object argumentKey;
+
+        /** The newest method invocation, {@code null} once the task has been run or cancelled. */
+        private final AtomicReference<MethodInvocation> methodInvocation;
+
+        /**
+         * Instantiates a new conflated task.
+         * @param plan
+         *            the dispatch plan
+         * @param target
+         *            the instance
+         * @param argumentKey
+         *            the argument key
+         * @param methodInvocation
+         *            the method invocation
+         */
+        private ConflatedTask(final FxDispatchPlan plan, final Object target,
+                final Object argumentKey, final MethodInvocation methodInvocation) {
+            super();
+            this.plan = plan;
+            this.target = target;
+            this.argumentKey = argumentKey;
+            this.methodInvocation = new AtomicReference<>(methodInvocation);
+        }
+
+        /**
+         * Replaces the method invocation.
+         * @param newMethodInvocation
+         *            the new method invocation
+         * @return {@code true} if replaced, {@code false} if the task has already been run
+         */
+        private boolean replace(final MethodInvocation newMethodInvocation) {
+            for (;;) {
+                final MethodInvocation current = this.methodInvocation.get();
+                if (current == null) {
+                    return false;
+                }
+                if (this.methodInvocation.compareAndSet(current, newMethodInvocation)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Cancels the task.
+         */
+        private void cancel() {
+            this.methodInvocation.set(null);
         }
 
         /*
@@ -82,8 +311,134 @@ class FxApplicationThreadMethodInterceptor implements MethodInterceptor {
          */
         @Override
         public void run() {
+            this.plan.getPendingCalls().remove(this.target, this.argumentKey, this);
+            final MethodInvocation invocation = this.methodInvocation.getAndSet(null);
+            if (invocation == null) {
+                return;
+            }
+            try {
+                invocation.proceed();
+            } catch (final Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+
+    }
+
+    /**
+     * The state of a throttled or debounced method for a single instance and argument key.
+     * <p>
+     * The state is reused for all calls with its instance and argument key and serves as its own timeout, so that calls do
+     * not allocate. It lives as long as calls keep coming in and is discarded once an interval has
+     * passed without any call.
+     * </p>
+     */
+    private final class RateLimitedCall extends FxTimerWheel.Timeout implements Runnable {
+
+        /** The dispatch plan. */
+        private final FxDispatchPlan plan;
+
+        /** The instance. */
+        private final Object target;
+
+        /** The argument key. */
+        private final Object argumentKey;
+
+        /** The newest call that has not been run yet. */
+        private MethodInvocation methodInvocation;
+
+        /** The time of the newest call. */
+        private long lastCallNanos;
+
+        /** Whether no call has been offered yet. */
+        private boolean fresh = true;
+
+        /** Whether the state has been discarded. */
+        private boolean discarded;
+
+        /**
+         * Instantiates a new rate limited call.
+         * @param plan
+         *            the dispatch plan
+         * @param target
+         *            the instance
+         * @param argumentKey
+         *            the argument key
+         */
+        private RateLimitedCall(final FxDispatchPlan plan, final Object target,
+                final Object argumentKey) {
+            super();
+            this.plan = plan;
+            this.target = target;
+            this.argumentKey = argumentKey;
+        }
+
+        /**
+         * Offers a call.
+         * @param invocation
+         *            the method invocation
+         * @return {@code true} if accepted, {@code false} if the state has been discarded
+         */
+        @SuppressWarnings("synthetic-access")
+        private synchronized boolean offer(final MethodInvocation invocation) {
+            if (this.discarded) {
+                return false;
+            }
+            this.methodInvocation = invocation;
+            this.lastCallNanos = System.nanoTime();
+            if (this.fresh) {
+                this.fresh = false;
+                if (this.plan.getThrottleNanos() > 0) {
+                    // Leading edge: the first call of a burst runs immediately.
+                    FxApplicationThreadMethodInterceptor.this.dispatcher.execute(this,
+                            this.plan.getPriority());
+                } else {
+                    FxApplicationThreadMethodInterceptor.this.timerWheel.schedule(this,
+                            this.plan.getDebounceNanos());
+                }
+            }
+            return true;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.thread.FxTimerWheel.Timeout#expire()
+         */
+        @SuppressWarnings("synthetic-access")
+        @Override
+        synchronized void expire() {
+            if (this.methodInvocation == null) {
+                // No call during a whole interval.
+                this.discarded = true;
+                this.plan.getPendingCalls().remove(this.target, this.argumentKey, this);
+                return;
+            }
+            final long quietNanos = System.nanoTime() - this.lastCallNanos;
+            if (quietNanos < this.plan.getDebounceNanos()) {
+                FxApplicationThreadMethodInterceptor.this.timerWheel.schedule(this,
+                        this.plan.getDebounceNanos() - quietNanos);
+            } else {
+                FxApplicationThreadMethodInterceptor.this.dispatcher.execute(this,
+                        this.plan.getPriority());
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public void run() {
+            final MethodInvocation invocation;
+            synchronized (this) {
+                invocation = this.methodInvocation;
+                this.methodInvocation = null;
+                FxApplicationThreadMethodInterceptor.this.timerWheel.schedule(this, Math.max(
+                        this.plan.getThrottleNanos(), this.plan.getDebounceNanos()));
+            }
             try {
-                this.returnValue = this.methodInvocation.proceed();
+                invocation.proceed();
             } catch (final Throwable t) {
                 throw new RuntimeException(t);
             }
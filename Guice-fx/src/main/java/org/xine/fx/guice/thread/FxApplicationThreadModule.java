@@ -5,20 +5,54 @@ import org.xine.fx.guice.FxApplicationThread;
 import com.google.inject.AbstractModule;
 import com.google.inject.matcher.Matchers;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * The Class FxApplicationThreadModule.
  */
 
 public final class FxApplicationThreadModule extends AbstractModule {
 
+    /** The frame budget of the dispatcher, in nanoseconds. */
+    private final long frameBudgetNanos;
+
+    /**
+     * Instantiates a new fx application thread module.
+     */
+    public FxApplicationThreadModule() {
+        this(FxDispatcher.DEFAULT_FRAME_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new fx application thread module.
+     * @param frameBudget
+     *            the maximum time the dispatcher spends on queued calls per pulse
+     * @param unit
+     *            the unit of the frame budget
+     * @see FxDispatcher
+     */
+    public FxApplicationThreadModule(final long frameBudget, final TimeUnit unit) {
+        super();
+        this.frameBudgetNanos = unit.toNanos(frameBudget);
+    }
+
     /*
      * (non-Javadoc)
      * @see com.google.inject.AbstractModule#configure()
      */
     @Override
     protected void configure() {
+
+        // FxDispatcher
+        final FxDispatcher dispatcher = new FxDispatcher(this.frameBudgetNanos,
+                TimeUnit.NANOSECONDS);
+        bind(FxDispatcher.class).toInstance(dispatcher);
+
+        final FxApplicationThreadMethodInterceptor interceptor = new FxApplicationThreadMethodInterceptor(
+                dispatcher, new FxTimerWheel());
+        bindListener(Matchers.any(), new FxApplicationThreadTypeListener(interceptor));
         bindInterceptor(Matchers.any(), Matchers.annotatedWith(FxApplicationThread.class),
-                new FxApplicationThreadMethodInterceptor());
+                interceptor);
     }
 
 }
@@ -0,0 +1,50 @@
+package org.xine.fx.guice.thread;
+
+import org.xine.fx.guice.FxApplicationThread;
+
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.TypeEncounter;
+import com.google.inject.spi.TypeListener;
+
+import java.lang.reflect.Method;
+
+/**
+ * Validates the methods annotated with {@link FxApplicationThread} when their type is bound, so
+ * that invalid methods fail the creation of the injector rather than their first call.
+ */
+final class FxApplicationThreadTypeListener implements TypeListener {
+
+    /** The interceptor that holds the dispatch plans. */
+    private final FxApplicationThreadMethodInterceptor interceptor;
+
+    /**
+     * Instantiates a new fx application thread type listener.
+     * @param interceptor
+     *            the interceptor that holds the dispatch plans
+     */
+    FxApplicationThreadTypeListener(final FxApplicationThreadMethodInterceptor interceptor) {
+        super();
+        this.interceptor = interceptor;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.google.inject.spi.TypeListener#hear(com.google.inject.TypeLiteral, com.google.inject.spi.TypeEncounter)
+     */
+    @Override
+    public <I> void hear(final TypeLiteral<I> typeLiteral, final TypeEncounter<I> typeEncounter) {
+        for (Class<?> clazz = typeLiteral.getRawType(); clazz != null && clazz != Object.class; clazz = clazz
+                .getSuperclass()) {
+            for (final Method method : clazz.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(FxApplicationThread.class)) {
+                    try {
+                        this.interceptor.getPlan(method);
+                    } catch (final IllegalStateException e) {
+                        typeEncounter.addError("%s", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+}
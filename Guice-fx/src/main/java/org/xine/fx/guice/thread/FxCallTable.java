@@ -0,0 +1,123 @@
+package org.xine.fx.guice.thread;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The pending calls of a single conflated, throttled or debounced method, by instance and
+ * argument key.
+ * <p>
+ * Instances are compared by identity and argument keys by equality, see
+ * {@link FxDispatchPlan#getArgumentKey(Object[])}. Calls that are keyed on their instance only all
+ * share the same argument key and are kept in a single map, so that looking them up does not
+ * allocate.
+ * </p>
+ * @param <V>
+ *            the type of the pending calls
+ */
+final class FxCallTable<V> {
+
+    /** The pending calls keyed on their instance only. */
+    private final Map<Object, V> byTarget = new IdentityHashMap<>();
+
+    /** The pending calls keyed on their instance and arguments. */
+    private final Map<Object, Map<Object, V>> byArgument = new IdentityHashMap<>();
+
+    /** The number of pending calls. */
+    private volatile int size;
+
+    /**
+     * Instantiates a new call table.
+     */
+    FxCallTable() {
+        super();
+    }
+
+    /**
+     * Checks whether no call is pending, without locking.
+     * @return {@code true} if empty
+     */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets the pending call of an instance and argument key.
+     * @param target
+     *            the instance
+     * @param argumentKey
+     *            the argument key
+     * @return the call or {@code null}
+     */
+    synchronized V get(final Object target, final Object argumentKey) {
+        if (argumentKey == FxDispatchPlan.NO_ARGUMENTS) {
+            return this.byTarget.get(target);
+        }
+        final Map<Object, V> calls = this.byArgument.get(target);
+        return calls == null ? null : calls.get(argumentKey);
+    }
+
+    /**
+     * Adds a pending call unless another one of the same instance and argument key is pending.
+     * @param target
+     *            the instance
+     * @param argumentKey
+     *            the argument key
+     * @param call
+     *            the call
+     * @return the call that is already pending, or {@code null} if the call has been added
+     */
+    synchronized V putIfAbsent(final Object target, final Object argumentKey, final V call) {
+        final Map<Object, V> calls;
+        if (argumentKey == FxDispatchPlan.NO_ARGUMENTS) {
+            calls = this.byTarget;
+        } else {
+            Map<Object, V> targetCalls = this.byArgument.get(target);
+            if (targetCalls == null) {
+                targetCalls = new HashMap<>();
+                this.byArgument.put(target, targetCalls);
+            }
+            calls = targetCalls;
+        }
+        final Object key = calls == this.byTarget ? target : argumentKey;
+        final V existing = calls.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        calls.put(key, call);
+        this.size++;
+        return null;
+    }
+
+    /**
+     * Removes a pending call, if it is still pending.
+     * @param target
+     *            the instance
+     * @param argumentKey
+     *            the argument key
+     * @param call
+     *            the call
+     * @return {@code true} if removed
+     */
+    synchronized boolean remove(final Object target, final Object argumentKey, final V call) {
+        if (argumentKey == FxDispatchPlan.NO_ARGUMENTS) {
+            if (this.byTarget.get(target) != call) {
+                return false;
+            }
+            this.byTarget.remove(target);
+        } else {
+            final Map<Object, V> calls = this.byArgument.get(target);
+            if (calls == null || calls.get(argumentKey) != call) {
+                return false;
+            }
+            calls.remove(argumentKey);
+            if (calls.isEmpty()) {
+                this.byArgument.remove(target);
+            }
+        }
+        this.size--;
+        return true;
+    }
+
+}
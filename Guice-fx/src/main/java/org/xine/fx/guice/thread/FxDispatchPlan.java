@@ -0,0 +1,264 @@
+package org.xine.fx.guice.thread;
+
+import org.xine.fx.guice.FxApplicationThread;
+import org.xine.fx.guice.FxApplicationThread.Conflation;
+import org.xine.fx.guice.FxApplicationThread.Priority;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The precomputed way of dispatching calls of a method annotated with {@link FxApplicationThread}.
+ * <p>
+ * Plans are validated and created once per method, when the declaring type is bound, so that
+ * intercepted calls do not need any reflection. The plan of a conflated, throttled or debounced
+ * method also holds its pending calls.
+ * </p>
+ */
+final class FxDispatchPlan {
+
+    /** The argument key of calls that are conflated regardless of their arguments. */
+    static final Object NO_ARGUMENTS = new Object();
+
+    /** The argument key of calls conflated on an argument that is {@code null}. */
+    private static final Object NULL_ARGUMENT = new Object();
+
+    /** The method. */
+    private final Method method;
+
+    /** The conflation of pending calls. */
+    private final Conflation conflation;
+
+    /** The index of the argument calls are conflated on, or {@code -1} for all arguments. */
+    private final int conflateOn;
+
+    /** Whether the method returns a future. */
+    private final boolean asynchronous;
+
+    /** The minimum interval between two runs, in nanoseconds. */
+    private final long throttleNanos;
+
+    /** The quiet interval before a run, in nanoseconds. */
+    private final long debounceNanos;
+
+    /** The priority of dispatched calls. */
+    private final Priority priority;
+
+    /** The pending conflated, throttled or debounced calls. */
+    private final FxCallTable<Runnable> pendingCalls = new FxCallTable<>();
+
+    /**
+     * Instantiates a new dispatch plan.
+     * @param method
+     *            the method
+     * @param conflation
+     *            the conflation of pending calls
+     * @param conflateOn
+     *            the index of the argument calls are conflated on, or {@code -1} for all arguments
+     * @param asynchronous
+     *            whether the method returns a future
+     * @param throttleNanos
+     *            the minimum interval between two runs, in nanoseconds
+     * @param debounceNanos
+     *            the quiet interval before a run, in nanoseconds
+     * @param priority
+     *            the priority of dispatched calls
+     */
+    private FxDispatchPlan(final Method method, final Conflation conflation, final int conflateOn,
+            final boolean asynchronous, final long throttleNanos, final long debounceNanos,
+            final Priority priority) {
+        super();
+        this.method = method;
+        this.conflation = conflation;
+        this.conflateOn = conflateOn;
+        this.asynchronous = asynchronous;
+        this.throttleNanos = throttleNanos;
+        this.debounceNanos = debounceNanos;
+        this.priority = priority;
+    }
+
+    /**
+     * Creates the dispatch plan of a method.
+     * @param method
+     *            the method
+     * @return the dispatch plan
+     * @throws IllegalStateException
+     *             if the method cannot be run on the JavaFX application thread by the interceptor
+     */
+    static FxDispatchPlan create(final Method method) throws IllegalStateException {
+
+        final FxApplicationThread annotation = method.getAnnotation(FxApplicationThread.class);
+
+        if (annotation == null) {
+            throw new IllegalStateException("Method is not annotated with @FxApplicationThread!");
+        }
+
+        final Class<?> returnType = method.getReturnType();
+        final boolean asynchronous = returnType.equals(CompletableFuture.class)
+                || returnType.equals(CompletionStage.class);
+        if (!(asynchronous || returnType.equals(void.class) || returnType.equals(Void.class))) {
+            throw new IllegalStateException(
+                    String.format(
+                            "[%s#%s] Only methods with return type 'void', 'CompletableFuture' or 'CompletionStage' can be annotated with @FxApplicationThread!",
+                            method.getDeclaringClass().getName(), method.getName()));
+        }
+
+        if (!asynchronous && method.getExceptionTypes().length > 0) {
+            throw new IllegalStateException(
+                    String.format(
+                            "[%s#%s] Only methods that don't declare exception types can be annotated with @FxApplicationThread!",
+                            method.getDeclaringClass().getName(), method.getName()));
+        }
+
+        final int conflateOn = annotation.conflateOn();
+        if (conflateOn < -1 || conflateOn >= method.getParameterTypes().length) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Cannot conflate on argument %d, the method has %d parameters!",
+                    method.getDeclaringClass().getName(), method.getName(), conflateOn,
+                    method.getParameterTypes().length));
+        }
+
+        if (conflateOn >= 0 && annotation.conflate() == Conflation.TARGET) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Methods conflated by instance cannot be conflated on an argument!",
+                    method.getDeclaringClass().getName(), method.getName()));
+        }
+
+        if (asynchronous && (annotation.conflate() != Conflation.NONE || conflateOn >= 0)) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Methods returning a future cannot be conflated!", method
+                            .getDeclaringClass().getName(), method.getName()));
+        }
+
+        if (annotation.throttle() < 0 || annotation.debounce() < 0) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Throttle and debounce intervals must not be negative!", method
+                            .getDeclaringClass().getName(), method.getName()));
+        }
+
+        if (annotation.throttle() > 0 && annotation.debounce() > 0) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Methods cannot be both throttled and debounced!", method
+                            .getDeclaringClass().getName(), method.getName()));
+        }
+
+        final boolean rateLimited = annotation.throttle() > 0 || annotation.debounce() > 0;
+        if (asynchronous && rateLimited) {
+            throw new IllegalStateException(String.format(
+                    "[%s#%s] Methods returning a future cannot be throttled or debounced!", method
+                            .getDeclaringClass().getName(), method.getName()));
+        }
+
+        // Throttled and debounced calls are always conflated.
+        final Conflation conflation;
+        if (conflateOn >= 0) {
+            conflation = Conflation.ARGUMENTS;
+        } else if (rateLimited && annotation.conflate() == Conflation.NONE) {
+            conflation = Conflation.TARGET;
+        } else {
+            conflation = annotation.conflate();
+        }
+        return new FxDispatchPlan(method, conflation, conflateOn, asynchronous,
+                TimeUnit.MILLISECONDS.toNanos(annotation.throttle()),
+                TimeUnit.MILLISECONDS.toNanos(annotation.debounce()), annotation.priority());
+    }
+
+    /**
+     * Gets the method.
+     * @return the method
+     */
+    Method getMethod() {
+        return this.method;
+    }
+
+    /**
+     * Gets the conflation of pending calls.
+     * @return the conflation
+     */
+    Conflation getConflation() {
+        return this.conflation;
+    }
+
+    /**
+     * Checks whether pending calls are conflated.
+     * @return {@code true} if conflated
+     */
+    boolean isConflated() {
+        return this.conflation != Conflation.NONE;
+    }
+
+    /**
+     * Gets the key of the arguments of a call, which identifies the pending calls it replaces
+     * together with the instance.
+     * <p>
+     * Calls conflated regardless of their arguments share {@link #NO_ARGUMENTS} and calls
+     * conflated on a single argument are keyed on that argument, neither of which allocates. Calls
+     * conflated by all of their arguments are keyed on a copy of the arguments.
+     * </p>
+     * @param arguments
+     *            the arguments of the call
+     * @return the argument key
+     */
+    Object getArgumentKey(final Object[] arguments) {
+        if (this.conflation != Conflation.ARGUMENTS) {
+            return NO_ARGUMENTS;
+        }
+        if (this.conflateOn >= 0) {
+            final Object argument = arguments[this.conflateOn];
+            return argument == null ? NULL_ARGUMENT : argument;
+        }
+        return Arrays.asList(arguments.clone());
+    }
+
+    /**
+     * Gets the pending conflated, throttled or debounced calls.
+     * @return the pending calls
+     */
+    FxCallTable<Runnable> getPendingCalls() {
+        return this.pendingCalls;
+    }
+
+    /**
+     * Checks whether the method returns a future.
+     * @return {@code true} if asynchronous
+     */
+    boolean isAsynchronous() {
+        return this.asynchronous;
+    }
+
+    /**
+     * Checks whether calls are throttled or debounced.
+     * @return {@code true} if rate limited
+     */
+    boolean isRateLimited() {
+        return this.throttleNanos > 0 || this.debounceNanos > 0;
+    }
+
+    /**
+     * Gets the minimum interval between two runs.
+     * @return the interval in nanoseconds, {@code 0} if not throttled
+     */
+    long getThrottleNanos() {
+        return this.throttleNanos;
+    }
+
+    /**
+     * Gets the quiet interval before a run.
+     * @return the interval in nanoseconds, {@code 0} if not debounced
+     */
+    long getDebounceNanos() {
+        return this.debounceNanos;
+    }
+
+    /**
+     * Gets the priority of dispatched calls.
+     * @return the priority
+     */
+    Priority getPriority() {
+        return this.priority;
+    }
+
+}
@@ -0,0 +1,285 @@
+package org.xine.fx.guice.thread;
+
+import org.xine.fx.guice.FxApplicationThread.Priority;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Executes tasks on the JavaFX application thread in batches, by priority.
+ * <p>
+ * Tasks submitted from any thread are collected in lock-free queues, one per {@link Priority}.
+ * Only the first task of a batch schedules a {@link Platform#runLater(Runnable)} call, which then
+ * drains the queues at once. Once work is left over, an {@link AnimationTimer} drains the queues
+ * once per pulse until they are empty.
+ * </p>
+ * <p>
+ * Each drain runs all {@link Priority#HIGH high} priority tasks first. {@link Priority#NORMAL
+ * Normal} and {@link Priority#LOW low} priority tasks, in that order, only run while the frame
+ * budget lasts; the remaining ones are deferred to the next pulse, so that a flood of updates or
+ * background rendering does not delay input-driven updates or stall rendering. The number of
+ * queued and deferred tasks per priority can be monitored.
+ * </p>
+ * <p>
+ * Exceptions thrown by a task are passed to the uncaught exception handler of the JavaFX
+ * application thread and do not prevent the remaining tasks from running.
+ * </p>
+ */
+public final class FxDispatcher implements Executor {
+
+    /** The default frame budget in milliseconds. */
+    public static final long DEFAULT_FRAME_BUDGET_MILLIS = 8;
+
+    /** The priorities, from highest to lowest. */
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /** The queued tasks, by priority. */
+    private final Lane[] lanes = new Lane[PRIORITIES.length];
+
+    /** Whether a drain has been scheduled and not finished yet. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** The maximum time a single drain may take, in nanoseconds. */
+    private final long frameBudgetNanos;
+
+    /** Runs the queued tasks. */
+    private final Runnable drain = new Runnable() {
+        @SuppressWarnings("synthetic-access")
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    /** Drains the tasks that exceeded the frame budget once per pulse. */
+    private AnimationTimer pulse;
+
+    /**
+     * Instantiates a new dispatcher with the default frame budget.
+     */
+    public FxDispatcher() {
+        this(DEFAULT_FRAME_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instantiates a new dispatcher.
+     * @param frameBudget
+     *            the maximum time a single drain may spend on normal and low priority tasks
+     * @param unit
+     *            the unit of the frame budget
+     */
+    public FxDispatcher(final long frameBudget, final TimeUnit unit) {
+        super();
+        if (frameBudget <= 0) {
+            throw new IllegalArgumentException("The frame budget must be positive.");
+        }
+        this.frameBudgetNanos = unit.toNanos(frameBudget);
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * Gets the frame budget.
+     * @param unit
+     *            the unit of the returned value
+     * @return the maximum time a single drain may spend on normal and low priority tasks
+     */
+    public long getFrameBudget(final TimeUnit unit) {
+        return unit.convert(this.frameBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of tasks that are waiting to be run.
+     * @return the number of queued tasks of all priorities
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (final Lane lane : this.lanes) {
+            size += lane.size.get();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of tasks of the given priority that are waiting to be run.
+     * @param priority
+     *            the priority
+     * @return the number of queued tasks
+     */
+    public int getQueueSize(final Priority priority) {
+        return this.lanes[priority.ordinal()].size.get();
+    }
+
+    /**
+     * Gets the number of times tasks of the given priority have been deferred to a later pulse
+     * because the frame budget was exhausted.
+     * @param priority
+     *            the priority
+     * @return the number of deferrals, counting each deferred task once per pulse
+     */
+    public long getDeferralCount(final Priority priority) {
+        return this.lanes[priority.ordinal()].deferrals.get();
+    }
+
+    /**
+     * Queues a task with {@link Priority#NORMAL normal} priority.
+     * @param task
+     *            the task
+     * @see #execute(Runnable, Priority)
+     */
+    @Override
+    public void execute(final Runnable task) {
+        execute(task, Priority.NORMAL);
+    }
+
+    /**
+     * Queues a task to be run on the JavaFX application thread.
+     * <p>
+     * Unlike {@link Platform#runLater(Runnable)}, this method returns immediately without touching
+     * the JavaFX event queue unless no drain is pending.
+     * </p>
+     * @param task
+     *            the task
+     * @param priority
+     *            the priority
+     */
+    public void execute(final Runnable task, final Priority priority) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        final Lane lane = this.lanes[priority.ordinal()];
+        lane.size.incrementAndGet();
+        lane.tasks.offer(task);
+        if (this.scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this.drain);
+        }
+    }
+
+    /**
+     * Runs all high priority tasks and the other tasks until the frame budget is exhausted.
+     */
+    private void drain() {
+        final long deadline = System.nanoTime() + this.frameBudgetNanos;
+        boolean exhausted = false;
+        for (int i = 0; i < this.lanes.length; i++) {
+            final Lane lane = this.lanes[i];
+            if (exhausted) {
+                lane.defer();
+                continue;
+            }
+            final boolean budgeted = PRIORITIES[i] != Priority.HIGH;
+            Runnable task;
+            while ((task = lane.tasks.poll()) != null) {
+                lane.size.decrementAndGet();
+                run(task);
+                if (budgeted && System.nanoTime() - deadline >= 0) {
+                    exhausted = true;
+                    lane.defer();
+                    break;
+                }
+            }
+        }
+
+        if (!isEmpty()) {
+            // Leaves the drain scheduled and continues with the next pulse.
+            getPulse().start();
+            return;
+        }
+        if (this.pulse != null) {
+            this.pulse.stop();
+        }
+        this.scheduled.set(false);
+
+        // A task may have been queued after the last poll but before the flag has been reset.
+        if (!isEmpty() && this.scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this.drain);
+        }
+    }
+
+    /**
+     * Checks whether all queues are empty.
+     * @return {@code true} if no task is queued
+     */
+    private boolean isEmpty() {
+        for (final Lane lane : this.lanes) {
+            if (!lane.tasks.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the timer that drains the queues once per pulse, creating it on first use.
+     * @return the timer
+     */
+    private AnimationTimer getPulse() {
+        if (this.pulse == null) {
+            this.pulse = new AnimationTimer() {
+                @SuppressWarnings("synthetic-access")
+                @Override
+                public void handle(final long now) {
+                    drain();
+                }
+            };
+        }
+        return this.pulse;
+    }
+
+    /**
+     * Runs a single task.
+     * @param task
+     *            the task
+     */
+    private static void run(final Runnable task) {
+        try {
+            task.run();
+        } catch (final Throwable t) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+    }
+
+    /**
+     * The queue of a single priority.
+     */
+    private static final class Lane {
+
+        /** The queued tasks. */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /** The number of queued tasks, maintained separately since queues are not sized in O(1). */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /** The number of deferred tasks. */
+        private final AtomicLong deferrals = new AtomicLong();
+
+        /**
+         * Instantiates a new lane.
+         */
+        private Lane() {
+            super();
+        }
+
+        /**
+         * Counts the queued tasks as deferred.
+         */
+        private void defer() {
+            final int deferred = this.size.get();
+            if (deferred > 0) {
+                this.deferrals.addAndGet(deferred);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.xine.fx.guice.thread;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Reports the progress of background work to the JavaFX application thread.
+ * <p>
+ * Progress updates can be made from any thread at any rate. They are coalesced: while an update is
+ * waiting to be delivered, newer updates replace it, so the JavaFX application thread only ever
+ * receives the latest one.
+ * </p>
+ * <pre>
+ * final FxProgress&lt;Double&gt; progress = new FxProgress&lt;&gt;(dispatcher,
+ *         value -&gt; this.progressBar.setProgress(value));
+ * </pre>
+ * @param <T>
+ *            the type of the progress values
+ * @see org.xine.fx.guice.BackgroundThread
+ */
+public final class FxProgress<T> {
+
+    /** Marks that no update is waiting to be delivered. */
+    private static final Object NONE = new Object();
+
+    /** The dispatcher. */
+    private final FxDispatcher dispatcher;
+
+    /** The consumer of the updates. */
+    private final Consumer<? super T> consumer;
+
+    /** The update that is waiting to be delivered. */
+    private final AtomicReference<Object> pending = new AtomicReference<>(NONE);
+
+    /** Delivers the pending update. */
+    private final Runnable delivery = new Runnable() {
+        @SuppressWarnings({"synthetic-access", "unchecked" })
+        @Override
+        public void run() {
+            final Object value = FxProgress.this.pending.getAndSet(NONE);
+            if (value != NONE) {
+                FxProgress.this.consumer.accept((T) value);
+            }
+        }
+    };
+
+    /**
+     * Instantiates a new fx progress.
+     * @param dispatcher
+     *            the dispatcher
+     * @param consumer
+     *            the consumer of the updates, called on the JavaFX application thread
+     */
+    public FxProgress(final FxDispatcher dispatcher, final Consumer<? super T> consumer) {
+        super();
+        this.dispatcher = dispatcher;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Reports a progress update.
+     * @param value
+     *            the value
+     */
+    public void update(final T value) {
+        if (this.pending.getAndSet(value) == NONE) {
+            this.dispatcher.execute(this.delivery);
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package org.xine.fx.guice.thread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timer wheel shared by all throttled and debounced methods.
+ * <p>
+ * Timeouts are kept in an array of buckets indexed by their deadline tick, so that scheduling and
+ * expiring a timeout take constant time, however many timeouts are pending. A single daemon thread
+ * advances the wheel once per tick and only while timeouts are pending. Timeouts are intrusive:
+ * scheduling one does not allocate.
+ * </p>
+ * <p>
+ * Timeouts expire on the timer thread and must therefore hand any real work over to another thread
+ * quickly.
+ * </p>
+ */
+final class FxTimerWheel {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(FxTimerWheel.class.getName());
+
+    /** The duration of a tick, in nanoseconds. */
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /** The number of buckets, a power of two. */
+    private static final int WHEEL_SIZE = 512;
+
+    /** The mask to compute bucket indexes. */
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    /** The buckets, each one a linked list of timeouts. */
+    private final Timeout[] buckets = new Timeout[WHEEL_SIZE];
+
+    /** The lock that guards the wheel. */
+    private final Object lock = new Object();
+
+    /** The origin of all ticks. */
+    private final long startNanos = System.nanoTime();
+
+    /** The number of pending timeouts. */
+    private int size;
+
+    /** The last tick that has been processed. */
+    private long tick;
+
+    /** The timer thread, started on first use. */
+    private Thread thread;
+
+    /**
+     * Instantiates a new timer wheel.
+     */
+    FxTimerWheel() {
+        super();
+    }
+
+    /**
+     * Schedules a timeout.
+     * @param timeout
+     *            the timeout, which must not be pending already
+     * @param delayNanos
+     *            the delay in nanoseconds, rounded up to the next tick
+     * @throws IllegalStateException
+     *             if the timeout is pending already
+     */
+    void schedule(final Timeout timeout, final long delayNanos) throws IllegalStateException {
+        synchronized (this.lock) {
+            if (timeout.pending) {
+                throw new IllegalStateException("The timeout is pending already.");
+            }
+            final long elapsed = System.nanoTime() - this.startNanos;
+            if (this.thread == null) {
+                this.tick = elapsed / TICK_NANOS;
+            }
+            final long deadlineTick = Math.max(this.tick + 1, (elapsed + Math.max(0, delayNanos)
+                    + TICK_NANOS - 1) / TICK_NANOS);
+            final int index = (int) (deadlineTick & MASK);
+            timeout.deadlineTick = deadlineTick;
+            timeout.next = this.buckets[index];
+            timeout.pending = true;
+            this.buckets[index] = timeout;
+            this.size++;
+
+            if (this.thread == null) {
+                this.thread = new Thread(new Runnable() {
+                    @SuppressWarnings("synthetic-access")
+                    @Override
+                    public void run() {
+                        FxTimerWheel.this.run();
+                    }
+                }, "guice-fx-timer");
+                this.thread.setDaemon(true);
+                this.thread.start();
+            } else if (this.size == 1) {
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel until the timer thread is interrupted.
+     */
+    private void run() {
+        try {
+            for (;;) {
+                Timeout expired = null;
+                synchronized (this.lock) {
+                    while (this.size == 0) {
+                        // The ticks elapsed while idle are processed once resumed: a timeout
+                        // scheduled meanwhile may be due by the time the thread gets the lock. At
+                        // most one revolution is scanned, however long the wheel has been idle.
+                        this.lock.wait();
+                    }
+                    final long elapsed = System.nanoTime() - this.startNanos;
+                    final long now = elapsed / TICK_NANOS;
+                    if (now <= this.tick) {
+                        TimeUnit.NANOSECONDS.timedWait(this.lock, (this.tick + 1) * TICK_NANOS
+                                - elapsed);
+                        continue;
+                    }
+                    final long last = Math.min(now, this.tick + WHEEL_SIZE);
+                    for (long t = this.tick + 1; t <= last; t++) {
+                        expired = collect((int) (t & MASK), now, expired);
+                    }
+                    this.tick = now;
+                }
+                while (expired != null) {
+                    final Timeout timeout = expired;
+                    expired = timeout.next;
+                    timeout.next = null;
+                    expire(timeout);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Removes all timeouts of a bucket that are due.
+     * @param index
+     *            the index of the bucket
+     * @param now
+     *            the current tick
+     * @param expired
+     *            the list of expired timeouts
+     * @return the list of expired timeouts including the ones of the bucket
+     */
+    private Timeout collect(final int index, final long now, final Timeout expired) {
+        Timeout result = expired;
+        Timeout previous = null;
+        Timeout timeout = this.buckets[index];
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.deadlineTick <= now) {
+                if (previous == null) {
+                    this.buckets[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.pending = false;
+                timeout.next = result;
+                result = timeout;
+                this.size--;
+            } else {
+                previous = timeout;
+            }
+            timeout = next;
+        }
+        return result;
+    }
+
+    /**
+     * Expires a single timeout.
+     * @param timeout
+     *            the timeout
+     */
+    private static void expire(final Timeout timeout) {
+        try {
+            timeout.expire();
+        } catch (final RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Timeout failed.", e);
+        }
+    }
+
+    /**
+     * An entry of the timer wheel.
+     */
+    abstract static class Timeout {
+
+        /** The next timeout in the same bucket or in the list of expired timeouts. */
+        private Timeout next;
+
+        /** The tick at which the timeout expires. */
+        private long deadlineTick;
+
+        /** Whether the timeout is pending. */
+        private boolean pending;
+
+        /**
+         * Instantiates a new timeout.
+         */
+        Timeout() {
+            super();
+        }
+
+        /**
+         * Called on the timer thread once the timeout has expired.
+         */
+        abstract void expire();
+
+    }
+
+}
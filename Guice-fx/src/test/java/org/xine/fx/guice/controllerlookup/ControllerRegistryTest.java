@@ -0,0 +1,179 @@
+package org.xine.fx.guice.controllerlookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests the {@link ControllerRegistry} and the {@link ControllerLookup}.
+ */
+public class ControllerRegistryTest {
+
+    /**
+     * Tests that controllers are looked up by ID.
+     */
+    @Test
+    public void testGet() {
+        final Controller a = new Controller("a");
+        final Controller b = new Controller("b");
+        final ControllerRegistry registry = new ControllerRegistry();
+        registry.register(a);
+        registry.register(b);
+
+        assertSame(a, registry.get("a"));
+        assertSame(b, registry.get("b"));
+        assertNull(registry.get("c"));
+        assertEquals(Arrays.asList(a, b), Arrays.asList(registry.getControllers().toArray()));
+    }
+
+    /**
+     * Tests that registering the same controller twice is ignored.
+     */
+    @Test
+    public void testRegisterTwice() {
+        final Controller a = new Controller("a");
+        final ControllerRegistry registry = new ControllerRegistry();
+        registry.register(a);
+        registry.register(a);
+
+        assertEquals(1, registry.getControllers().size());
+    }
+
+    /**
+     * Tests that two controllers with the same ID are rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateId() {
+        final ControllerRegistry registry = new ControllerRegistry();
+        registry.register(new Controller("a"));
+        registry.register(new Controller("a"));
+    }
+
+    /**
+     * Tests that IDs with empty segments are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidId() {
+        new ControllerRegistry().register(new Controller("toolbar..search"));
+    }
+
+    /**
+     * Tests that controllers without ID are not indexed.
+     */
+    @Test
+    public void testEmptyId() {
+        final ControllerRegistry registry = new ControllerRegistry();
+        registry.register(new Controller(""));
+        registry.register(new Controller(""));
+
+        assertNull(registry.get(""));
+        assertEquals(2, registry.getControllers().size());
+    }
+
+    /**
+     * Tests that a controller whose ID is not available yet is indexed on lookup.
+     */
+    @Test
+    public void testPendingId() {
+        final Controller a = new Controller(null);
+        final ControllerRegistry registry = new ControllerRegistry();
+        registry.register(a);
+        assertNull(registry.get("a"));
+
+        a.id = "a";
+
+        assertSame(a, registry.get("a"));
+    }
+
+    /**
+     * Tests that merged controllers replace those with the same ID.
+     */
+    @Test
+    public void testRegisterAllReplaces() {
+        final Controller first = new Controller("a");
+        final Controller second = new Controller("a");
+        final ControllerRegistry registry = new ControllerRegistry();
+        registry.register(first);
+        final ControllerRegistry nested = new ControllerRegistry();
+        nested.register(second);
+
+        registry.registerAll(nested);
+
+        assertSame(second, registry.get("a"));
+        assertEquals(2, registry.getControllers().size());
+    }
+
+    /**
+     * Tests that merging keeps controllers whose ID is not available yet pending.
+     */
+    @Test
+    public void testRegisterAllPending() {
+        final Controller a = new Controller(null);
+        final ControllerRegistry nested = new ControllerRegistry();
+        nested.register(a);
+        final ControllerRegistry registry = new ControllerRegistry();
+
+        registry.registerAll(nested);
+        a.id = "a";
+
+        assertSame(a, registry.get("a"));
+    }
+
+    /**
+     * Tests hierarchical lookups.
+     */
+    @Test
+    public void testNamespace() {
+        final Controller search = new Controller("toolbar.search");
+        final ControllerLookup lookup = new ControllerLookup(Arrays
+                .<IdentifiableController> asList(search, new Controller("search")));
+
+        assertSame(search, lookup.lookup("toolbar.search"));
+        assertSame(search, lookup.namespace("toolbar").lookup("search"));
+    }
+
+    /**
+     * Tests that looking up an unknown ID fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testLookupUnknown() {
+        new ControllerLookup(new ControllerRegistry()).lookup("a");
+    }
+
+    /**
+     * A controller with a mutable ID.
+     */
+    static final class Controller implements IdentifiableController {
+
+        /** The ID, {@code null} if not available yet. */
+        String id;
+
+        /**
+         * Instantiates a new controller.
+         * @param id
+         *            the ID
+         */
+        Controller(final String id) {
+            super();
+            this.id = id;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.controllerlookup.IdentifiableController#getId()
+         */
+        @Override
+        public String getId() {
+            if (this.id == null) {
+                throw new IllegalStateException("The ID is not available yet.");
+            }
+            return this.id;
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package org.xine.fx.guice.controllerlookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import javafx.scene.layout.Pane;
+
+/**
+ * Tests the {@link ParentIDResolver}.
+ */
+public class ParentIDResolverTest {
+
+    /** The resolver. */
+    private final ParentIDResolver resolver = new ParentIDResolver();
+
+    /**
+     * Tests that the nearest ID is resolved and cached for all nodes passed on the way.
+     */
+    @Test
+    public void testGetParentId() {
+        final Pane root = pane("root");
+        final Pane box = pane(null);
+        final Pane leaf = pane(null);
+        final Pane named = pane("named");
+        root.getChildren().add(box);
+        box.getChildren().addAll(leaf, named);
+
+        assertEquals("root", this.resolver.getParentId(leaf));
+        assertTrue(this.resolver.isResolved(box));
+        assertTrue(this.resolver.isResolved(root));
+        assertEquals("root", this.resolver.getParentId(box));
+        assertEquals("named", this.resolver.getParentId(named));
+        assertEquals(ParentIDFinder.getParentId(leaf), this.resolver.getParentId(leaf));
+    }
+
+    /**
+     * Tests that nodes without any ID above them resolve to {@code null}.
+     */
+    @Test
+    public void testNoId() {
+        final Pane root = pane(null);
+        final Pane leaf = pane(null);
+        root.getChildren().add(leaf);
+
+        assertNull(this.resolver.getParentId(leaf));
+        assertNull(this.resolver.getParentId(root));
+        assertNull(this.resolver.getParentId(null));
+    }
+
+    /**
+     * Tests that reparenting a node only discards the IDs resolved through it.
+     */
+    @Test
+    public void testReparent() {
+        final Pane a = pane("a");
+        final Pane b = pane("b");
+        final Pane cell = pane(null);
+        final Pane graphic = pane(null);
+        final Pane sibling = pane(null);
+        cell.getChildren().add(graphic);
+        a.getChildren().addAll(cell, sibling);
+        assertEquals("a", this.resolver.getParentId(graphic));
+        assertEquals("a", this.resolver.getParentId(sibling));
+
+        b.getChildren().add(cell);
+
+        assertFalse(this.resolver.isResolved(cell));
+        assertFalse(this.resolver.isResolved(graphic));
+        assertTrue(this.resolver.isResolved(sibling));
+        assertTrue(this.resolver.isResolved(a));
+        assertEquals("b", this.resolver.getParentId(graphic));
+        assertEquals("a", this.resolver.getParentId(sibling));
+    }
+
+    /**
+     * Tests that reparenting an ancestor discards the IDs resolved through it.
+     */
+    @Test
+    public void testReparentAncestor() {
+        final Pane a = pane("a");
+        final Pane b = pane("b");
+        final Pane box = pane(null);
+        final Pane leaf = pane(null);
+        box.getChildren().add(leaf);
+        a.getChildren().add(box);
+        assertEquals("a", this.resolver.getParentId(leaf));
+
+        b.getChildren().add(box);
+
+        assertEquals("b", this.resolver.getParentId(leaf));
+        box.getChildren().remove(leaf);
+        assertNull(this.resolver.getParentId(leaf));
+    }
+
+    /**
+     * Tests that setting and clearing IDs discards the IDs resolved through the node.
+     */
+    @Test
+    public void testIdChange() {
+        final Pane root = pane("root");
+        final Pane box = pane(null);
+        final Pane leaf = pane(null);
+        final Pane named = pane("named");
+        final Pane namedLeaf = pane(null);
+        root.getChildren().add(box);
+        box.getChildren().addAll(leaf, named);
+        named.getChildren().add(namedLeaf);
+        assertEquals("root", this.resolver.getParentId(leaf));
+        assertEquals("named", this.resolver.getParentId(namedLeaf));
+
+        box.setId("box");
+
+        assertEquals("box", this.resolver.getParentId(leaf));
+        assertTrue(this.resolver.isResolved(namedLeaf));
+        assertEquals("named", this.resolver.getParentId(namedLeaf));
+
+        box.setId(null);
+        named.setId(null);
+
+        assertEquals("root", this.resolver.getParentId(leaf));
+        assertEquals("root", this.resolver.getParentId(namedLeaf));
+
+        root.setId("other");
+
+        assertEquals("other", this.resolver.getParentId(leaf));
+        assertEquals("other", this.resolver.getParentId(namedLeaf));
+    }
+
+    /**
+     * Creates a pane.
+     * @param id
+     *            the id of the pane, may be {@code null}
+     * @return the pane
+     */
+    private static Pane pane(final String id) {
+        final Pane pane = new Pane();
+        pane.setId(id);
+        return pane;
+    }
+
+}
@@ -0,0 +1,242 @@
+package org.xine.fx.guice.fxml;
+
+import org.xine.fx.guice.FXMLComponent;
+
+import com.google.inject.Guice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javafx.fxml.FXMLLoader;
+import javafx.fxml.JavaFXBuilderFactory;
+import javafx.geometry.Insets;
+import javafx.scene.Group;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+import javafx.util.Builder;
+import javafx.util.BuilderFactory;
+
+/**
+ * Measures the per-element overhead of the {@link FXMLComponentBuilderFactory} on a document with
+ * 5,000 elements.
+ * <p>
+ * The {@code uncached} benchmarks repeat the work the factory used to do for every element (log
+ * formatting, the reflective annotation lookup and the JavaFX builder factory) and serve as the
+ * baseline. Run with the {@link #main(String[]) main method}; the JavaFX runtime must be on the
+ * class path, the JavaFX toolkit need not be started.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FXMLComponentBuilderFactoryBenchmark {
+
+    /** The number of elements of the document. */
+    private static final int ELEMENTS = 5000;
+
+    /** The classes of the elements, in document order. */
+    private static final Class<?>[] TYPES = {Pane.class, Rectangle.class, Group.class,
+            Circle.class, HBox.class, Line.class, VBox.class, StackPane.class, Insets.class,
+            Badge.class };
+
+    /** The logger of the factory, whose messages used to be formatted for every element. */
+    private static final Logger LOGGER = Logger.getLogger(FXMLComponentBuilderFactory.class
+            .getName());
+
+    /** The factory under test. */
+    private BuilderFactory factory;
+
+    /** The JavaFX builder factory, as used by the factory before decisions were cached. */
+    private JavaFXBuilderFactory javaFXBuilderFactory;
+
+    /** The classes of all elements of the document. */
+    private Class<?>[] elements;
+
+    /** The document. */
+    private byte[] document;
+
+    /**
+     * Creates the factory and the document.
+     */
+    @Setup
+    public void setUp() {
+        this.factory = Guice.createInjector(new FXMLLoadingModule()).getInstance(
+                FXMLComponentBuilderFactory.class);
+        this.javaFXBuilderFactory = new JavaFXBuilderFactory();
+        this.elements = new Class<?>[ELEMENTS];
+        for (int i = 0; i < ELEMENTS; i++) {
+            this.elements[i] = TYPES[i % TYPES.length];
+        }
+
+        // nested classes cannot be imported by their simple name
+        final String badge = Badge.class.getName().replace('$', '.');
+        final StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        builder.append("<?import javafx.scene.layout.*?>\n");
+        builder.append("<?import javafx.scene.shape.*?>\n");
+        builder.append("<VBox xmlns:fx=\"http://javafx.com/fxml\">\n");
+        for (int i = 1; i < ELEMENTS; i += 4) {
+            builder.append("  <HBox>\n");
+            builder.append("    <Rectangle width=\"10\" height=\"10\"/>\n");
+            builder.append("    <Circle radius=\"5\"/>\n");
+            builder.append("    <").append(badge).append(" text=\"").append(i).append(
+                    "\"/>\n");
+            builder.append("  </HBox>\n");
+        }
+        builder.append("</VBox>\n");
+        this.document = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the builders of all elements.
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void getBuilder(final Blackhole blackhole) {
+        for (final Class<?> element : this.elements) {
+            blackhole.consume(this.factory.getBuilder(element));
+        }
+    }
+
+    /**
+     * Gets the builders of all elements without caching the decisions, as the factory used to.
+     * @param blackhole
+     *            the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void getBuilderUncached(final Blackhole blackhole) {
+        for (final Class<?> element : this.elements) {
+            final String className = element.getName();
+            LOGGER.fine(String.format("Searching builder for component class '%s'.", className));
+            if (element.isAnnotationPresent(FXMLComponent.class)) {
+                LOGGER.fine(String.format("Creating FXMLComponentBuilder for class '%s'.",
+                        className));
+            }
+            blackhole.consume(this.javaFXBuilderFactory.getBuilder(element));
+        }
+    }
+
+    /**
+     * Loads the document with the factory under test.
+     * @return the root of the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Object load() throws IOException {
+        return load(this.factory);
+    }
+
+    /**
+     * Loads the document with a factory that does not cache its decisions.
+     * @return the root of the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public Object loadUncached() throws IOException {
+        return load(new BuilderFactory() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public Builder<?> getBuilder(final Class<?> type) {
+                final String className = type.getName();
+                LOGGER.fine(String.format("Searching builder for component class '%s'.",
+                        className));
+                if (type.isAnnotationPresent(FXMLComponent.class)) {
+                    LOGGER.fine(String.format("Creating FXMLComponentBuilder for class '%s'.",
+                            className));
+                    return FXMLComponentBuilderFactoryBenchmark.this.factory.getBuilder(type);
+                }
+                return FXMLComponentBuilderFactoryBenchmark.this.javaFXBuilderFactory
+                        .getBuilder(type);
+            }
+        });
+    }
+
+    /**
+     * Loads the document.
+     * @param builderFactory
+     *            the builder factory
+     * @return the root of the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private Object load(final BuilderFactory builderFactory) throws IOException {
+        final FXMLLoader loader = new FXMLLoader();
+        loader.setBuilderFactory(builderFactory);
+        return loader.load(new ByteArrayInputStream(this.document));
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args
+     *            ignored
+     * @throws RunnerException
+     *             if a benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(
+                FXMLComponentBuilderFactoryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * A component that is built by the {@link FXMLComponentBuilder}.
+     */
+    @FXMLComponent
+    public static class Badge extends Pane {
+
+        /** The text. */
+        private String text;
+
+        /**
+         * Gets the text.
+         * @return the text
+         */
+        public String getText() {
+            return this.text;
+        }
+
+        /**
+         * Sets the text.
+         * @param text
+         *            the text
+         */
+        public void setText(final String text) {
+            this.text = text;
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package org.xine.fx.guice.fxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.xine.fx.guice.controllerlookup.IdentifiableController;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests the {@link FXMLLoadingScope}.
+ */
+public class FXMLLoadingScopeTest {
+
+    /** The scope. */
+    private final FXMLLoadingScope scope = new FXMLLoadingScope();
+
+    /**
+     * Leaves all frames entered by a test.
+     */
+    @After
+    public void tearDown() {
+        while (this.scope.isActive()) {
+            this.scope.exit();
+        }
+    }
+
+    /**
+     * Tests that the scope is inactive until it is entered.
+     */
+    @Test
+    public void testInactive() {
+        assertFalse(this.scope.isActive());
+        this.scope.enter(null);
+        assertTrue(this.scope.isActive());
+        this.scope.exit();
+        assertFalse(this.scope.isActive());
+    }
+
+    /**
+     * Tests that exiting a scope that has not been entered fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testExitWithoutEnter() {
+        this.scope.exit();
+    }
+
+    /**
+     * Tests that the controllers of an inactive scope cannot be looked up.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testLookupWhileInactive() {
+        this.scope.getControllerLookup();
+    }
+
+    /**
+     * Tests that scoped controllers are registered with the current frame.
+     */
+    @Test
+    public void testRegister() {
+        this.scope.enter(null);
+        final Controller a = provide(new Controller("a"));
+
+        assertSame(a, this.scope.getControllerLookup().lookup("a"));
+        assertSame(a, this.scope.<Controller> getInstance("a"));
+    }
+
+    /**
+     * Tests that a nested load sees its own controllers only and hands them over on exit.
+     */
+    @Test
+    public void testNestedFrames() {
+        this.scope.enter(null);
+        final Controller outer = provide(new Controller("outer"));
+        this.scope.enter(null);
+        final Controller inner = provide(new Controller("inner"));
+
+        assertEquals(1, this.scope.getIdentifiables().size());
+        assertSame(inner, this.scope.getControllerLookup().lookup("inner"));
+
+        this.scope.exit();
+
+        assertTrue(this.scope.isActive());
+        assertSame(outer, this.scope.getControllerLookup().lookup("outer"));
+        assertSame(inner, this.scope.getControllerLookup().lookup("inner"));
+    }
+
+    /**
+     * Tests that loading the same document twice within another one does not fail on exit.
+     */
+    @Test
+    public void testNestedSameIdReplaces() {
+        this.scope.enter(null);
+        provide(new Controller("row"));
+        this.scope.enter(null);
+        final Controller second = provide(new Controller("row"));
+
+        this.scope.exit();
+
+        assertSame(second, this.scope.getControllerLookup().lookup("row"));
+        assertEquals(2, this.scope.getIdentifiables().size());
+    }
+
+    /**
+     * Tests that frames are confined to their thread.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testThreadConfinement() throws InterruptedException {
+        this.scope.enter(null);
+        final AtomicBoolean active = new AtomicBoolean(true);
+        final Thread thread = new Thread(new Runnable() {
+            @SuppressWarnings("synthetic-access")
+            @Override
+            public void run() {
+                active.set(FXMLLoadingScopeTest.this.scope.isActive());
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertFalse(active.get());
+    }
+
+    /**
+     * Provides an object through the scope.
+     * @param <T>
+     *            the type of the object
+     * @param object
+     *            the object
+     * @return the provided object
+     */
+    private <T> T provide(final T object) {
+        @SuppressWarnings("unchecked")
+        final Key<T> key = (Key<T>) Key.get(object.getClass());
+        return this.scope.scope(key, new Provider<T>() {
+            @Override
+            public T get() {
+                return object;
+            }
+        }).get();
+    }
+
+    /**
+     * A controller with a fixed ID.
+     */
+    static final class Controller implements IdentifiableController {
+
+        /** The ID. */
+        private final String id;
+
+        /**
+         * Instantiates a new controller.
+         * @param id
+         *            the ID
+         */
+        Controller(final String id) {
+            super();
+            this.id = id;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.controllerlookup.IdentifiableController#getId()
+         */
+        @Override
+        public String getId() {
+            return this.id;
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package org.xine.fx.guice.fxml;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Tests the {@link FXMLTemplateCache}.
+ */
+public class FXMLTemplateCacheTest {
+
+    /** The folder of the documents. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that an unmodified file is read once.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testFileIsReadOnce() throws IOException {
+        final URL url = write("view.fxml", "<A/>", 1000L);
+        final FXMLTemplateCache cache = new FXMLTemplateCache();
+
+        assertEquals("<A/>", read(cache.openStream(url)));
+        assertEquals("<A/>", read(cache.openStream(url)));
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Tests that a file is read again once its last-modified time changes.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testModifiedFileIsReadAgain() throws IOException {
+        final URL url = write("view.fxml", "<A/>", 1000L);
+        final FXMLTemplateCache cache = new FXMLTemplateCache();
+        cache.openStream(url).close();
+
+        write("view.fxml", "<B/>", 2000L);
+
+        assertEquals("<B/>", read(cache.openStream(url)));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    /**
+     * Tests that documents in JAR files are not revalidated.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testJarEntryIsReadOnce() throws IOException {
+        final File jar = this.folder.newFile("views.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("view.fxml"));
+            out.write("<A/>".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        final URL url = new URL("jar:" + jar.toURI().toURL() + "!/view.fxml");
+        final FXMLTemplateCache cache = new FXMLTemplateCache();
+
+        assertEquals("<A/>", read(cache.openStream(url)));
+        assertEquals("<A/>", read(cache.openStream(url)));
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    /**
+     * Tests that the least recently used document is evicted.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        final URL a = write("a.fxml", "<A/>", 1000L);
+        final URL b = write("b.fxml", "<B/>", 1000L);
+        final URL c = write("c.fxml", "<C/>", 1000L);
+        final FXMLTemplateCache cache = new FXMLTemplateCache(2);
+
+        cache.openStream(a).close();
+        cache.openStream(b).close();
+        cache.openStream(a).close();
+        cache.openStream(c).close();
+        assertEquals(2, cache.size());
+
+        cache.openStream(a).close();
+        cache.openStream(b).close();
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    /**
+     * Tests that a cache of size zero always reads the document.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testZeroSizeDisablesCaching() throws IOException {
+        final URL url = write("view.fxml", "<A/>", 1000L);
+        final FXMLTemplateCache cache = new FXMLTemplateCache(0);
+
+        assertEquals("<A/>", read(cache.openStream(url)));
+        assertEquals("<A/>", read(cache.openStream(url)));
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a negative size is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSize() {
+        new FXMLTemplateCache(-1);
+    }
+
+    /**
+     * Writes a document.
+     * @param name
+     *            the file name
+     * @param content
+     *            the content
+     * @param lastModified
+     *            the last-modified time
+     * @return the URL of the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private URL write(final String name, final String content, final long lastModified)
+            throws IOException {
+        final File file = new File(this.folder.getRoot(), name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(lastModified));
+        return file.toURI().toURL();
+    }
+
+    /**
+     * Reads and closes a stream.
+     * @param in
+     *            the stream
+     * @return the content
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static String read(final InputStream in) throws IOException {
+        try (InputStream input = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[256];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.xine.fx.guice.fxml;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Tests the {@link FXMLViewFactoryRegistry}.
+ */
+public class FXMLViewFactoryRegistryTest {
+
+    /** The location of the compiled document. */
+    private static final String LOCATION = "org/xine/fx/guice/fxml/RegistryView.fxml";
+
+    /** The temporary folder. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a factory is used for the resource it has been compiled from.
+     */
+    @Test
+    public void testExactResource() {
+        final FXMLViewFactory factory = new TestViewFactory(LOCATION);
+        final FXMLViewFactoryRegistry registry = new FXMLViewFactoryRegistry(
+                Arrays.asList(factory));
+
+        assertSame(factory, registry.getFactory(getClass().getClassLoader().getResource(LOCATION)));
+    }
+
+    /**
+     * Tests that a document with the same file name at another location is not matched.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testSameFileNameElsewhere() throws IOException {
+        final File other = this.folder.newFile("RegistryView.fxml");
+        final FXMLViewFactoryRegistry registry = new FXMLViewFactoryRegistry(
+                Arrays.asList(new TestViewFactory(LOCATION)));
+
+        assertNull(registry.getFactory(other.toURI().toURL()));
+    }
+
+    /**
+     * Tests that the right factory is picked among factories with the same file name.
+     */
+    @Test
+    public void testSameFileNameInOtherPackage() {
+        final FXMLViewFactory other = new TestViewFactory("other/RegistryView.fxml");
+        final FXMLViewFactory factory = new TestViewFactory(LOCATION);
+        final FXMLViewFactoryRegistry registry = new FXMLViewFactoryRegistry(Arrays.asList(other,
+                factory));
+
+        assertSame(factory, registry.getFactory(getClass().getClassLoader().getResource(LOCATION)));
+    }
+
+    /**
+     * Tests that a document without factory is not matched.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testUnknownDocument() throws IOException {
+        final FXMLViewFactoryRegistry registry = new FXMLViewFactoryRegistry(
+                Arrays.asList(new TestViewFactory(LOCATION)));
+
+        assertNull(registry.getFactory(this.folder.newFile("Unknown.fxml").toURI().toURL()));
+    }
+
+    /**
+     * Tests that a factory whose document is missing is never matched.
+     */
+    @Test
+    public void testMissingResource() {
+        final FXMLViewFactoryRegistry registry = new FXMLViewFactoryRegistry(
+                Arrays.asList(new TestViewFactory("org/xine/fx/guice/RegistryView.fxml")));
+
+        final URL url = getClass().getClassLoader().getResource(LOCATION);
+        assertNull(registry.getFactory(url));
+    }
+
+    /**
+     * A factory that creates nothing.
+     */
+    private static final class TestViewFactory implements FXMLViewFactory {
+
+        /** The location. */
+        private final String location;
+
+        /**
+         * Instantiates a new test view factory.
+         * @param location
+         *            the location
+         */
+        TestViewFactory(final String location) {
+            super();
+            this.location = location;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLViewFactory#getLocation()
+         */
+        @Override
+        public String getLocation() {
+            return this.location;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.fxml.FXMLViewFactory#create(org.xine.fx.guice.fxml.FXMLViewContext)
+         */
+        @Override
+        public Object create(final FXMLViewContext context) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+package org.xine.fx.guice.prefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.xine.fx.guice.PersistentProperty.NodeType;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tests the {@link MappedFileStorage}.
+ */
+public class MappedFileStorageTest {
+
+    /** The initial size of a storage file. */
+    private static final int MINIMUM_CAPACITY = 64 * 1024;
+
+    /** The temporary folder. */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** The storage file. */
+    private Path file;
+
+    /**
+     * Sets up the storage file.
+     */
+    @Before
+    public void setUp() {
+        this.file = this.folder.getRoot().toPath().resolve("settings.log");
+    }
+
+    /**
+     * Tests that values are stored and read again by the next storage on the same file.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testReopen() throws IOException {
+        final MappedFileStorage storage = new MappedFileStorage(this.file);
+        storage.put(NodeType.USER_NODE, getClass(), "width", "100");
+        storage.put(NodeType.SYSTEM_NODE, getClass(), "width", "200");
+        storage.put(NodeType.USER_NODE, String.class, "width", "300");
+        storage.put(NodeType.USER_NODE, getClass(), "width", "400");
+        storage.flush();
+
+        final MappedFileStorage reopened = new MappedFileStorage(this.file);
+        assertEquals("400", reopened.get(NodeType.USER_NODE, getClass(), "width"));
+        assertEquals("200", reopened.get(NodeType.SYSTEM_NODE, getClass(), "width"));
+        assertEquals("300", reopened.get(NodeType.USER_NODE, String.class, "width"));
+        assertNull(reopened.get(NodeType.USER_NODE, getClass(), "height"));
+    }
+
+    /**
+     * Tests that superseded records are compacted in place instead of growing the file.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        final MappedFileStorage storage = new MappedFileStorage(this.file);
+        storage.put(NodeType.USER_NODE, getClass(), "height", "50");
+        for (int i = 0; i < 20000; i++) {
+            storage.put(NodeType.USER_NODE, getClass(), "width", "value " + i);
+        }
+        storage.flush();
+
+        assertEquals(MINIMUM_CAPACITY, Files.size(this.file));
+        assertFalse(Files.exists(getJournal()));
+        final MappedFileStorage reopened = new MappedFileStorage(this.file);
+        assertEquals("value 19999", reopened.get(NodeType.USER_NODE, getClass(), "width"));
+        assertEquals("50", reopened.get(NodeType.USER_NODE, getClass(), "height"));
+    }
+
+    /**
+     * Tests that the file grows once the live records do not fit.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testGrowth() throws IOException {
+        final MappedFileStorage storage = new MappedFileStorage(this.file);
+        for (int i = 0; i < 5000; i++) {
+            storage.put(NodeType.USER_NODE, getClass(), "key " + i, "value " + i);
+        }
+        storage.flush();
+
+        assertTrue(Files.size(this.file) > MINIMUM_CAPACITY);
+        final MappedFileStorage reopened = new MappedFileStorage(this.file);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("value " + i, reopened.get(NodeType.USER_NODE, getClass(), "key " + i));
+        }
+    }
+
+    /**
+     * Tests that a record cut off by a crash is ignored and overwritten.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testTornRecord() throws IOException {
+        final MappedFileStorage storage = new MappedFileStorage(this.file);
+        storage.put(NodeType.USER_NODE, getClass(), "width", "100");
+        storage.flush();
+        final ByteBuffer torn = ByteBuffer.allocate(8);
+        torn.putInt(40).putInt(10).flip();
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+            channel.write(torn, getEndOfLog());
+        }
+
+        final MappedFileStorage recovered = new MappedFileStorage(this.file);
+        assertEquals("100", recovered.get(NodeType.USER_NODE, getClass(), "width"));
+        recovered.put(NodeType.USER_NODE, getClass(), "height", "50");
+        recovered.flush();
+
+        final MappedFileStorage reopened = new MappedFileStorage(this.file);
+        assertEquals("100", reopened.get(NodeType.USER_NODE, getClass(), "width"));
+        assertEquals("50", reopened.get(NodeType.USER_NODE, getClass(), "height"));
+    }
+
+    /**
+     * Tests that a compaction interrupted after its journal has been written is completed.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testCompleteInterruptedCompaction() throws IOException {
+        final MappedFileStorage storage = new MappedFileStorage(this.file);
+        storage.put(NodeType.USER_NODE, getClass(), "width", "partially rewritten");
+        storage.flush();
+        final Path compacted = this.folder.getRoot().toPath().resolve("compacted.log");
+        final MappedFileStorage image = new MappedFileStorage(compacted);
+        image.put(NodeType.USER_NODE, getClass(), "width", "100");
+        image.flush();
+        Files.copy(compacted, getJournal());
+
+        final MappedFileStorage recovered = new MappedFileStorage(this.file);
+
+        assertEquals("100", recovered.get(NodeType.USER_NODE, getClass(), "width"));
+        assertFalse(Files.exists(getJournal()));
+    }
+
+    /**
+     * Tests that a journal that has not been completed is discarded.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testDiscardIncompleteJournal() throws IOException {
+        final MappedFileStorage storage = new MappedFileStorage(this.file);
+        storage.put(NodeType.USER_NODE, getClass(), "width", "100");
+        storage.flush();
+        Files.write(getJournal(), new byte[64]);
+
+        final MappedFileStorage recovered = new MappedFileStorage(this.file);
+
+        assertEquals("100", recovered.get(NodeType.USER_NODE, getClass(), "width"));
+        assertFalse(Files.exists(getJournal()));
+    }
+
+    /**
+     * Tests that a file that is no storage file is rejected.
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Test(expected = IOException.class)
+    public void testNoStorageFile() throws IOException {
+        Files.write(this.file, "width=100".getBytes("UTF-8"));
+        new MappedFileStorage(this.file);
+    }
+
+    /**
+     * Gets the journal of the storage file.
+     * @return the journal
+     */
+    private Path getJournal() {
+        return this.file.resolveSibling(this.file.getFileName() + ".compacting");
+    }
+
+    /**
+     * Gets the position after the last complete record of the storage file.
+     * @return the position
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private int getEndOfLog() throws IOException {
+        final ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(this.file));
+        int position = 8;
+        int length;
+        while ((length = log.getInt(position)) > 0) {
+            position += 4 + length;
+        }
+        return position;
+    }
+
+}
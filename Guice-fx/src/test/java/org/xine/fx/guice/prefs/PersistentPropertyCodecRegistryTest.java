@@ -0,0 +1,120 @@
+package org.xine.fx.guice.prefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * Tests the codecs of the {@link PersistentPropertyCodecRegistry}.
+ */
+public class PersistentPropertyCodecRegistryTest {
+
+    /** The registry. */
+    private final PersistentPropertyCodecRegistry registry = new PersistentPropertyCodecRegistry();
+
+    /**
+     * Tests the round-trips of the built-in codecs.
+     */
+    @Test
+    public void testBuiltInRoundTrips() {
+        assertRoundTrip(String.class, "a=b");
+        assertRoundTrip(Boolean.class, Boolean.TRUE);
+        assertRoundTrip(Integer.class, Integer.valueOf(-42));
+        assertRoundTrip(Long.class, Long.valueOf(Long.MAX_VALUE));
+        assertRoundTrip(Float.class, Float.valueOf(0.1f));
+        assertRoundTrip(Double.class, Double.valueOf(Math.PI));
+        assertRoundTrip(BigDecimal.class, new BigDecimal("1234567890.0987654321"));
+        assertRoundTrip(BigInteger.class, new BigInteger("-123456789012345678901234567890"));
+        assertRoundTrip(Date.class, new Date(1234567890123L));
+        assertRoundTrip(Instant.class, Instant.ofEpochSecond(1234567890L, 123));
+        assertRoundTrip(LocalDate.class, LocalDate.of(2014, 2, 28));
+        assertRoundTrip(LocalTime.class, LocalTime.of(23, 59, 1));
+        assertRoundTrip(LocalDateTime.class, LocalDateTime.of(2014, 2, 28, 23, 59));
+        assertRoundTrip(OffsetDateTime.class, OffsetDateTime.parse("2014-02-28T23:59:00+01:00"));
+        assertRoundTrip(ZonedDateTime.class, ZonedDateTime.parse(
+                "2014-02-28T23:59:00+01:00[Europe/Paris]"));
+        assertRoundTrip(Duration.class, Duration.ofMillis(1500));
+    }
+
+    /**
+     * Tests the round-trip of enums, which are stored by name.
+     */
+    @Test
+    public void testEnumRoundTrip() {
+        assertRoundTrip(Color.class, Color.GREEN);
+        assertEquals("GREEN", this.registry.getCodec(Color.class).encode(Color.GREEN));
+    }
+
+    /**
+     * Tests that contributed codecs override the built-in codecs.
+     */
+    @Test
+    public void testContributionOverridesBuiltIn() {
+        final PersistentPropertyCodec<Integer> hex = new PersistentPropertyCodec<Integer>(
+                Integer.class) {
+            @Override
+            public String encode(final Integer value) {
+                return Integer.toHexString(value.intValue());
+            }
+
+            @Override
+            public Integer decode(final String value) {
+                return Integer.valueOf(value, 16);
+            }
+        };
+        final PersistentPropertyCodecRegistry contributed = new PersistentPropertyCodecRegistry(
+                Collections.<PersistentPropertyCodec<?>> singleton(hex));
+
+        assertEquals("ff", contributed.getCodec(Integer.class).encode(Integer.valueOf(255)));
+        assertEquals("a=b", contributed.getCodec(String.class).encode("a=b"));
+    }
+
+    /**
+     * Tests that there is no codec for unknown types.
+     */
+    @Test
+    public void testUnknownType() {
+        assertNull(this.registry.getCodec(Object.class));
+    }
+
+    /**
+     * Asserts that a value is decoded to an equal value.
+     * @param <T>
+     *            the type of the value
+     * @param type
+     *            the type of the value
+     * @param value
+     *            the value
+     */
+    private <T> void assertRoundTrip(final Class<T> type, final T value) {
+        final PersistentPropertyCodec<T> codec = this.registry.getCodec(type);
+        assertEquals(value, codec.decode(codec.encode(value)));
+    }
+
+    /**
+     * An enum without codec of its own.
+     */
+    enum Color {
+
+        /** Red. */
+        RED,
+
+        /** Green. */
+        GREEN
+
+    }
+
+}
@@ -0,0 +1,230 @@
+package org.xine.fx.guice.prefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.xine.fx.guice.PersistentProperty;
+import org.xine.fx.guice.prefs.PersistentPropertyWriterTest.MemoryStorage;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.ConfigurationException;
+import com.google.inject.CreationException;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+/**
+ * Tests the round-trip of {@link PersistentProperty} fields through the
+ * {@link PersistentPropertyModule}.
+ */
+public class PersistentPropertyModuleTest {
+
+    /** The storage. */
+    private final MemoryStorage storage = new MemoryStorage();
+
+    /**
+     * Tests that the values of all kinds of properties are restored.
+     */
+    @Test
+    public void testRoundTrip() {
+        final Injector injector = Guice.createInjector(new PersistentPropertyModule(this.storage,
+                1, TimeUnit.HOURS), new AbstractModule() {
+            @Override
+            protected void configure() {
+                PersistentPropertyModule.codecBinder(binder()).addBinding().toInstance(
+                        new PointCodec());
+            }
+        });
+        final Settings settings = injector.getInstance(Settings.class);
+        settings.count.set(42);
+        settings.ratio.set(0.25);
+        settings.name.set("name");
+        settings.date.set(LocalDate.of(2014, 2, 28));
+        settings.point.set(new Point(7));
+
+        injector.getInstance(PersistentPropertyWriter.class).flush();
+        final Settings restored = injector.getInstance(Settings.class);
+
+        assertEquals(42, restored.count.get());
+        assertEquals(0.25, restored.ratio.get(), 0);
+        assertEquals("name", restored.name.get());
+        assertEquals(LocalDate.of(2014, 2, 28), restored.date.get());
+        assertEquals(7, restored.point.get().x);
+    }
+
+    /**
+     * Tests that values are restored before they have been written.
+     */
+    @Test
+    public void testRoundTripBeforeFlush() {
+        final Injector injector = Guice.createInjector(new PersistentPropertyModule(this.storage,
+                1, TimeUnit.HOURS));
+        injector.getInstance(Counter.class).count.set(42);
+
+        assertEquals(42, injector.getInstance(Counter.class).count.get());
+        assertNull(this.storage.values.get("count"));
+    }
+
+    /**
+     * Tests that object values of instances bound in modules are restored while the injector is
+     * created, regardless of the order in which the injector injects the instances.
+     */
+    @Test
+    public void testRoundTripOfBoundInstance() {
+        this.storage.values.put("date", "2014-02-28");
+        this.storage.values.put("point", "7");
+        for (int i = 0; i < 50; i++) {
+            final Settings settings = new Settings();
+            Guice.createInjector(new PersistentPropertyModule(this.storage, 1, TimeUnit.HOURS),
+                    new AbstractModule() {
+                        @Override
+                        protected void configure() {
+                            PersistentPropertyModule.codecBinder(binder()).addBinding()
+                                    .toInstance(new PointCodec());
+                            bind(Settings.class).toInstance(settings);
+                        }
+                    });
+
+            assertEquals(LocalDate.of(2014, 2, 28), settings.date.get());
+            assertEquals(7, settings.point.get().x);
+        }
+    }
+
+    /**
+     * Tests that a bound type with a field without codec fails the creation of the injector.
+     */
+    @Test(expected = CreationException.class)
+    public void testMissingCodecOfBoundType() {
+        Guice.createInjector(new PersistentPropertyModule(this.storage, 1, TimeUnit.HOURS),
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(PointSettings.class);
+                    }
+                });
+    }
+
+    /**
+     * Tests that a just-in-time type with a field without codec cannot be injected.
+     */
+    @Test(expected = ConfigurationException.class)
+    public void testMissingCodecOfJustInTimeType() {
+        Guice.createInjector(new PersistentPropertyModule(this.storage, 1, TimeUnit.HOURS))
+                .getInstance(PointSettings.class);
+    }
+
+    /**
+     * Persistent properties of all kinds.
+     */
+    static class Settings {
+
+        /** An integer. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "count")
+        final IntegerProperty count = new SimpleIntegerProperty();
+
+        /** A double. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "ratio")
+        final DoubleProperty ratio = new SimpleDoubleProperty();
+
+        /** A string. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "name")
+        final StringProperty name = new SimpleStringProperty();
+
+        /** An object with a built-in codec. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "date")
+        final ObjectProperty<LocalDate> date = new SimpleObjectProperty<>();
+
+        /** An object with a contributed codec. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "point")
+        final ObjectProperty<Point> point = new SimpleObjectProperty<>();
+
+    }
+
+    /**
+     * A single persistent property.
+     */
+    static class Counter {
+
+        /** An integer. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "count")
+        final IntegerProperty count = new SimpleIntegerProperty();
+
+    }
+
+    /**
+     * A persistent property whose codec is not contributed.
+     */
+    static class PointSettings {
+
+        /** An object without codec. */
+        @PersistentProperty(clazz = PersistentPropertyModuleTest.class, key = "point")
+        final ObjectProperty<Point> point = new SimpleObjectProperty<>();
+
+    }
+
+    /**
+     * A value without built-in codec.
+     */
+    static final class Point {
+
+        /** The coordinate. */
+        final int x;
+
+        /**
+         * Instantiates a new point.
+         * @param x
+         *            the coordinate
+         */
+        Point(final int x) {
+            super();
+            this.x = x;
+        }
+
+    }
+
+    /**
+     * The codec of points.
+     */
+    static final class PointCodec extends PersistentPropertyCodec<Point> {
+
+        /**
+         * Instantiates a new point codec.
+         */
+        PointCodec() {
+            super(Point.class);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyCodec#encode(java.lang.Object)
+         */
+        @Override
+        public String encode(final Point value) {
+            return Integer.toString(value.x);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyCodec#decode(java.lang.String)
+         */
+        @Override
+        public Point decode(final String value) {
+            return new Point(Integer.parseInt(value));
+        }
+
+    }
+
+}
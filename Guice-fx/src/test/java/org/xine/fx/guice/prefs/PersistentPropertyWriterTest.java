@@ -0,0 +1,238 @@
+package org.xine.fx.guice.prefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.xine.fx.guice.PersistentProperty.NodeType;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@link PersistentPropertyWriter}.
+ */
+public class PersistentPropertyWriterTest {
+
+    /** The storage. */
+    private final MemoryStorage storage = new MemoryStorage();
+
+    /**
+     * Tests that recorded values are read before they are written.
+     */
+    @Test
+    public void testGetPending() {
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage, 1,
+                TimeUnit.HOURS);
+        this.storage.values.put("width", "100");
+
+        writer.write(NodeType.USER_NODE, getClass(), "width", "200");
+
+        assertEquals("200", writer.get(NodeType.USER_NODE, getClass(), "width"));
+        assertEquals("100", this.storage.values.get("width"));
+        assertNull(writer.get(NodeType.USER_NODE, getClass(), "height"));
+    }
+
+    /**
+     * Tests that only the latest of several values is written behind.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testWriteBehind() throws InterruptedException {
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage, 20,
+                TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i <= 100; i++) {
+            writer.write(NodeType.USER_NODE, getClass(), "width", String.valueOf(i));
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"100".equals(this.storage.values.get("width")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("100", this.storage.values.get("width"));
+        assertTrue(this.storage.puts.size() < 100);
+        assertEquals(0, this.storage.flushes.get());
+    }
+
+    /**
+     * Tests that flushing writes and forces the values, skipping values that are stored already.
+     */
+    @Test
+    public void testFlush() {
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage, 1,
+                TimeUnit.HOURS);
+        this.storage.values.put("height", "50");
+
+        writer.write(NodeType.USER_NODE, getClass(), "width", "200");
+        writer.write(NodeType.USER_NODE, getClass(), "height", "50");
+        writer.flush();
+
+        assertEquals("[width=200]", this.storage.puts.toString());
+        assertEquals(1, this.storage.flushes.get());
+
+        writer.flush();
+        assertEquals(1, this.storage.flushes.get());
+    }
+
+    /**
+     * Tests that a value is readable while it is written and that a value recorded meanwhile is
+     * written by the next flush.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testWriteWhileFlushing() throws InterruptedException {
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage, 1,
+                TimeUnit.HOURS);
+        final CountDownLatch putting = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        this.storage.putting = putting;
+        this.storage.resume = resume;
+        writer.write(NodeType.USER_NODE, getClass(), "width", "200");
+
+        final Thread flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writer.flush();
+            }
+        });
+        flusher.start();
+        assertTrue(putting.await(5, TimeUnit.SECONDS));
+
+        assertEquals("200", writer.get(NodeType.USER_NODE, getClass(), "width"));
+        writer.write(NodeType.USER_NODE, getClass(), "width", "300");
+        resume.countDown();
+        flusher.join();
+
+        assertEquals("300", writer.get(NodeType.USER_NODE, getClass(), "width"));
+        writer.flush();
+        assertEquals("300", this.storage.values.get("width"));
+    }
+
+    /**
+     * Tests that a value that cannot be written is kept for the next flush.
+     */
+    @Test
+    public void testFailedWriteIsRetried() {
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage, 1,
+                TimeUnit.HOURS);
+        this.storage.failures.set(1);
+
+        writer.write(NodeType.USER_NODE, getClass(), "width", "200");
+        writer.flush();
+        assertNull(this.storage.values.get("width"));
+        assertEquals("200", writer.get(NodeType.USER_NODE, getClass(), "width"));
+
+        writer.flush();
+        assertEquals("200", this.storage.values.get("width"));
+    }
+
+    /**
+     * Tests that collected nodes are preloaded once.
+     */
+    @Test
+    public void testPreload() {
+        final PersistentPropertyWriter writer = new PersistentPropertyWriter(this.storage);
+        writer.addNodeToPreload(NodeType.USER_NODE, getClass());
+        writer.addNodeToPreload(NodeType.USER_NODE, getClass());
+        writer.addNodeToPreload(NodeType.SYSTEM_NODE, String.class);
+
+        writer.preload();
+        writer.preload();
+
+        assertEquals(2, this.storage.preloads.size());
+        assertTrue(this.storage.preloads.contains(NodeType.USER_NODE + " " + getClass().getName()));
+        assertTrue(this.storage.preloads.contains(NodeType.SYSTEM_NODE + " java.lang.String"));
+    }
+
+    /**
+     * A storage that keeps a single node in memory and records its calls.
+     */
+    static final class MemoryStorage implements PersistentPropertyStorage {
+
+        /** The values. */
+        final Map<String, String> values = new ConcurrentHashMap<>();
+
+        /** The values that have been put, in order. */
+        final List<String> puts = new CopyOnWriteArrayList<>();
+
+        /** The nodes that have been preloaded. */
+        final List<String> preloads = new CopyOnWriteArrayList<>();
+
+        /** The number of flushes. */
+        final AtomicInteger flushes = new AtomicInteger();
+
+        /** The number of puts that fail. */
+        final AtomicInteger failures = new AtomicInteger();
+
+        /** Counted down when a put starts, if not {@code null}. */
+        volatile CountDownLatch putting;
+
+        /** Awaited by a put before it stores the value, if not {@code null}. */
+        volatile CountDownLatch resume;
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#get(NodeType, Class, String)
+         */
+        @Override
+        public String get(final NodeType type, final Class<?> nodeClass, final String key) {
+            return this.values.get(key);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#put(NodeType, Class, String,
+         * String)
+         */
+        @Override
+        public void put(final NodeType type, final Class<?> nodeClass, final String key,
+                final String value) {
+            if (this.failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Cannot put " + key + ".");
+            }
+            final CountDownLatch started = this.putting;
+            if (started != null) {
+                this.putting = null;
+                started.countDown();
+                try {
+                    this.resume.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            this.puts.add(key + "=" + value);
+            this.values.put(key, value);
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#preload(NodeType, Class)
+         */
+        @Override
+        public void preload(final NodeType type, final Class<?> nodeClass) {
+            this.preloads.add(type + " " + nodeClass.getName());
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.prefs.PersistentPropertyStorage#flush()
+         */
+        @Override
+        public void flush() throws IOException {
+            this.flushes.incrementAndGet();
+        }
+
+    }
+
+}
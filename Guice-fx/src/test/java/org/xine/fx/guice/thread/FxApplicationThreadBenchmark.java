@@ -0,0 +1,329 @@
+package org.xine.fx.guice.thread;
+
+import org.xine.fx.guice.FxApplicationThread;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.matcher.Matchers;
+import com.sun.javafx.application.PlatformImpl;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+
+/**
+ * Measures calls of {@link FxApplicationThread} methods made on the JavaFX application thread
+ * (inline) and on another thread (cross-thread).
+ * <p>
+ * The {@code direct} benchmarks call the method without interceptor, the {@code legacy}
+ * benchmarks use an interceptor that repeats the work done for every call before dispatch plans
+ * were cached (annotation lookup, return and exception type checks and a task per call). Run with
+ * the {@link #main(String[]) main method}; the JavaFX toolkit is started by the benchmark and
+ * needs a display.
+ * </p>
+ * <p>
+ * Without a display, the toolkit can be run headless with Monocle: put the
+ * {@code org.testfx:openjfx-monocle} artifact matching the JavaFX runtime on the class path and
+ * pass {@code -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw} to the
+ * benchmark JVM.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FxApplicationThreadBenchmark {
+
+    /** The number of calls per invocation. */
+    private static final int CALLS = 1000;
+
+    /** The target without interceptor. */
+    private Target direct;
+
+    /** The target with the interceptor of the {@link FxApplicationThreadModule}. */
+    private Target intercepted;
+
+    /** The target with the legacy interceptor. */
+    private Target legacy;
+
+    /**
+     * Starts the JavaFX toolkit and creates the targets.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the toolkit
+     */
+    @Setup
+    public void setUp() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        try {
+            PlatformImpl.startup(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                }
+            });
+        } catch (final IllegalStateException e) {
+            // The toolkit has been started by a previous benchmark of the same JVM.
+            started.countDown();
+        }
+        started.await();
+
+        this.direct = new Target();
+        this.intercepted = Guice.createInjector(new FxApplicationThreadModule()).getInstance(
+                Target.class);
+        this.legacy = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bindInterceptor(Matchers.any(), Matchers.annotatedWith(FxApplicationThread.class),
+                        new LegacyInterceptor(new FxDispatcher()));
+            }
+        }).getInstance(Target.class);
+    }
+
+    /**
+     * Calls the method on the JavaFX application thread without interceptor.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void inlineDirect() throws InterruptedException {
+        callInline(this.direct);
+    }
+
+    /**
+     * Calls the intercepted method on the JavaFX application thread.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void inline() throws InterruptedException {
+        callInline(this.intercepted);
+    }
+
+    /**
+     * Calls the method with the legacy interceptor on the JavaFX application thread.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void inlineLegacy() throws InterruptedException {
+        callInline(this.legacy);
+    }
+
+    /**
+     * Passes every call to {@link Platform#runLater(Runnable)}, as done without interceptor.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void crossThreadDirect() throws InterruptedException {
+        final CountDownLatch latch = this.direct.expect(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            final int value = i;
+            Platform.runLater(new Runnable() {
+                @SuppressWarnings("synthetic-access")
+                @Override
+                public void run() {
+                    FxApplicationThreadBenchmark.this.direct.update(value);
+                }
+            });
+        }
+        latch.await();
+    }
+
+    /**
+     * Calls the intercepted method on the benchmark thread.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void crossThread() throws InterruptedException {
+        callCrossThread(this.intercepted);
+    }
+
+    /**
+     * Calls the method with the legacy interceptor on the benchmark thread.
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void crossThreadLegacy() throws InterruptedException {
+        callCrossThread(this.legacy);
+    }
+
+    /**
+     * Calls the method of a target on the JavaFX application thread and waits for the calls.
+     * @param target
+     *            the target
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    private static void callInline(final Target target) throws InterruptedException {
+        final CountDownLatch latch = target.expect(CALLS);
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < CALLS; i++) {
+                    target.update(i);
+                }
+            }
+        });
+        latch.await();
+    }
+
+    /**
+     * Calls the method of a target on the current thread and waits for the calls.
+     * @param target
+     *            the target
+     * @throws InterruptedException
+     *             if interrupted while waiting for the calls
+     */
+    private static void callCrossThread(final Target target) throws InterruptedException {
+        final CountDownLatch latch = target.expect(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            target.update(i);
+        }
+        latch.await();
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args
+     *            ignored
+     * @throws RunnerException
+     *             if a benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FxApplicationThreadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * The target of the calls.
+     */
+    public static class Target {
+
+        /** The latch counted down by every call. */
+        private CountDownLatch latch;
+
+        /** The last value. */
+        private int value;
+
+        /**
+         * Expects a number of calls.
+         * @param calls
+         *            the number of calls
+         * @return the latch that is released once all calls have been made
+         */
+        CountDownLatch expect(final int calls) {
+            this.latch = new CountDownLatch(calls);
+            return this.latch;
+        }
+
+        /**
+         * Updates the value.
+         * @param newValue
+         *            the value
+         */
+        @FxApplicationThread
+        public void update(final int newValue) {
+            this.value = newValue;
+            this.latch.countDown();
+        }
+
+        /**
+         * Gets the last value.
+         * @return the last value
+         */
+        public int getValue() {
+            return this.value;
+        }
+
+    }
+
+    /**
+     * An interceptor that validates the method and allocates a task on every call.
+     */
+    private static final class LegacyInterceptor implements MethodInterceptor {
+
+        /** The dispatcher. */
+        private final FxDispatcher dispatcher;
+
+        /**
+         * Instantiates a new legacy interceptor.
+         * @param dispatcher
+         *            the dispatcher
+         */
+        LegacyInterceptor(final FxDispatcher dispatcher) {
+            super();
+            this.dispatcher = dispatcher;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.aopalliance.intercept.MethodInterceptor#invoke(MethodInvocation)
+         */
+        @Override
+        public Object invoke(final MethodInvocation invocation) throws Throwable {
+            final FxApplicationThread annotation = invocation.getMethod().getAnnotation(
+                    FxApplicationThread.class);
+            if (annotation == null) {
+                throw new IllegalStateException(
+                        "Method is not annotated with @FxApplicationThread!");
+            }
+            final Class<?> returnType = invocation.getMethod().getReturnType();
+            final boolean asynchronous = returnType.equals(CompletableFuture.class)
+                    || returnType.equals(CompletionStage.class);
+            if (!(asynchronous || returnType.equals(void.class))
+                    || invocation.getMethod().getExceptionTypes().length > 0) {
+                throw new IllegalStateException("Invalid @FxApplicationThread method!");
+            }
+
+            final Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        invocation.proceed();
+                    } catch (final Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                }
+            };
+            if (Platform.isFxApplicationThread()) {
+                task.run();
+            } else {
+                this.dispatcher.execute(task);
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.xine.fx.guice.thread;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests the {@link FxCallTable}.
+ */
+public class FxCallTableTest {
+
+    /** The table. */
+    private final FxCallTable<String> table = new FxCallTable<>();
+
+    /**
+     * Tests calls keyed on their instance only.
+     */
+    @Test
+    public void testByTarget() {
+        final Object target = new Object();
+        assertTrue(this.table.isEmpty());
+
+        assertNull(this.table.putIfAbsent(target, FxDispatchPlan.NO_ARGUMENTS, "first"));
+        assertSame("first", this.table.putIfAbsent(target, FxDispatchPlan.NO_ARGUMENTS, "second"));
+        assertSame("first", this.table.get(target, FxDispatchPlan.NO_ARGUMENTS));
+        assertFalse(this.table.isEmpty());
+
+        assertTrue(this.table.remove(target, FxDispatchPlan.NO_ARGUMENTS, "first"));
+        assertNull(this.table.get(target, FxDispatchPlan.NO_ARGUMENTS));
+        assertTrue(this.table.isEmpty());
+    }
+
+    /**
+     * Tests calls keyed on their instance and arguments.
+     */
+    @Test
+    public void testByArgument() {
+        final Object target = new Object();
+
+        assertNull(this.table.putIfAbsent(target, Arrays.asList("a", 1), "a"));
+        assertNull(this.table.putIfAbsent(target, Arrays.asList("b", 1), "b"));
+        assertSame("a", this.table.putIfAbsent(target, Arrays.asList("a", 1), "c"));
+
+        assertSame("a", this.table.get(target, Arrays.asList("a", 1)));
+        assertSame("b", this.table.get(target, Arrays.asList("b", 1)));
+        assertNull(this.table.get(target, Arrays.asList("c", 1)));
+
+        assertTrue(this.table.remove(target, Arrays.asList("a", 1), "a"));
+        assertFalse(this.table.isEmpty());
+        assertTrue(this.table.remove(target, Arrays.asList("b", 1), "b"));
+        assertTrue(this.table.isEmpty());
+    }
+
+    /**
+     * Tests that instances are compared by identity.
+     */
+    @Test
+    public void testTargetIdentity() {
+        final String target = new String("target");
+        final String equalTarget = new String("target");
+
+        assertNull(this.table.putIfAbsent(target, FxDispatchPlan.NO_ARGUMENTS, "first"));
+        assertNull(this.table.putIfAbsent(equalTarget, FxDispatchPlan.NO_ARGUMENTS, "second"));
+        assertNull(this.table.putIfAbsent(target, "key", "third"));
+        assertNull(this.table.get(equalTarget, "key"));
+    }
+
+    /**
+     * Tests that a call is only removed while it is pending.
+     */
+    @Test
+    public void testRemoveReplacedCall() {
+        final Object target = new Object();
+        this.table.putIfAbsent(target, "key", "first");
+        assertTrue(this.table.remove(target, "key", "first"));
+        this.table.putIfAbsent(target, "key", "second");
+
+        assertFalse(this.table.remove(target, "key", "first"));
+        assertFalse(this.table.remove(target, FxDispatchPlan.NO_ARGUMENTS, "second"));
+        assertSame("second", this.table.get(target, "key"));
+    }
+
+}
@@ -0,0 +1,251 @@
+package org.xine.fx.guice.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.xine.fx.guice.FxApplicationThread;
+import org.xine.fx.guice.FxApplicationThread.Conflation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the {@link FxDispatchPlan}.
+ */
+public class FxDispatchPlanTest {
+
+    /**
+     * Tests the plan of a plain method.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test
+    public void testPlain() throws NoSuchMethodException {
+        final FxDispatchPlan plan = plan("plain", String.class);
+
+        assertFalse(plan.isConflated());
+        assertFalse(plan.isAsynchronous());
+        assertFalse(plan.isRateLimited());
+    }
+
+    /**
+     * Tests that calls conflated by instance share a key that does not depend on the arguments.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test
+    public void testConflateByTarget() throws NoSuchMethodException {
+        final FxDispatchPlan plan = plan("byTarget", String.class);
+
+        assertSame(FxDispatchPlan.NO_ARGUMENTS, plan.getArgumentKey(new Object[] {"a" }));
+        assertSame(FxDispatchPlan.NO_ARGUMENTS, plan.getArgumentKey(new Object[] {"b" }));
+    }
+
+    /**
+     * Tests that calls conflated by arguments are keyed on equal copies of their arguments.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test
+    public void testConflateByArguments() throws NoSuchMethodException {
+        final FxDispatchPlan plan = plan("byArguments", String.class, double.class);
+        final Object[] arguments = {"a", Double.valueOf(1) };
+        final Object key = plan.getArgumentKey(arguments);
+        arguments[0] = "b";
+
+        assertEquals(plan.getArgumentKey(new Object[] {"a", Double.valueOf(1) }), key);
+        assertFalse(key.equals(plan.getArgumentKey(arguments)));
+    }
+
+    /**
+     * Tests that calls conflated on an argument are keyed on that argument.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test
+    public void testConflateOn() throws NoSuchMethodException {
+        final FxDispatchPlan plan = plan("conflateOn", String.class, double.class);
+
+        assertEquals(Conflation.ARGUMENTS, plan.getConflation());
+        assertSame("a", plan.getArgumentKey(new Object[] {"a", Double.valueOf(1) }));
+        final Object nullKey = plan.getArgumentKey(new Object[] {null, Double.valueOf(1) });
+        assertSame(nullKey, plan.getArgumentKey(new Object[] {null, Double.valueOf(2) }));
+        assertNotSame(FxDispatchPlan.NO_ARGUMENTS, nullKey);
+    }
+
+    /**
+     * Tests that throttled methods are conflated by instance.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test
+    public void testThrottled() throws NoSuchMethodException {
+        final FxDispatchPlan plan = plan("throttled");
+
+        assertTrue(plan.isRateLimited());
+        assertEquals(Conflation.TARGET, plan.getConflation());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), plan.getThrottleNanos());
+    }
+
+    /**
+     * Tests that methods returning a future are asynchronous.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test
+    public void testAsynchronous() throws NoSuchMethodException {
+        assertTrue(plan("asynchronous").isAsynchronous());
+    }
+
+    /**
+     * Tests that methods returning a value are rejected.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testReturnValue() throws NoSuchMethodException {
+        plan("returnValue");
+    }
+
+    /**
+     * Tests that methods declaring exceptions are rejected.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testExceptions() throws NoSuchMethodException {
+        plan("exceptions");
+    }
+
+    /**
+     * Tests that conflating on a missing argument is rejected.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testConflateOnMissingArgument() throws NoSuchMethodException {
+        plan("conflateOnMissing", String.class);
+    }
+
+    /**
+     * Tests that conflating by instance and on an argument is rejected.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testConflateOnTarget() throws NoSuchMethodException {
+        plan("conflateOnTarget", String.class);
+    }
+
+    /**
+     * Tests that throttling and debouncing is rejected.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testThrottledAndDebounced() throws NoSuchMethodException {
+        plan("throttledAndDebounced");
+    }
+
+    /**
+     * Tests that conflating methods returning a future is rejected.
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testConflatedAsynchronous() throws NoSuchMethodException {
+        plan("conflatedAsynchronous");
+    }
+
+    /**
+     * Creates the plan of a method of {@link Methods}.
+     * @param name
+     *            the name of the method
+     * @param parameterTypes
+     *            the parameter types
+     * @return the plan
+     * @throws NoSuchMethodException
+     *             if the method does not exist
+     */
+    private static FxDispatchPlan plan(final String name, final Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        final Method method = Methods.class.getDeclaredMethod(name, parameterTypes);
+        return FxDispatchPlan.create(method);
+    }
+
+    /**
+     * The annotated methods.
+     */
+    @SuppressWarnings("unused")
+    static class Methods {
+
+        @FxApplicationThread
+        void plain(final String value) {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(conflate = Conflation.TARGET)
+        void byTarget(final String value) {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(conflate = Conflation.ARGUMENTS)
+        void byArguments(final String symbol, final double price) {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(conflateOn = 0)
+        void conflateOn(final String symbol, final double price) {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(throttle = 100)
+        void throttled() {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread
+        CompletableFuture<String> asynchronous() {
+            return null;
+        }
+
+        @FxApplicationThread
+        String returnValue() {
+            return null;
+        }
+
+        @FxApplicationThread
+        void exceptions() throws IOException {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(conflateOn = 1)
+        void conflateOnMissing(final String value) {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(conflate = Conflation.TARGET, conflateOn = 0)
+        void conflateOnTarget(final String value) {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(throttle = 100, debounce = 100)
+        void throttledAndDebounced() {
+            // Nothing to do.
+        }
+
+        @FxApplicationThread(conflate = Conflation.TARGET)
+        CompletableFuture<Void> conflatedAsynchronous() {
+            return null;
+        }
+
+    }
+
+}
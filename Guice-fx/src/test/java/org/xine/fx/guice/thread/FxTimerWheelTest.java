@@ -0,0 +1,199 @@
+package org.xine.fx.guice.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@link FxTimerWheel}.
+ */
+public class FxTimerWheelTest {
+
+    /** The wheel. */
+    private final FxTimerWheel wheel = new FxTimerWheel();
+
+    /**
+     * Tests that a timeout expires once, not before its delay.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testExpire() throws InterruptedException {
+        final RecordingTimeout timeout = new RecordingTimeout("a", null, 1);
+        final long start = System.nanoTime();
+
+        this.wheel.schedule(timeout, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertTrue(timeout.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(timeout.expiredNanos - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Thread.sleep(50);
+        assertEquals(1, timeout.expiries.get());
+    }
+
+    /**
+     * Tests that timeouts expire in the order of their deadlines.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testOrder() throws InterruptedException {
+        final List<String> expired = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(3);
+
+        this.wheel.schedule(new RecordingTimeout("c", expired, latch), TimeUnit.MILLISECONDS
+                .toNanos(120));
+        this.wheel.schedule(new RecordingTimeout("a", expired, latch), 0);
+        this.wheel.schedule(new RecordingTimeout("b", expired, latch), TimeUnit.MILLISECONDS
+                .toNanos(60));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("[a, b, c]", expired.toString());
+    }
+
+    /**
+     * Tests that a timeout scheduled while the wheel is idle expires in time even if the timer
+     * thread resumes only after its deadline, e.g. after a garbage collection pause.
+     * @throws Exception
+     *             if the lock of the wheel cannot be accessed or if interrupted
+     */
+    @Test
+    public void testLateWakeUp() throws Exception {
+        final RecordingTimeout first = new RecordingTimeout("a", null, 1);
+        this.wheel.schedule(first, 0);
+        assertTrue(first.latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        final Field lock = FxTimerWheel.class.getDeclaredField("lock");
+        lock.setAccessible(true);
+        final RecordingTimeout timeout = new RecordingTimeout("b", null, 1);
+
+        // Keeps the idle timer thread from resuming until the deadline has passed.
+        synchronized (lock.get(this.wheel)) {
+            this.wheel.schedule(timeout, TimeUnit.MILLISECONDS.toNanos(1));
+            Thread.sleep(20);
+        }
+
+        assertTrue(timeout.latch.await(500, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Tests that a timeout may be scheduled again once it has expired, also after the wheel has
+     * been idle.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testReschedule() throws InterruptedException {
+        final RecordingTimeout timeout = new RecordingTimeout("a", null, 2);
+
+        this.wheel.schedule(timeout, 0);
+        while (timeout.latch.getCount() == 2) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(20);
+        this.wheel.schedule(timeout, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertTrue(timeout.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a pending timeout cannot be scheduled again.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testSchedulePending() {
+        final RecordingTimeout timeout = new RecordingTimeout("a", null, 1);
+        this.wheel.schedule(timeout, TimeUnit.SECONDS.toNanos(10));
+        this.wheel.schedule(timeout, 0);
+    }
+
+    /**
+     * Tests that a timeout beyond a single revolution of the wheel does not expire early.
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    @Test
+    public void testSeveralRevolutions() throws InterruptedException {
+        final long delay = FxTimerWheel.TICK_NANOS * 600;
+        final RecordingTimeout timeout = new RecordingTimeout("a", null, 1);
+        final long start = System.nanoTime();
+
+        this.wheel.schedule(timeout, delay);
+
+        assertTrue(timeout.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(timeout.expiredNanos - start >= delay);
+    }
+
+    /**
+     * A timeout that records its expiry.
+     */
+    static final class RecordingTimeout extends FxTimerWheel.Timeout {
+
+        /** The name. */
+        private final String name;
+
+        /** The names of expired timeouts, or {@code null}. */
+        private final List<String> expired;
+
+        /** Counted down on expiry. */
+        final CountDownLatch latch;
+
+        /** The number of expiries. */
+        final AtomicInteger expiries = new AtomicInteger();
+
+        /** The time of the last expiry. */
+        volatile long expiredNanos;
+
+        /**
+         * Instantiates a new recording timeout.
+         * @param name
+         *            the name
+         * @param expired
+         *            the names of expired timeouts, or {@code null}
+         * @param count
+         *            the number of expected expiries
+         */
+        RecordingTimeout(final String name, final List<String> expired, final int count) {
+            this(name, expired, new CountDownLatch(count));
+        }
+
+        /**
+         * Instantiates a new recording timeout.
+         * @param name
+         *            the name
+         * @param expired
+         *            the names of expired timeouts, or {@code null}
+         * @param latch
+         *            counted down on expiry
+         */
+        RecordingTimeout(final String name, final List<String> expired,
+                final CountDownLatch latch) {
+            super();
+            this.name = name;
+            this.expired = expired;
+            this.latch = latch;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.xine.fx.guice.thread.FxTimerWheel.Timeout#expire()
+         */
+        @Override
+        void expire() {
+            this.expiredNanos = System.nanoTime();
+            this.expiries.incrementAndGet();
+            if (this.expired != null) {
+                this.expired.add(this.name);
+            }
+            this.latch.countDown();
+        }
+
+    }
+
+}